@@ -0,0 +1,377 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jeo.common.util.Arguments;
+import jeo.common.util.Strings;
+
+/**
+ * The decorator of an {@link IOHandler} printing asynchronously: the printed
+ * objects are enqueued into a bounded queue and drained by a dedicated thread,
+ * which coalesces the consecutive objects of the same stream into a single
+ * write to the decorated handler. When the queue is full, the objects are
+ * either dropped or the printing threads are blocked, depending on the
+ * {@link OverflowPolicy}.
+ */
+public class AsyncIOHandler
+	extends IOHandler
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The default capacity of the queue.
+	 */
+	public static volatile int DEFAULT_CAPACITY = 8192;
+	/**
+	 * The maximum number of objects drained at once.
+	 */
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	/**
+	 * The decorated handler.
+	 */
+	private final IOHandler handler;
+	private final BlockingQueue<Entry> queue;
+	private final OverflowPolicy overflowPolicy;
+	/**
+	 * The lock of the enqueueing, under which the enqueued entries are counted
+	 * in the order of the queue.
+	 */
+	private final Lock enqueueLock = new ReentrantLock();
+	/**
+	 * The number of enqueued entries, the number of written entries and the
+	 * number of dropped entries.
+	 */
+	private volatile long enqueuedCount = 0L;
+	private volatile long writtenCount = 0L;
+	private final AtomicLong droppedCount = new AtomicLong(0L);
+	private final Object flushMonitor = new Object();
+	/**
+	 * The thread draining the queue.
+	 */
+	private final Thread drainer;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public AsyncIOHandler(final IOHandler handler)
+	{
+		this(handler, DEFAULT_CAPACITY, OverflowPolicy.DROP);
+	}
+
+	/**
+	 * Constructs an {@link AsyncIOHandler} decorating the specified handler.
+	 * <p>
+	 * @param handler        the {@link IOHandler} to be decorated
+	 * @param capacity       the capacity of the queue
+	 * @param overflowPolicy the {@link OverflowPolicy} applied when the queue
+	 *                       is full
+	 */
+	public AsyncIOHandler(final IOHandler handler, final int capacity, final OverflowPolicy overflowPolicy)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(handler);
+		Arguments.requirePositive(capacity);
+		Arguments.requireNonNull(overflowPolicy);
+		// Set the attribute(s)
+		this.handler = handler;
+		queue = new ArrayBlockingQueue<Entry>(capacity);
+		this.overflowPolicy = overflowPolicy;
+		drainer = new Thread(this::run, "AsyncIOHandler");
+		drainer.setDaemon(true);
+		drainer.start();
+		// Write the enqueued objects at shutdown
+		Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "AsyncIOHandlerShutdown"));
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the decorated handler
+	 */
+	public IOHandler getHandler()
+	{
+		return handler;
+	}
+
+	/**
+	 * @return the {@link OverflowPolicy} applied when the queue is full
+	 */
+	public OverflowPolicy getOverflowPolicy()
+	{
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return the number of dropped objects
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// PRINT
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void print(final Object object, final boolean error)
+	{
+		enqueue(new Entry(object, error, false));
+	}
+
+	@Override
+	public void printLine(final Object object, final boolean error)
+	{
+		enqueue(new Entry(object, error, true));
+	}
+
+	/**
+	 * Enqueues the specified entry according to the overflow policy.
+	 * <p>
+	 * @param entry the {@link Entry} to be enqueued
+	 */
+	private void enqueue(final Entry entry)
+	{
+		if (Thread.currentThread() == drainer)
+		{
+			// Avoid the deadlocks when the decorated handler prints
+			write(entry.error, String.valueOf(entry));
+			return;
+		}
+		boolean isEnqueued;
+		enqueueLock.lock();
+		try
+		{
+			if (overflowPolicy == OverflowPolicy.BLOCK)
+			{
+				try
+				{
+					queue.put(entry);
+					isEnqueued = true;
+				}
+				catch (final InterruptedException ignored)
+				{
+					Thread.currentThread().interrupt();
+					isEnqueued = false;
+				}
+			}
+			else
+			{
+				isEnqueued = queue.offer(entry);
+			}
+			// Count the entry with its enqueueing: when the count is written,
+			// all the entries enqueued before are written (but not the dropped ones)
+			if (isEnqueued)
+			{
+				++enqueuedCount;
+			}
+		}
+		finally
+		{
+			enqueueLock.unlock();
+		}
+		if (!isEnqueued)
+		{
+			droppedCount.incrementAndGet();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// FLUSH
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Waits until all the enqueued objects are written by the decorated
+	 * handler and flushes it.
+	 */
+	@Override
+	public void flush()
+	{
+		if (Thread.currentThread() != drainer)
+		{
+			final long target = enqueuedCount;
+			synchronized (flushMonitor)
+			{
+				while ((writtenCount < target) && drainer.isAlive())
+				{
+					try
+					{
+						flushMonitor.wait(100L);
+					}
+					catch (final InterruptedException ignored)
+					{
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+			}
+		}
+		handler.flush();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// DRAINER
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Drains the queue by batches and writes the consecutive objects of the
+	 * same stream at once.
+	 */
+	private void run()
+	{
+		final List<Entry> batch = new ArrayList<Entry>(MAX_BATCH_SIZE);
+		final StringBuilder builder = Strings.createBuffer();
+		long reportedDroppedCount = 0L;
+		while (true)
+		{
+			try
+			{
+				batch.add(queue.take());
+			}
+			catch (final InterruptedException ignored)
+			{
+				continue;
+			}
+			queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+			// Report the dropped objects
+			final long droppedCount = this.droppedCount.get();
+			if (droppedCount > reportedDroppedCount)
+			{
+				write(true, (droppedCount - reportedDroppedCount) + " messages have been dropped" + System.lineSeparator());
+				reportedDroppedCount = droppedCount;
+			}
+			// Coalesce the consecutive objects of the same stream
+			boolean error = batch.get(0).error;
+			for (final Entry entry : batch)
+			{
+				if (entry.error != error)
+				{
+					write(error, String.valueOf(builder));
+					builder.setLength(0);
+					error = entry.error;
+				}
+				entry.appendTo(builder);
+			}
+			write(error, String.valueOf(builder));
+			builder.setLength(0);
+			// Notify the threads waiting for the objects to be written
+			synchronized (flushMonitor)
+			{
+				writtenCount += batch.size();
+				flushMonitor.notifyAll();
+			}
+			batch.clear();
+		}
+	}
+
+	private void write(final boolean error, final String string)
+	{
+		try
+		{
+			handler.print(string, error);
+		}
+		catch (final RuntimeException ignored)
+		{
+			// The drainer must not die
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ENTRY
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The printed object. The messages are immutable and are converted to
+	 * strings by the drainer, the other objects by the printing thread.
+	 */
+	private static class Entry
+	{
+		private final Object object;
+		private final boolean error;
+		private final boolean newLine;
+
+		private Entry(final Object object, final boolean error, final boolean newLine)
+		{
+			// Check the argument(s)
+			Arguments.requireNonNull(object);
+			// Set the attribute(s)
+			this.object = object instanceof Message ? object : String.valueOf(object);
+			this.error = error;
+			this.newLine = newLine;
+		}
+
+		private void appendTo(final StringBuilder builder)
+		{
+			builder.append(object);
+			if (newLine)
+			{
+				builder.append(System.lineSeparator());
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return newLine ? object + System.lineSeparator() : String.valueOf(object);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// OVERFLOW POLICY
+	////////////////////////////////////////////////////////////////////////////
+
+	public enum OverflowPolicy
+	{
+		/**
+		 * The objects printed while the queue is full are dropped (and their
+		 * number is reported).
+		 */
+		DROP,
+		/**
+		 * The printing threads wait while the queue is full.
+		 */
+		BLOCK
+	}
+}
@@ -0,0 +1,403 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import jeo.common.util.Arguments;
+import jeo.common.util.Formats;
+import jeo.common.util.Strings;
+
+/**
+ * The streaming reader of CSV files. The file is read by chunks through a
+ * {@link FileChannel} and the rows are split by a state machine supporting
+ * the quoted fields (which may contain separators, escaped quotes {@code ""}
+ * and line breaks), so that only one chunk and one row are held in memory.
+ */
+public class CSVReader
+	implements Iterator<String[]>, Closeable
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The default size of the chunks (in bytes).
+	 */
+	public static volatile int DEFAULT_CHUNK_SIZE = 65536;
+	/**
+	 * The quote character.
+	 */
+	public static final char QUOTE = '"';
+
+	private final FileChannel channel;
+	private final boolean closeChannel;
+	/**
+	 * The position of the next chunk and the end of the range to be read (in
+	 * bytes).
+	 */
+	private long position;
+	private final long end;
+	private final char separator;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bytes;
+	private final CharBuffer chars;
+	private boolean endOfInput = false;
+	private boolean isFlushed = false;
+	/**
+	 * The flag specifying whether the next line feed is part of a {@code \r\n}
+	 * line break.
+	 */
+	private boolean skipLineFeed = false;
+	/**
+	 * The current field and the fields of the current row.
+	 */
+	private final StringBuilder field = Strings.createBuffer();
+	private final List<String> fields = new ArrayList<String>();
+	/**
+	 * The next row (or {@code null} if it is not read yet).
+	 */
+	private String[] nextRow = null;
+	private long rowCount = 0L;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public CSVReader(final String pathname, final char separator)
+		throws IOException
+	{
+		this(pathname, separator, Formats.DEFAULT_CHARSET);
+	}
+
+	public CSVReader(final String pathname, final char separator, final Charset charset)
+		throws IOException
+	{
+		this(FileChannel.open(Paths.get(pathname), StandardOpenOption.READ), true, 0L, Long.MAX_VALUE, separator, charset, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructs a {@link CSVReader} reading the rows in the specified range
+	 * of the specified channel. The range must start at the beginning of a row
+	 * and end after a line break (or at the end of the file). The channel is
+	 * not closed by this reader.
+	 * <p>
+	 * @param channel   the {@link FileChannel} to be read from
+	 * @param start     the start of the range (inclusive, in bytes)
+	 * @param end       the end of the range (exclusive, in bytes)
+	 * @param separator the separator of the fields
+	 * @param charset   the character set of the file
+	 */
+	public CSVReader(final FileChannel channel, final long start, final long end, final char separator, final Charset charset)
+	{
+		this(channel, false, start, end, separator, charset, DEFAULT_CHUNK_SIZE);
+	}
+
+	private CSVReader(final FileChannel channel, final boolean closeChannel, final long start, final long end, final char separator, final Charset charset, final int chunkSize)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(channel);
+		Arguments.requireNonNegative(start);
+		Arguments.requireNonNull(charset);
+		// Process
+		this.channel = channel;
+		this.closeChannel = closeChannel;
+		position = start;
+		this.end = end;
+		this.separator = separator;
+		decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocate(chunkSize);
+		chars = CharBuffer.allocate(chunkSize);
+		chars.flip();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the number of rows read so far
+	 */
+	public long getRowCount()
+	{
+		return rowCount;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// READ
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Reads the next row.
+	 * <p>
+	 * @return the fields of the next row, or {@code null} if there is no more
+	 *         row
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	public String[] readRow()
+		throws IOException
+	{
+		fields.clear();
+		field.setLength(0);
+		State state = State.FIELD_START;
+		boolean isRowStarted = false;
+		while (true)
+		{
+			if (!chars.hasRemaining() && !fill())
+			{
+				// End of input
+				if (!isRowStarted)
+				{
+					return null;
+				}
+				return createRow();
+			}
+			final char character = chars.get();
+			if (skipLineFeed)
+			{
+				skipLineFeed = false;
+				if (character == '\n')
+				{
+					continue;
+				}
+			}
+			isRowStarted = true;
+			switch (state)
+			{
+				case FIELD_START:
+					if (character == QUOTE)
+					{
+						state = State.QUOTED;
+					}
+					else if (character == separator)
+					{
+						fields.add(Strings.EMPTY);
+					}
+					else if ((character == '\n') || (character == '\r'))
+					{
+						return endRow(character);
+					}
+					else
+					{
+						field.append(character);
+						state = State.UNQUOTED;
+					}
+					break;
+				case UNQUOTED:
+					if (character == separator)
+					{
+						addField();
+						state = State.FIELD_START;
+					}
+					else if ((character == '\n') || (character == '\r'))
+					{
+						return endRow(character);
+					}
+					else
+					{
+						field.append(character);
+					}
+					break;
+				case QUOTED:
+					if (character == QUOTE)
+					{
+						state = State.QUOTE_IN_QUOTED;
+					}
+					else
+					{
+						field.append(character);
+					}
+					break;
+				case QUOTE_IN_QUOTED:
+					if (character == QUOTE)
+					{
+						// Escaped quote
+						field.append(QUOTE);
+						state = State.QUOTED;
+					}
+					else if (character == separator)
+					{
+						addField();
+						state = State.FIELD_START;
+					}
+					else if ((character == '\n') || (character == '\r'))
+					{
+						return endRow(character);
+					}
+					else
+					{
+						// Be lenient with the characters following a closing quote
+						field.append(character);
+						state = State.UNQUOTED;
+					}
+					break;
+			}
+		}
+	}
+
+	private void addField()
+	{
+		fields.add(String.valueOf(field));
+		field.setLength(0);
+	}
+
+	private String[] endRow(final char lineBreak)
+	{
+		skipLineFeed = lineBreak == '\r';
+		return createRow();
+	}
+
+	private String[] createRow()
+	{
+		addField();
+		++rowCount;
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * Reads and decodes the next chunk.
+	 * <p>
+	 * @return {@code true} if some characters are decoded, {@code false} at
+	 *         the end of input
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private boolean fill()
+		throws IOException
+	{
+		chars.clear();
+		while (chars.position() == 0)
+		{
+			if (endOfInput)
+			{
+				if (!isFlushed)
+				{
+					decoder.flush(chars);
+					isFlushed = true;
+				}
+				break;
+			}
+			// Read the next bytes
+			final int limit = (int) Math.min(bytes.remaining(), end - position);
+			final ByteBuffer window = bytes.duplicate();
+			window.limit(window.position() + limit);
+			final int count = limit > 0 ? channel.read(window, position) : -1;
+			if (count < 0)
+			{
+				endOfInput = true;
+			}
+			else
+			{
+				position += count;
+				bytes.position(bytes.position() + count);
+			}
+			// Decode them
+			bytes.flip();
+			decoder.decode(bytes, chars, endOfInput);
+			bytes.compact();
+		}
+		chars.flip();
+		return chars.hasRemaining();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ITERATOR
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public boolean hasNext()
+	{
+		if (nextRow == null)
+		{
+			try
+			{
+				nextRow = readRow();
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+		return nextRow != null;
+	}
+
+	@Override
+	public String[] next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		final String[] row = nextRow;
+		nextRow = null;
+		return row;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CLOSEABLE
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		if (closeChannel)
+		{
+			channel.close();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// STATE
+	////////////////////////////////////////////////////////////////////////////
+
+	private enum State
+	{
+		FIELD_START,
+		UNQUOTED,
+		QUOTED,
+		QUOTE_IN_QUOTED
+	}
+}
@@ -0,0 +1,675 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jeo.common.io.LogWriter.SyncPolicy;
+import jeo.common.util.Arguments;
+import jeo.common.util.Formats;
+
+/**
+ * The appender of a file shared by all its writers: there is one appender (and
+ * one persistent {@link FileChannel}) per file, which is acquired by each writer
+ * and stays open once it is released by its last writer, until it is one of
+ * the least recently used idle appenders in excess or its file is closed. The lines are encoded into a
+ * direct {@link ByteBuffer} that is written to the channel when it is full or
+ * flushed. The synchronizations of the file with the storage device are
+ * group-committed: a writer waiting for its lines to be synchronized also
+ * commits the lines of the writers that appended meanwhile, which then return
+ * without synchronizing the file again.
+ */
+public class FileAppender
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The default size of the write buffer (in bytes).
+	 */
+	public static volatile int DEFAULT_BUFFER_SIZE = 65536;
+	/**
+	 * The default minimum time between two synchronizations of the file with
+	 * the storage device for the policy {@link SyncPolicy#PERIODIC} (in
+	 * milliseconds).
+	 */
+	public static volatile long DEFAULT_SYNC_INTERVAL = 1000L;
+
+	/**
+	 * The maximum number of idle appenders (i.e. released by all their
+	 * writers) kept open.
+	 */
+	public static volatile int MAX_IDLE_APPENDERS = 16;
+
+	/**
+	 * The appenders by canonical pathname, from the least to the most recently
+	 * used (all its accesses are synchronized on it).
+	 */
+	private static final Map<String, FileAppender> APPENDERS = new LinkedHashMap<String, FileAppender>(16, 0.75f, true);
+
+	static
+	{
+		// Write the buffered lines at shutdown
+		Runtime.getRuntime().addShutdownHook(new Thread(() ->
+		{
+			synchronized (APPENDERS)
+			{
+				for (final FileAppender appender : APPENDERS.values())
+				{
+					appender.close();
+				}
+			}
+		}, "FileAppenderShutdown"));
+	}
+
+	/**
+	 * The pathname of the file.
+	 */
+	private final String pathname;
+	/**
+	 * The number of writers that have acquired this appender and not released
+	 * it yet (guarded by {@link #APPENDERS}).
+	 */
+	private int usersNumber = 0;
+	/**
+	 * The lock of the write buffer and the channel.
+	 */
+	private final Lock lock = new ReentrantLock();
+	private final ByteBuffer buffer;
+	private CharsetEncoder encoder = Formats.DEFAULT_CHARSET.newEncoder();
+	/**
+	 * The persistent channel to the file (or {@code null} if it is closed).
+	 */
+	private FileChannel channel = null;
+	/**
+	 * The number of bytes written to the channel.
+	 */
+	private long writtenBytes = 0L;
+	/**
+	 * The lock of the synchronizations and the number of bytes synchronized
+	 * with the storage device.
+	 */
+	private final Lock syncLock = new ReentrantLock();
+	private volatile long syncedBytes = 0L;
+	private volatile long lastSyncTime = System.nanoTime();
+	/**
+	 * The flag specifying whether the lines are written to the channel as soon
+	 * as they are appended.
+	 */
+	private volatile boolean autoFlush = false;
+	/**
+	 * The policy for synchronizing the file with the storage device.
+	 */
+	private volatile SyncPolicy syncPolicy = SyncPolicy.NEVER;
+	/**
+	 * The minimum time between two synchronizations for the policy
+	 * {@link SyncPolicy#PERIODIC} (in nanoseconds).
+	 */
+	private volatile long syncInterval = DEFAULT_SYNC_INTERVAL * 1000000L;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	private FileAppender(final String pathname, final int bufferSize)
+	{
+		this.pathname = pathname;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// FACTORY
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the appender of the file denoted by the specified pathname,
+	 * creating it if required. It must be released by calling
+	 * {@link #release} once it is no longer used.
+	 * <p>
+	 * @param pathname the pathname of the file to be appended to
+	 * <p>
+	 * @return the appender of the file denoted by {@code pathname}
+	 */
+	public static FileAppender acquire(final String pathname)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(pathname);
+		// Process
+		final String canonicalPathname = getCanonicalPathname(pathname);
+		synchronized (APPENDERS)
+		{
+			FileAppender appender = APPENDERS.get(canonicalPathname);
+			if (appender == null)
+			{
+				appender = new FileAppender(canonicalPathname, DEFAULT_BUFFER_SIZE);
+				APPENDERS.put(canonicalPathname, appender);
+			}
+			++appender.usersNumber;
+			return appender;
+		}
+	}
+
+	/**
+	 * Releases this appender. Once it is released by its last writer, its
+	 * buffered lines are written (and synchronized according to the sync
+	 * policy) but its channel stays open for the next writers, unless it is
+	 * one of the least recently used idle appenders in excess.
+	 */
+	public void release()
+	{
+		synchronized (APPENDERS)
+		{
+			if (--usersNumber == 0)
+			{
+				if (syncPolicy == SyncPolicy.NEVER)
+				{
+					flush();
+				}
+				else
+				{
+					sync();
+				}
+				closeIdleAppenders();
+			}
+		}
+	}
+
+	/**
+	 * Closes and removes the least recently used idle appenders exceeding
+	 * {@link #MAX_IDLE_APPENDERS} (the calling thread must hold the lock of
+	 * {@link #APPENDERS}).
+	 */
+	private static void closeIdleAppenders()
+	{
+		int idleAppendersNumber = 0;
+		for (final FileAppender appender : APPENDERS.values())
+		{
+			if (appender.usersNumber == 0)
+			{
+				++idleAppendersNumber;
+			}
+		}
+		final Iterator<FileAppender> iterator = APPENDERS.values().iterator();
+		while ((idleAppendersNumber > MAX_IDLE_APPENDERS) && iterator.hasNext())
+		{
+			final FileAppender appender = iterator.next();
+			if (appender.usersNumber == 0)
+			{
+				// Close the channel before another appender of the file can be created
+				appender.close();
+				iterator.remove();
+				--idleAppendersNumber;
+			}
+		}
+	}
+
+	/**
+	 * Closes the appender of the file denoted by the specified pathname, if
+	 * any, so that the file can be deleted or moved (its channel is reopened,
+	 * creating the file again, when the next lines are appended), and removes
+	 * it if it is idle.
+	 * <p>
+	 * @param pathname the pathname of the file
+	 */
+	public static void closeFile(final String pathname)
+	{
+		final String canonicalPathname = getCanonicalPathname(pathname);
+		synchronized (APPENDERS)
+		{
+			final FileAppender appender = APPENDERS.get(canonicalPathname);
+			if (appender != null)
+			{
+				appender.close();
+				if (appender.usersNumber == 0)
+				{
+					APPENDERS.remove(canonicalPathname);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the canonical pathname of the specified pathname, or its
+	 * absolute pathname if it cannot be resolved.
+	 * <p>
+	 * @param pathname a pathname
+	 * <p>
+	 * @return the canonical pathname of {@code pathname}
+	 */
+	private static String getCanonicalPathname(final String pathname)
+	{
+		try
+		{
+			return new File(pathname).getCanonicalPath();
+		}
+		catch (final IOException ex)
+		{
+			return new File(pathname).getAbsolutePath();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S) / SETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the canonical pathname of the file
+	 */
+	public String getPathname()
+	{
+		return pathname;
+	}
+
+	/**
+	 * @return {@code true} if the lines are written to the file as soon as
+	 *         they are appended, {@code false} otherwise
+	 */
+	public boolean isAutoFlush()
+	{
+		return autoFlush;
+	}
+
+	/**
+	 * Sets whether the lines are written to the file as soon as they are
+	 * appended.
+	 * <p>
+	 * @param autoFlush the flag specifying whether the lines are written to
+	 *                  the file as soon as they are appended
+	 */
+	public void setAutoFlush(final boolean autoFlush)
+	{
+		this.autoFlush = autoFlush;
+	}
+
+	/**
+	 * @return the policy for synchronizing the file with the storage device
+	 */
+	public SyncPolicy getSyncPolicy()
+	{
+		return syncPolicy;
+	}
+
+	/**
+	 * Sets the policy for synchronizing the file with the storage device.
+	 * <p>
+	 * @param syncPolicy   the policy for synchronizing the file with the
+	 *                     storage device
+	 * @param syncInterval the minimum time between two synchronizations for
+	 *                     the policy {@link SyncPolicy#PERIODIC} (in
+	 *                     milliseconds)
+	 */
+	public void setSyncPolicy(final SyncPolicy syncPolicy, final long syncInterval)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(syncPolicy);
+		Arguments.requireNonNegative(syncInterval);
+		// Set the attribute(s)
+		this.syncPolicy = syncPolicy;
+		this.syncInterval = syncInterval * 1000000L;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// WRITE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Appends the specified line to the file, encoded with the default
+	 * character set.
+	 * <p>
+	 * @param line the line to be appended
+	 * <p>
+	 * @return {@code true} if {@code line} is appended, {@code false}
+	 *         otherwise
+	 */
+	public boolean writeLine(final String line)
+	{
+		return writeLine(line, Formats.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Appends the specified line to the file, encoded with the specified
+	 * character set. The line is buffered unless the appender flushes
+	 * automatically, and the file is synchronized according to the sync
+	 * policy.
+	 * <p>
+	 * @param line    the line to be appended
+	 * @param charset the character set of the file
+	 * <p>
+	 * @return {@code true} if {@code line} is appended, {@code false}
+	 *         otherwise
+	 */
+	public boolean writeLine(final String line, final Charset charset)
+	{
+		lock.lock();
+		try
+		{
+			final FileChannel channel = getChannel();
+			if (channel == null)
+			{
+				return false;
+			}
+			if (!encoder.charset().equals(charset))
+			{
+				encoder = charset.newEncoder();
+			}
+			encode(channel, line);
+			encode(channel, "\n");
+			if (autoFlush)
+			{
+				write(channel);
+			}
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return false;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		switch (syncPolicy)
+		{
+			case ALWAYS:
+				return sync();
+			case PERIODIC:
+				if (System.nanoTime() - lastSyncTime >= syncInterval)
+				{
+					return sync();
+				}
+				return true;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Writes the buffered lines to the file.
+	 * <p>
+	 * @return {@code true} if the buffered lines are written, {@code false}
+	 *         otherwise
+	 */
+	public boolean flush()
+	{
+		lock.lock();
+		try
+		{
+			if (channel != null)
+			{
+				write(channel);
+			}
+			return true;
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return false;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the buffered lines to the file and synchronizes it with the
+	 * storage device. If another writer is synchronizing the file, waits for
+	 * it and returns without synchronizing the file again if the lines of the
+	 * calling thread are committed meanwhile (group commit).
+	 * <p>
+	 * @return {@code true} if the lines appended so far are synchronized,
+	 *         {@code false} otherwise
+	 */
+	public boolean sync()
+	{
+		// Get the number of bytes to be synchronized
+		final long targetBytes;
+		lock.lock();
+		try
+		{
+			if (channel == null)
+			{
+				return true;
+			}
+			write(channel);
+			targetBytes = writtenBytes;
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return false;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		if (syncedBytes >= targetBytes)
+		{
+			return true;
+		}
+		// Synchronize the file (with the lines appended by the other writers meanwhile)
+		syncLock.lock();
+		try
+		{
+			if (syncedBytes >= targetBytes)
+			{
+				// Committed by another writer
+				return true;
+			}
+			final FileChannel channel;
+			final long committedBytes;
+			lock.lock();
+			try
+			{
+				channel = this.channel;
+				if (channel != null)
+				{
+					write(channel);
+				}
+				committedBytes = writtenBytes;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			if (channel != null)
+			{
+				channel.force(false);
+			}
+			syncedBytes = committedBytes;
+			lastSyncTime = System.nanoTime();
+			return true;
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return false;
+		}
+		finally
+		{
+			syncLock.unlock();
+		}
+	}
+
+	/**
+	 * Discards the buffered lines and truncates the file.
+	 * <p>
+	 * @return {@code true} if the file is truncated, {@code false} otherwise
+	 */
+	public boolean truncate()
+	{
+		lock.lock();
+		try
+		{
+			final FileChannel channel = getChannel();
+			if (channel == null)
+			{
+				return false;
+			}
+			buffer.clear();
+			channel.truncate(0L);
+			return true;
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return false;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the buffered lines to the file and closes the channel (it is
+	 * reopened when the next lines are appended).
+	 */
+	public void close()
+	{
+		if (syncPolicy != SyncPolicy.NEVER)
+		{
+			sync();
+		}
+		lock.lock();
+		try
+		{
+			if (channel != null)
+			{
+				try
+				{
+					write(channel);
+					channel.close();
+				}
+				catch (final IOException ex)
+				{
+					IOManager.printError(ex);
+				}
+				channel = null;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Encodes the specified string into the write buffer, writing the buffer
+	 * to the specified channel whenever it is full.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be written to
+	 * @param string  the {@link String} to be encoded
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void encode(final FileChannel channel, final String string)
+		throws IOException
+	{
+		final CharBuffer chars = CharBuffer.wrap(string);
+		while (true)
+		{
+			final CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow())
+			{
+				write(channel);
+			}
+			else
+			{
+				if (result.isError())
+				{
+					// Skip the malformed or unmappable characters
+					chars.position(chars.position() + result.length());
+					continue;
+				}
+				break;
+			}
+		}
+		encoder.reset();
+	}
+
+	/**
+	 * Writes the content of the write buffer to the specified channel.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be written to
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void write(final FileChannel channel)
+		throws IOException
+	{
+		buffer.flip();
+		writtenBytes += buffer.remaining();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Returns the channel to the file and opens it (creating the file and its
+	 * directories if required) if it is closed.
+	 * <p>
+	 * @return the channel to the file, or {@code null} if it cannot be opened
+	 */
+	private FileChannel getChannel()
+	{
+		if (channel == null)
+		{
+			final File parent = new File(pathname).getParentFile();
+			if ((parent == null) || FileHandler.createDirectories(parent.getPath()))
+			{
+				try
+				{
+					channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				}
+				catch (final IOException ex)
+				{
+					IOManager.printError(ex);
+				}
+			}
+		}
+		return channel;
+	}
+}
@@ -24,16 +24,14 @@
 package jeo.common.io;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.nio.charset.Charset;
+import java.util.stream.Stream;
 
 import jeo.common.util.Formats;
 import jeo.common.util.Strings;
@@ -45,7 +43,10 @@ public class FileHandler
 	////////////////////////////////////////////////////////////////////////////
 
 	private final String pathname;
-	private BufferedWriter writer;
+	/**
+	 * The appender of the file (or {@code null} if the writer is closed).
+	 */
+	private FileAppender appender;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -55,14 +56,14 @@ public class FileHandler
 	public FileHandler(final String pathname)
 	{
 		this.pathname = pathname;
-		this.writer = null;
+		this.appender = null;
 	}
 
 	public FileHandler(final File file)
 		throws IOException
 	{
 		this.pathname = file.getCanonicalPath();
-		this.writer = null;
+		this.appender = null;
 	}
 
 
@@ -292,6 +293,97 @@ public class FileHandler
 	}
 
 
+	/**
+	 * Returns a {@link Stream} of the lines of the file denoted by this
+	 * pathname, which is memory-mapped and decoded lazily. Closing the stream
+	 * closes the file.
+	 * <p>
+	 * @return a {@link Stream} of the lines of the file
+	 * <p>
+	 * @see MappedFile
+	 */
+	public Stream<CharSequence> lines()
+	{
+		return lines(pathname, Formats.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Returns a {@link Stream} of the lines of the file denoted by the
+	 * specified pathname, which is memory-mapped and decoded lazily. Closing
+	 * the stream closes the file.
+	 * <p>
+	 * @param pathname the pathname of the file to be read from
+	 * <p>
+	 * @return a {@link Stream} of the lines of the file
+	 * <p>
+	 * @see MappedFile
+	 */
+	public static Stream<CharSequence> lines(final String pathname)
+	{
+		return lines(pathname, Formats.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Returns a {@link Stream} of the lines of the file denoted by the
+	 * specified pathname, which is memory-mapped and decoded lazily. Closing
+	 * the stream closes the file.
+	 * <p>
+	 * @param pathname the pathname of the file to be read from
+	 * @param charset  the character set of the file to be read from
+	 * <p>
+	 * @return a {@link Stream} of the lines of the file (empty if there is a
+	 *         problem)
+	 * <p>
+	 * @see MappedFile
+	 */
+	public static Stream<CharSequence> lines(final String pathname, final Charset charset)
+	{
+		try
+		{
+			return new MappedFile(pathname, charset).lines();
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
+		return Stream.empty();
+	}
+
+	/**
+	 * Returns the number of lines of the file denoted by this pathname without
+	 * decoding it.
+	 * <p>
+	 * @return the number of lines of the file
+	 */
+	public long countLines()
+	{
+		return countLines(pathname, Formats.DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Returns the number of lines of the file denoted by the specified pathname
+	 * without decoding it.
+	 * <p>
+	 * @param pathname the pathname of the file to be read from
+	 * @param charset  the character set of the file to be read from
+	 * <p>
+	 * @return the number of lines of the file, or {@code -1} if there is a
+	 *         problem
+	 */
+	public static long countLines(final String pathname, final Charset charset)
+	{
+		try (final MappedFile file = new MappedFile(pathname, charset))
+		{
+			return file.countLines();
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
+		return -1L;
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// WRITE
 	////////////////////////////////////////////////////////////////////////////
@@ -326,20 +418,19 @@ public class FileHandler
 
 	/**
 	 * Initializes this writer.
-	 * <p>
-	 * @throws FileNotFoundException
 	 */
 	public void initWriter()
-		throws FileNotFoundException
 	{
-		if (writer == null)
+		if (appender == null)
 		{
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pathname)));
+			appender = FileAppender.acquire(pathname);
 		}
 	}
 
 	/**
-	 * Writes the specified string in the file denoted by this pathname.
+	 * Writes the specified string in the file denoted by this pathname. The
+	 * line is buffered by the {@link FileAppender} of the file until it is
+	 * flushed or until this writer is closed.
 	 * <p>
 	 * @param string  the {@link String} to be written
 	 * @param append  option specifying how the file is opened
@@ -350,23 +441,28 @@ public class FileHandler
 	 */
 	public boolean writeLine(final String string, final boolean append, final Charset charset)
 	{
-		try
+		if (appender == null)
 		{
 			// Initialize this writer
 			initWriter();
-			// Append string to the file
-			writer.write(string + "\n");
-			return true;
-		}
-		catch (final FileNotFoundException ex)
-		{
-			IOManager.printError(ex);
-		}
-		catch (final IOException ex)
-		{
-			IOManager.printError(ex);
+			if (!append && !appender.truncate())
+			{
+				return false;
+			}
 		}
-		return false;
+		// Append string to the file
+		return appender.writeLine(string, charset);
+	}
+
+	/**
+	 * Writes the buffered lines of this writer in the file.
+	 * <p>
+	 * @return {@code true} if the buffered lines are written in the file,
+	 *         {@code false} otherwise
+	 */
+	public boolean flush()
+	{
+		return (appender == null) || appender.flush();
 	}
 
 	/**
@@ -374,22 +470,15 @@ public class FileHandler
 	 */
 	public void closeWriter()
 	{
-		try
+		if (appender != null)
 		{
-			if (writer != null)
-			{
-				writer.close();
-			}
-			else
-			{
-				IOManager.printWarning("The writer of '" + pathname + "' has already been closed");
-			}
+			appender.release();
 		}
-		catch (final IOException ex)
+		else
 		{
-			IOManager.printWarning(ex);
+			IOManager.printWarning("The writer of '" + pathname + "' has already been closed");
 		}
-		writer = null;
+		appender = null;
 	}
 
 	/**
@@ -406,42 +495,19 @@ public class FileHandler
 	 */
 	public static boolean writeLine(final String string, final String pathname, final boolean append, final Charset charset)
 	{
-		// Flag
-		boolean success = false;
-		// File writer
-		BufferedWriter writer = null;
+		final FileAppender appender = FileAppender.acquire(pathname);
 		try
 		{
-			// Create a new file writer
-			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pathname, append), charset));
-			// Append string to the file
-			writer.write(string + "\n");
-			success = true;
-		}
-		catch (final FileNotFoundException ex)
-		{
-			IOManager.printError(ex);
-		}
-		catch (final IOException ex)
-		{
-			IOManager.printError(ex);
+			if (!append && !appender.truncate())
+			{
+				return false;
+			}
+			return appender.writeLine(string, charset) && appender.flush();
 		}
 		finally
 		{
-			// Close the file writer
-			if (writer != null)
-			{
-				try
-				{
-					writer.close();
-				}
-				catch (final IOException ex)
-				{
-					IOManager.printError(ex);
-				}
-			}
+			appender.release();
 		}
-		return success;
 	}
 
 
@@ -585,7 +651,11 @@ public class FileHandler
 						}
 					}
 				}
-				// Attempt to delete it
+				// Attempt to delete it (closing the appender of the file first)
+				if (file.isFile())
+				{
+					FileAppender.closeFile(file.getPath());
+				}
 				success = file.delete();
 				if (!success)
 				{
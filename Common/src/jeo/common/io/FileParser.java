@@ -23,17 +23,48 @@
  */
 package jeo.common.io;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
+import jeo.common.structure.DataTable;
 import jeo.common.structure.ExtendedList;
 import jeo.common.structure.Table;
 import jeo.common.util.Arguments;
+import jeo.common.util.Formats;
 import jeo.common.util.Strings;
 
 public class FileParser
 {
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The minimum size of the chunks parsed in parallel (in bytes).
+	 */
+	public static volatile long MIN_CHUNK_SIZE = 1L << 22;
+
+	/**
+	 * The indexes of the results of the scan of a chunk.
+	 */
+	private static final int QUOTES_PARITY = 0;
+	private static final int EVEN_LINE_FEED = 1;
+	private static final int ODD_LINE_FEED = 2;
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTOR(S)
 	////////////////////////////////////////////////////////////////////////////
@@ -74,13 +105,443 @@ public class FileParser
 	}
 
 
+	/**
+	 * Parses the CSV file denoted by the specified path row per row, without
+	 * loading the whole file in memory, and visits the rows with the specified
+	 * visitor.
+	 * <p>
+	 * @param filePath  the path of the file to be parsed
+	 * @param separator the separator of the fields
+	 * @param visitor   the {@link Consumer} visiting the rows
+	 * <p>
+	 * @return the number of visited rows, or {@code -1} if there is a problem
+	 */
+	public static long parseCSV(final String filePath, final char separator, final Consumer<String[]> visitor)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(visitor);
+		// Process
+		try (final CSVReader reader = new CSVReader(filePath, separator))
+		{
+			String[] row;
+			while ((row = reader.readRow()) != null)
+			{
+				visitor.accept(row);
+			}
+			return reader.getRowCount();
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
+		return -1L;
+	}
+
+
+	/**
+	 * Parses the CSV file denoted by the specified path row per row into a
+	 * {@link DataTable} storing each column in a primitive array of the type
+	 * inferred from its values.
+	 * <p>
+	 * @param filePath  the path of the file to be parsed
+	 * @param hasHeader the flag specifying whether the first row contains the
+	 *                  names of the columns
+	 * <p>
+	 * @return a {@link DataTable} containing the content of the CSV file, or
+	 *         {@code null} if the file is empty or if there is a problem
+	 */
+	public static DataTable parseCSVAsDataTable(final String filePath, final boolean hasHeader)
+	{
+		final Character separator = detectSeparator(filePath, new ExtendedList<Character>(Arrays.asList(',', ';', '\t')));
+		if (separator == null)
+		{
+			return null;
+		}
+		final DataTable.Builder builder = new DataTable.Builder(hasHeader);
+		if (parseCSV(filePath, separator, builder) < 0L)
+		{
+			return null;
+		}
+		return builder.build();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// PARALLEL CSV
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Parses the CSV file denoted by the specified path in parallel and returns
+	 * a table containing its content.
+	 * <p>
+	 * @param <T>       the type of the result table
+	 * @param filePath  the path of the file to be parsed
+	 * @param separator the separator of the fields
+	 * @param c         the class of the result table
+	 * <p>
+	 * @return a table containing the content of the CSV file, or {@code null}
+	 *         if the file is empty or if there is a problem
+	 * <p>
+	 * @see #parseCSVInParallel(String, char)
+	 */
+	public static <T> Table<T> parseCSVInParallel(final String filePath, final char separator, final Class<T> c)
+		throws ClassCastException
+	{
+		final List<String[]> rows = parseCSVInParallel(filePath, separator);
+		if ((rows == null) || rows.isEmpty())
+		{
+			return null;
+		}
+		final int columnsNumber = rows.get(0).length;
+		final Table<T> result = new Table<T>(c, rows.size(), columnsNumber);
+		int rowIndex = 0;
+		for (final String[] row : rows)
+		{
+			if (row.length >= columnsNumber)
+			{
+				result.setRow(rowIndex, row);
+				++rowIndex;
+			}
+		}
+		// Resize the table if there are any blank rows or blank columns
+		result.resize();
+		return result;
+	}
+
+	/**
+	 * Parses the CSV file denoted by the specified path in parallel and returns
+	 * its columns, i.e. the element {@code [j][i]} is the field of the column
+	 * {@code j} in the row {@code i}. The rows that do not have enough fields
+	 * are skipped and the fields in excess are ignored.
+	 * <p>
+	 * @param filePath  the path of the file to be parsed
+	 * @param separator the separator of the fields
+	 * <p>
+	 * @return the columns of the CSV file, or {@code null} if the file is empty
+	 *         or if there is a problem
+	 * <p>
+	 * @see #parseCSVInParallel(String, char)
+	 */
+	public static String[][] parseCSVColumnsInParallel(final String filePath, final char separator)
+	{
+		final List<String[]> rows = parseCSVInParallel(filePath, separator);
+		if ((rows == null) || rows.isEmpty())
+		{
+			return null;
+		}
+		final int columnsNumber = rows.get(0).length;
+		int rowsNumber = 0;
+		for (final String[] row : rows)
+		{
+			if (row.length >= columnsNumber)
+			{
+				++rowsNumber;
+			}
+		}
+		final String[][] columns = new String[columnsNumber][rowsNumber];
+		int rowIndex = 0;
+		for (final String[] row : rows)
+		{
+			if (row.length >= columnsNumber)
+			{
+				for (int j = 0; j < columnsNumber; ++j)
+				{
+					columns[j][rowIndex] = row[j];
+				}
+				++rowIndex;
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * Parses the CSV file denoted by the specified path in parallel and returns
+	 * its rows in their original order. The file is split into chunks at the
+	 * line breaks that are not enclosed in quotes (which are located by a
+	 * parallel pre-pass counting the quotes of each chunk) and the chunks are
+	 * parsed concurrently by {@link CSVReader} in the common
+	 * {@link ForkJoinPool}. The character set of the file must encode the
+	 * quotes and the line feeds in single bytes (e.g. UTF-8 or ISO-8859-1)
+	 * and the fields must be quoted as specified in RFC 4180.
+	 * <p>
+	 * @param filePath  the path of the file to be parsed
+	 * @param separator the separator of the fields
+	 * <p>
+	 * @return the rows of the CSV file, or {@code null} if there is a problem
+	 */
+	public static List<String[]> parseCSVInParallel(final String filePath, final char separator)
+	{
+		return parseCSVInParallel(filePath, separator, Formats.DEFAULT_CHARSET, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parses the CSV file denoted by the specified path in parallel in the
+	 * specified {@link ForkJoinPool} and returns its rows in their original
+	 * order.
+	 * <p>
+	 * @param filePath  the path of the file to be parsed
+	 * @param separator the separator of the fields
+	 * @param charset   the character set of the file
+	 * @param pool      the {@link ForkJoinPool} parsing the chunks
+	 * <p>
+	 * @return the rows of the CSV file, or {@code null} if there is a problem
+	 * <p>
+	 * @see #parseCSVInParallel(String, char)
+	 */
+	public static List<String[]> parseCSVInParallel(final String filePath, final char separator, final Charset charset, final ForkJoinPool pool)
+	{
+		return parseCSVInParallel(filePath, separator, charset, pool, MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Parses the CSV file denoted by the specified path in parallel in the
+	 * specified {@link ForkJoinPool} with chunks of at least the specified size
+	 * and returns its rows in their original order.
+	 * <p>
+	 * @param filePath     the path of the file to be parsed
+	 * @param separator    the separator of the fields
+	 * @param charset      the character set of the file
+	 * @param pool         the {@link ForkJoinPool} parsing the chunks
+	 * @param minChunkSize the minimum size of the chunks (in bytes)
+	 * <p>
+	 * @return the rows of the CSV file, or {@code null} if there is a problem
+	 */
+	static List<String[]> parseCSVInParallel(final String filePath, final char separator, final Charset charset, final ForkJoinPool pool, final long minChunkSize)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(charset);
+		Arguments.requireNonNull(pool);
+		// Process
+		try (final FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ))
+		{
+			// Split the file into chunks at the line breaks
+			final long[] boundaries = split(channel, pool, minChunkSize);
+			final int chunksNumber = boundaries.length - 1;
+			// Parse the chunks
+			final List<ForkJoinTask<List<String[]>>> tasks = new ArrayList<ForkJoinTask<List<String[]>>>(chunksNumber);
+			for (int i = 0; i < chunksNumber; ++i)
+			{
+				final long start = boundaries[i], end = boundaries[i + 1];
+				tasks.add(pool.submit(() -> parseChunk(channel, start, end, separator, charset)));
+			}
+			// Merge the rows of the chunks in order
+			final List<List<String[]>> chunks = new ArrayList<List<String[]>>(chunksNumber);
+			int rowsNumber = 0;
+			for (final ForkJoinTask<List<String[]>> task : tasks)
+			{
+				final List<String[]> chunk = task.join();
+				chunks.add(chunk);
+				rowsNumber += chunk.size();
+			}
+			final List<String[]> rows = new ExtendedList<String[]>(rowsNumber);
+			for (final List<String[]> chunk : chunks)
+			{
+				rows.addAll(chunk);
+			}
+			validate(rows);
+			return rows;
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
+		catch (final UncheckedIOException ex)
+		{
+			IOManager.printError(ex.getCause());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the boundaries of the chunks of the specified channel: the first
+	 * one is {@code 0}, the last one is the size of the channel and the others
+	 * follow the line breaks that are not enclosed in quotes.
+	 * <p>
+	 * @param channel      the {@link FileChannel} to be split
+	 * @param pool         the {@link ForkJoinPool} scanning the chunks
+	 * @param minChunkSize the minimum size of the chunks (in bytes)
+	 * <p>
+	 * @return the boundaries of the chunks of {@code channel}
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static long[] split(final FileChannel channel, final ForkJoinPool pool, final long minChunkSize)
+		throws IOException
+	{
+		// Split the file into chunks of equal size
+		final long size = channel.size();
+		final int chunksNumber = (int) Math.max(1L, Math.min(4L * pool.getParallelism(), size / Math.max(1L, minChunkSize)));
+		final long[] starts = new long[chunksNumber + 1];
+		for (int i = 0; i <= chunksNumber; ++i)
+		{
+			starts[i] = size * i / chunksNumber;
+		}
+		// Scan the chunks
+		final List<ForkJoinTask<long[]>> tasks = new ArrayList<ForkJoinTask<long[]>>(chunksNumber);
+		for (int i = 1; i < chunksNumber; ++i)
+		{
+			final long start = starts[i], end = starts[i + 1];
+			tasks.add(pool.submit(() -> scanChunk(channel, start, end)));
+		}
+		final List<long[]> scans = new ArrayList<long[]>(chunksNumber);
+		scans.add(chunksNumber > 1 ? scanChunk(channel, starts[0], starts[1]) : null);
+		for (final ForkJoinTask<long[]> task : tasks)
+		{
+			scans.add(task.join());
+		}
+		// Move the boundaries after the first line breaks that are not enclosed in quotes
+		final List<Long> boundaries = new ExtendedList<Long>(chunksNumber + 1);
+		boundaries.add(0L);
+		boolean isQuoted = false;
+		for (int i = 1; i < chunksNumber; ++i)
+		{
+			isQuoted ^= scans.get(i - 1)[QUOTES_PARITY] != 0L;
+			final long lineFeed = scans.get(i)[isQuoted ? ODD_LINE_FEED : EVEN_LINE_FEED];
+			if ((lineFeed >= 0L) && (lineFeed + 1L < size))
+			{
+				boundaries.add(lineFeed + 1L);
+			}
+		}
+		boundaries.add(size);
+		final long[] result = new long[boundaries.size()];
+		for (int i = 0; i < result.length; ++i)
+		{
+			result[i] = boundaries.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Scans the specified range of the specified channel and returns the
+	 * parity of the number of quotes in the range, the position of the first
+	 * line feed preceded by an even number of quotes in the range and the
+	 * position of the first line feed preceded by an odd number of quotes in
+	 * the range (or {@code -1} if there is none).
+	 * <p>
+	 * @param channel the {@link FileChannel} to be scanned
+	 * @param start   the start of the range (inclusive, in bytes)
+	 * @param end     the end of the range (exclusive, in bytes)
+	 * <p>
+	 * @return the parity of the number of quotes and the positions of the
+	 *         first line feeds after an even and an odd number of quotes
+	 */
+	private static long[] scanChunk(final FileChannel channel, final long start, final long end)
+	{
+		final long[] scan = new long[]
+		{
+			0L, -1L, -1L
+		};
+		final ByteBuffer buffer = ByteBuffer.allocate(CSVReader.DEFAULT_CHUNK_SIZE);
+		int parity = 0;
+		long position = start;
+		try
+		{
+			while (position < end)
+			{
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - position));
+				final int count = channel.read(buffer, position);
+				if (count < 0)
+				{
+					break;
+				}
+				final byte[] bytes = buffer.array();
+				for (int i = 0; i < count; ++i)
+				{
+					if (bytes[i] == CSVReader.QUOTE)
+					{
+						parity ^= 1;
+					}
+					else if ((bytes[i] == '\n') && (scan[EVEN_LINE_FEED + parity] < 0L))
+					{
+						scan[EVEN_LINE_FEED + parity] = position + i;
+					}
+				}
+				position += count;
+			}
+		}
+		catch (final IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+		scan[QUOTES_PARITY] = parity;
+		return scan;
+	}
+
+	/**
+	 * Parses the rows in the specified range of the specified channel.
+	 * <p>
+	 * @param channel   the {@link FileChannel} to be parsed
+	 * @param start     the start of the range (inclusive, in bytes)
+	 * @param end       the end of the range (exclusive, in bytes)
+	 * @param separator the separator of the fields
+	 * @param charset   the character set of the file
+	 * <p>
+	 * @return the rows in the range
+	 */
+	private static List<String[]> parseChunk(final FileChannel channel, final long start, final long end, final char separator, final Charset charset)
+	{
+		final List<String[]> rows = new ExtendedList<String[]>();
+		try (final CSVReader reader = new CSVReader(channel, start, end, separator, charset))
+		{
+			String[] row;
+			while ((row = reader.readRow()) != null)
+			{
+				rows.add(row);
+			}
+		}
+		catch (final IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+		return rows;
+	}
+
+	/**
+	 * Prints the warnings and the errors about the specified rows, as
+	 * {@link #parseFile} does.
+	 * <p>
+	 * @param rows the rows to be validated
+	 */
+	private static void validate(final List<String[]> rows)
+	{
+		if (rows.isEmpty())
+		{
+			return;
+		}
+		final int columnsNumber = rows.get(0).length;
+		final int rowsNumber = rows.size();
+		for (int lineNumber = 1; lineNumber < rowsNumber; ++lineNumber)
+		{
+			final String[] values = rows.get(lineNumber);
+			if (values.length < columnsNumber)
+			{
+				if ((values.length == 1) && Strings.EMPTY.equals(values[0]))
+				{
+					IOManager.printWarning("At line " + lineNumber + ", there is no element " + Arguments.expectedButFound(columnsNumber, 0));
+				}
+				else
+				{
+					IOManager.printError("At line " + lineNumber + ", there are not enough elements " + Arguments.expectedButFound(columnsNumber, values.length));
+				}
+			}
+			else if (values.length > columnsNumber)
+			{
+				IOManager.printWarning("At line " + lineNumber + ", there are too many elements " + Arguments.expectedButFound(columnsNumber, values.length));
+			}
+		}
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// FILE
 	////////////////////////////////////////////////////////////////////////////
 
 	/**
 	 * Parses the file denoted by the specified path and returns a table
-	 * containing its content.
+	 * containing its content. The file is streamed by a {@link CSVReader} and
+	 * the separator is the first one of the specified list occurring in the
+	 * first line.
 	 * <p>
 	 * @param <T>        the type of the result table
 	 * @param filePath   the path of the file to be parsed
@@ -94,52 +555,27 @@ public class FileParser
 	{
 		// Initialize the result
 		Table<T> result = null;
-		// Get the number of separators
-		final int separatorsNumber = separators.size();
-		// Get the content of the file
-		final FileContent fileContent = FileHandler.read(filePath);
-		final Scanner scanner = new Scanner(fileContent.getContent());
-		// Parse the file and store the content in result
-		if (scanner.hasNextLine())
-		{
-			// Look for the separator (if the file contains different separators, take the first one in the list)
-			int occurrencesNumber, columnsNumber = 0, separatorIndex = -1;
-			String currentLine = scanner.nextLine();
-			boolean severalSeparators = false;
-			for (int i = 0; i < separatorsNumber; ++i)
-			{
-				occurrencesNumber = Strings.getAllIndexes(currentLine, separators.get(i)).size();
-				if (occurrencesNumber > 0)
-				{
-					if (columnsNumber == 0)
-					{
-						columnsNumber = occurrencesNumber;
-						separatorIndex = i;
-					}
-					else
-					{
-						severalSeparators = true;
-						break;
-					}
-				}
-			}
-			++columnsNumber;
-			final String separator = String.valueOf(separators.get(separatorIndex));
-			if (severalSeparators)
+		// Look for the separator
+		final Character separator = detectSeparator(filePath, separators);
+		if (separator == null)
+		{
+			return result;
+		}
+		// Parse the file row per row
+		try (final CSVReader reader = new CSVReader(filePath, separator))
+		{
+			String[] values = reader.readRow();
+			if (values == null)
 			{
-				IOManager.printWarning("The file contains different separators ('" + separator + "' will be used)");
+				return result;
 			}
-			// Scan the file line per line and store the values in result
-			result = new Table<T>(c, fileContent.getLinesNumber(), columnsNumber);
-			int lineNumber = 0;
-			result.setRow(lineNumber, currentLine.split(separator));
-			++lineNumber;
-			String[] values;
-			while (scanner.hasNextLine())
+			final int columnsNumber = values.length;
+			final List<String[]> rows = new ExtendedList<String[]>();
+			rows.add(values);
+			int lineNumber = 1;
+			while ((values = reader.readRow()) != null)
 			{
-				currentLine = scanner.nextLine();
-				values = currentLine.split(separator);
-				if ((values == null) || (values.length == 0) || (values[0] == null) || Strings.EMPTY.equals(values[0]))
+				if ((values.length == 0) || (values[0] == null) || Strings.EMPTY.equals(values[0]))
 				{
 					IOManager.printWarning("At line " + lineNumber + ", there is no element " + Arguments.expectedButFound(columnsNumber, 0));
 				}
@@ -153,15 +589,72 @@ public class FileParser
 					{
 						IOManager.printWarning("At line " + lineNumber + ", there are too many elements " + Arguments.expectedButFound(columnsNumber, values.length));
 					}
-					result.setRow(lineNumber, values);
+					rows.add(values);
 					++lineNumber;
 				}
 			}
-			// Close the scanner
-			scanner.close();
+			// Store the rows in result
+			result = new Table<T>(c, rows.size(), columnsNumber);
+			for (int i = 0; i < rows.size(); ++i)
+			{
+				result.setRow(i, rows.get(i));
+			}
 			// Resize the table if there are any blank rows or blank columns
 			result.resize();
 		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
 		return result;
 	}
+
+	/**
+	 * Returns the separator of the file denoted by the specified path, i.e. the
+	 * first separator of the specified list occurring in the first line.
+	 * <p>
+	 * @param filePath   the path of the file
+	 * @param separators the list of separators to be used
+	 * <p>
+	 * @return the separator of the file, or {@code null} if the file is empty
+	 *         or if there is a problem
+	 */
+	public static Character detectSeparator(final String filePath, final List<Character> separators)
+	{
+		// Check the argument(s)
+		Arguments.requireNonEmpty(separators);
+		// Process
+		final String firstLine;
+		try (final BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), Formats.DEFAULT_CHARSET))
+		{
+			firstLine = reader.readLine();
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			return null;
+		}
+		if (firstLine == null)
+		{
+			return null;
+		}
+		// Look for the separator (if the file contains different separators, take the first one in the list)
+		Character separator = null;
+		for (final Character candidate : separators)
+		{
+			if (firstLine.indexOf(candidate) >= 0)
+			{
+				if (separator == null)
+				{
+					separator = candidate;
+				}
+				else
+				{
+					IOManager.printWarning("The file contains different separators ('" + separator + "' will be used)");
+					break;
+				}
+			}
+		}
+		return separator != null ? separator : separators.get(0);
+	}
 }
@@ -84,4 +84,17 @@ public abstract class IOHandler
 				break;
 		}
 	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// FLUSH
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Waits until all the printed objects are written (does nothing if they
+	 * are written synchronously).
+	 */
+	public void flush()
+	{
+	}
 }
@@ -23,6 +23,8 @@
  */
 package jeo.common.io;
 
+import java.util.function.Supplier;
+
 import jeo.common.io.Messages.IOType;
 import jeo.common.io.Messages.SeverityLevel;
 import jeo.common.util.Arguments;
@@ -38,7 +40,12 @@ public class IOManager
 	/**
 	 * The flag for using the debug mode.
 	 */
-	public static boolean DEBUG_MODE = false;
+	public static volatile boolean DEBUG_MODE = false;
+	/**
+	 * The minimum severity level of the messages to be printed (the results
+	 * are always printed and the debug messages also require the debug mode).
+	 */
+	private static volatile SeverityLevel threshold = SeverityLevel.DEBUG;
 	/**
 	 * The flag for using the logs.
 	 */
@@ -46,6 +53,11 @@ public class IOManager
 	public static final int EXIT_SUCCESS = 0;
 	public static final int EXIT_FAILURE = 1;
 	public static final ConsoleHandler consoleHandler = new ConsoleHandler();
+	/**
+	 * The handler printing in the console: {@link #consoleHandler} or a
+	 * decorator of it (e.g. an {@link AsyncIOHandler}).
+	 */
+	private static volatile IOHandler consoleOutput = consoleHandler;
 	public static final LogsHandler logsHandler = new LogsHandler();
 	/**
 	 * The maximum number of points in the progress bar.
@@ -66,10 +78,108 @@ public class IOManager
 	}
 
 
+	////////////////////////////////////////////////////////////////////////////
+	// SEVERITY LEVEL
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the minimum severity level of the messages to be printed.
+	 * <p>
+	 * @return the minimum severity level of the messages to be printed
+	 */
+	public static SeverityLevel getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Sets the minimum severity level of the messages to be printed.
+	 * <p>
+	 * @param level the minimum severity level of the messages to be printed
+	 */
+	public static void setThreshold(final SeverityLevel level)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(level);
+		// Process
+		threshold = level;
+	}
+
+	/**
+	 * Tests whether the messages with the specified severity level are
+	 * printed.
+	 * <p>
+	 * @param level a {@link SeverityLevel}
+	 * <p>
+	 * @return {@code true} if the messages with {@code level} are printed,
+	 *         {@code false} otherwise
+	 */
+	public static boolean isEnabled(final SeverityLevel level)
+	{
+		switch (level)
+		{
+			case RESULT:
+				// The results are the output of the programs, not diagnostics
+				return true;
+			case DEBUG:
+				return isDebugEnabled();
+			default:
+				return level.isAtLeast(threshold);
+		}
+	}
+
+	/**
+	 * Tests whether the debug messages are printed, i.e. whether the debug
+	 * mode is used and the threshold is {@link SeverityLevel#DEBUG}. Use it to
+	 * avoid building the debug messages.
+	 * <p>
+	 * @return {@code true} if the debug messages are printed, {@code false}
+	 *         otherwise
+	 */
+	public static boolean isDebugEnabled()
+	{
+		return DEBUG_MODE && (threshold == SeverityLevel.DEBUG);
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// PRINT
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Prints the specified message in the console and writes it in the log.
+	 * <p>
+	 * @param message the {@link Message} to be printed
+	 * <p>
+	 * @return {@code message}
+	 */
+	private static Message printMessage(final Message message)
+	{
+		consoleOutput.printLine(message);
+		if (USE_LOGS)
+		{
+			logsHandler.printLine(message);
+		}
+		return message;
+	}
+
+	/**
+	 * Prints the specified message in the console and writes it in the log if
+	 * its severity level is enabled.
+	 * <p>
+	 * @param message the {@link Message} to be printed
+	 * <p>
+	 * @return {@code message} (even if its severity level is disabled)
+	 */
+	private static Message printIfEnabled(final Message message)
+	{
+		if (isEnabled(message.getLevel()))
+		{
+			printMessage(message);
+		}
+		return message;
+	}
+
 	/**
 	 * Prints the specified object in the console and writes it in the log.
 	 * <p>
@@ -78,7 +188,7 @@ public class IOManager
 	 */
 	public static void print(final Object object, final boolean error)
 	{
-		consoleHandler.print(object, error);
+		consoleOutput.print(object, error);
 		if (USE_LOGS)
 		{
 			logsHandler.print(object, error);
@@ -93,7 +203,7 @@ public class IOManager
 	 */
 	public static void printLine(final Object object, final boolean error)
 	{
-		consoleHandler.printLine(object, error);
+		consoleOutput.printLine(object, error);
 		if (USE_LOGS)
 		{
 			logsHandler.printLine(object, error);
@@ -113,7 +223,7 @@ public class IOManager
 	 */
 	public static void printInput()
 	{
-		consoleHandler.print(Messages.createInputMessage(), false);
+		consoleOutput.print(Messages.createInputMessage(), false);
 	}
 
 	/**
@@ -124,6 +234,7 @@ public class IOManager
 	 */
 	public static String getInputLine()
 	{
+		consoleOutput.flush();
 		final Message message = Messages.createInputMessage(consoleHandler.getInputLine());
 		if (USE_LOGS)
 		{
@@ -134,7 +245,8 @@ public class IOManager
 
 	/**
 	 * Prints the specified object in the console and writes it in the log
-	 * indicating the severity level {@link SeverityLevel.RESULT}.
+	 * indicating the severity level {@link SeverityLevel.RESULT} (which is
+	 * never disabled).
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
@@ -142,13 +254,7 @@ public class IOManager
 	 */
 	public static Message printResult(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.RESULT, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
-		{
-			logsHandler.printLine(message);
-		}
-		return message;
+		return printMessage(Messages.createOutputMessage(SeverityLevel.RESULT, object));
 	}
 
 	/**
@@ -157,17 +263,36 @@ public class IOManager
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified object
+	 * @return a {@link Message} containing the specified object, or
+	 *         {@code null} if the severity level is disabled
 	 */
 	public static Message printInfo(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.INFO, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
+		if (!isEnabled(SeverityLevel.INFO))
 		{
-			logsHandler.printLine(message);
+			return null;
 		}
-		return message;
+		return printMessage(Messages.createOutputMessage(SeverityLevel.INFO, object));
+	}
+
+	/**
+	 * Prints the object provided by the specified supplier in the console and
+	 * writes it in the log indicating the severity level
+	 * {@link SeverityLevel.INFO}. The supplier is not called if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param supplier the {@link Supplier} of the {@link Object} to be printed
+	 * <p>
+	 * @return a {@link Message} containing the supplied object, or
+	 *         {@code null} if the severity level is disabled
+	 */
+	public static Message printInfo(final Supplier<?> supplier)
+	{
+		if (!isEnabled(SeverityLevel.INFO))
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.INFO, supplier.get()));
 	}
 
 	/**
@@ -176,17 +301,36 @@ public class IOManager
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified object
+	 * @return a {@link Message} containing the specified object, or
+	 *         {@code null} if the severity level is disabled
 	 */
 	public static Message printTest(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.TEST, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
+		if (!isEnabled(SeverityLevel.TEST))
 		{
-			logsHandler.printLine(message);
+			return null;
 		}
-		return message;
+		return printMessage(Messages.createOutputMessage(SeverityLevel.TEST, object));
+	}
+
+	/**
+	 * Prints the object provided by the specified supplier in the console and
+	 * writes it in the log indicating the severity level
+	 * {@link SeverityLevel.TEST}. The supplier is not called if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param supplier the {@link Supplier} of the {@link Object} to be printed
+	 * <p>
+	 * @return a {@link Message} containing the supplied object, or
+	 *         {@code null} if the severity level is disabled
+	 */
+	public static Message printTest(final Supplier<?> supplier)
+	{
+		if (!isEnabled(SeverityLevel.TEST))
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.TEST, supplier.get()));
 	}
 
 	/**
@@ -195,17 +339,109 @@ public class IOManager
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified object
+	 * @return a {@link Message} containing the specified object, or
+	 *         {@code null} if the severity level is disabled
 	 */
 	public static Message printDebug(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.DEBUG, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
+		if (!isDebugEnabled())
 		{
-			logsHandler.printLine(message);
+			return null;
 		}
-		return message;
+		return printMessage(Messages.createOutputMessage(SeverityLevel.DEBUG, object));
+	}
+
+	/**
+	 * Prints the object provided by the specified supplier in the console and
+	 * writes it in the log indicating the severity level
+	 * {@link SeverityLevel.DEBUG}. The supplier is not called if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param supplier the {@link Supplier} of the {@link Object} to be printed
+	 * <p>
+	 * @return a {@link Message} containing the supplied object, or
+	 *         {@code null} if the severity level is disabled
+	 */
+	public static Message printDebug(final Supplier<?> supplier)
+	{
+		if (!isDebugEnabled())
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.DEBUG, supplier.get()));
+	}
+
+	/**
+	 * Prints the message built from the specified pattern and argument in the
+	 * console and writes it in the log indicating the severity level
+	 * {@link SeverityLevel.DEBUG}. The message is not built if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param pattern  the pattern in which each {@code {}} is replaced by an
+	 *                 argument
+	 * @param argument the argument
+	 * <p>
+	 * @return the built {@link Message}, or {@code null} if the severity level
+	 *         is disabled
+	 * <p>
+	 * @see Messages#format(String, Object...)
+	 */
+	public static Message printDebug(final String pattern, final Object argument)
+	{
+		if (!isDebugEnabled())
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.DEBUG, Messages.format(pattern, argument)));
+	}
+
+	/**
+	 * Prints the message built from the specified pattern and arguments in
+	 * the console and writes it in the log indicating the severity level
+	 * {@link SeverityLevel.DEBUG}. The message is not built if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param pattern        the pattern in which each {@code {}} is replaced
+	 *                       by an argument
+	 * @param firstArgument  the first argument
+	 * @param secondArgument the second argument
+	 * <p>
+	 * @return the built {@link Message}, or {@code null} if the severity level
+	 *         is disabled
+	 * <p>
+	 * @see Messages#format(String, Object...)
+	 */
+	public static Message printDebug(final String pattern, final Object firstArgument, final Object secondArgument)
+	{
+		if (!isDebugEnabled())
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.DEBUG, Messages.format(pattern, firstArgument, secondArgument)));
+	}
+
+	/**
+	 * Prints the message built from the specified pattern and arguments in
+	 * the console and writes it in the log indicating the severity level
+	 * {@link SeverityLevel.DEBUG}. The message is not built if the severity
+	 * level is disabled.
+	 * <p>
+	 * @param pattern   the pattern in which each {@code {}} is replaced by an
+	 *                  argument
+	 * @param arguments the arguments
+	 * <p>
+	 * @return the built {@link Message}, or {@code null} if the severity level
+	 *         is disabled
+	 * <p>
+	 * @see Messages#format(String, Object...)
+	 */
+	public static Message printDebug(final String pattern, final Object... arguments)
+	{
+		if (!isDebugEnabled())
+		{
+			return null;
+		}
+		return printMessage(Messages.createOutputMessage(SeverityLevel.DEBUG, Messages.format(pattern, arguments)));
 	}
 
 	/**
@@ -214,17 +450,27 @@ public class IOManager
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified object
+	 * @return a {@link Message} containing the specified object (even if the
+	 *         severity level is disabled)
 	 */
 	public static Message printWarning(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.WARNING, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
-		{
-			logsHandler.printLine(message);
-		}
-		return message;
+		return printIfEnabled(Messages.createOutputMessage(SeverityLevel.WARNING, object));
+	}
+
+	/**
+	 * Prints the object provided by the specified supplier in the console and
+	 * writes it in the log indicating the severity level
+	 * {@link SeverityLevel.WARNING} if this severity level is enabled.
+	 * <p>
+	 * @param supplier the {@link Supplier} of the {@link Object} to be printed
+	 * <p>
+	 * @return a {@link Message} containing the supplied object (even if the
+	 *         severity level is disabled)
+	 */
+	public static Message printWarning(final Supplier<?> supplier)
+	{
+		return printIfEnabled(Messages.createOutputMessage(SeverityLevel.WARNING, supplier.get()));
 	}
 
 	/**
@@ -234,17 +480,12 @@ public class IOManager
 	 * <p>
 	 * @param exception the {@link Exception} with the message to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified exception
+	 * @return a {@link Message} containing the specified exception (even if
+	 *         the severity level is disabled)
 	 */
 	public static Message printError(final Exception exception)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.ERROR, exception.getMessage());
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
-		{
-			logsHandler.printLine(message);
-		}
-		return message;
+		return printIfEnabled(Messages.createOutputMessage(SeverityLevel.ERROR, exception.getMessage()));
 	}
 
 	/**
@@ -253,17 +494,12 @@ public class IOManager
 	 * <p>
 	 * @param object the {@link Object} to be printed
 	 * <p>
-	 * @return a {@link Message} containing the specified object
+	 * @return a {@link Message} containing the specified object (even if the
+	 *         severity level is disabled)
 	 */
 	public static Message printError(final Object object)
 	{
-		final Message message = Messages.createOutputMessage(SeverityLevel.ERROR, object);
-		consoleHandler.printLine(message);
-		if (USE_LOGS)
-		{
-			logsHandler.printLine(message);
-		}
-		return message;
+		return printIfEnabled(Messages.createOutputMessage(SeverityLevel.ERROR, object));
 	}
 
 	/**
@@ -278,10 +514,13 @@ public class IOManager
 	public static Message printFatalError(final Exception exception)
 	{
 		final Message message = Messages.createOutputMessage(SeverityLevel.CRITICAL, exception.getMessage());
-		consoleHandler.printLine(message);
+		consoleOutput.printLine(message);
+		consoleOutput.flush();
 		if (USE_LOGS)
 		{
 			logsHandler.printLine(message);
+			// Write the logs since the shutdown hooks are not run
+			logsHandler.flush();
 		}
 		Runtime.getRuntime().halt(EXIT_FAILURE);
 		return message;
@@ -298,10 +537,13 @@ public class IOManager
 	public static Message printFatalError(final Object object)
 	{
 		final Message message = Messages.createOutputMessage(SeverityLevel.CRITICAL, object);
-		consoleHandler.printLine(message);
+		consoleOutput.printLine(message);
+		consoleOutput.flush();
 		if (USE_LOGS)
 		{
 			logsHandler.printLine(message);
+			// Write the logs since the shutdown hooks are not run
+			logsHandler.flush();
 		}
 		Runtime.getRuntime().halt(EXIT_FAILURE);
 		return message;
@@ -340,7 +582,7 @@ public class IOManager
 	public static void startLoadingBar()
 	{
 		barPointsNumber = 0;
-		consoleHandler.print("[", false);
+		consoleOutput.print("[", false);
 	}
 
 	/**
@@ -359,7 +601,7 @@ public class IOManager
 	 */
 	public static void stopLoadingBar()
 	{
-		consoleHandler.printLine("]", false);
+		consoleOutput.printLine("]", false);
 	}
 
 	/**
@@ -413,7 +655,7 @@ public class IOManager
 	{
 		if (n > 0)
 		{
-			consoleHandler.print(Strings.repeat(string, n), false);
+			consoleOutput.print(Strings.repeat(string, n), false);
 		}
 	}
 
@@ -432,6 +674,34 @@ public class IOManager
 		consoleHandler.setConsole(console);
 	}
 
+	/**
+	 * Returns the handler printing in the console.
+	 * <p>
+	 * @return the handler printing in the console
+	 */
+	public static IOHandler getConsoleOutput()
+	{
+		return consoleOutput;
+	}
+
+	/**
+	 * Sets the handler printing in the console, which is usually a decorator
+	 * of {@link #consoleHandler} such as an {@link AsyncIOHandler} (so that
+	 * the printing threads never wait for a slow console). The objects printed
+	 * by the previous handler are written before.
+	 * <p>
+	 * @param handler the {@link IOHandler} printing in the console
+	 */
+	public static void setConsoleOutput(final IOHandler handler)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(handler);
+		// Process
+		final IOHandler previousHandler = consoleOutput;
+		consoleOutput = handler;
+		previousHandler.flush();
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// CLEAR
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import jeo.common.io.Messages.SeverityLevel;
+import jeo.common.util.Arguments;
+
+/**
+ * The reader of the structured logs written in binary by {@link LogsHandler}.
+ * The log is memory-mapped and only the timestamp and the severity level of
+ * each record are read to filter it: the other records are skipped using
+ * their length.
+ * <p>
+ * @see LogRecord
+ */
+public class LogReader
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The size of the mapped regions of the log (in bytes).
+	 */
+	public static volatile int WINDOW_SIZE = 1 << 28;
+
+	/**
+	 * The pathname of the log.
+	 */
+	private final String pathname;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public LogReader(final String pathname)
+	{
+		this.pathname = pathname;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// READ
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns all the records of the log.
+	 * <p>
+	 * @return all the records of the log
+	 */
+	public List<LogRecord> read()
+	{
+		return read(EnumSet.allOf(SeverityLevel.class), Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the records of the log having one of the specified severity
+	 * levels and a timestamp in the specified range.
+	 * <p>
+	 * @param levels   the severity levels of the records to be returned
+	 * @param fromTime the lower bound of the timestamps (inclusive, in
+	 *                 milliseconds since the epoch)
+	 * @param toTime   the upper bound of the timestamps (inclusive, in
+	 *                 milliseconds since the epoch)
+	 * <p>
+	 * @return the filtered records of the log
+	 */
+	public List<LogRecord> read(final Set<SeverityLevel> levels, final long fromTime, final long toTime)
+	{
+		final List<LogRecord> records = new ArrayList<LogRecord>();
+		read(levels, fromTime, toTime, records::add);
+		return records;
+	}
+
+	/**
+	 * Visits the records of the log having one of the specified severity
+	 * levels and a timestamp in the specified range.
+	 * <p>
+	 * @param levels   the severity levels of the records to be visited
+	 * @param fromTime the lower bound of the timestamps (inclusive, in
+	 *                 milliseconds since the epoch)
+	 * @param toTime   the upper bound of the timestamps (inclusive, in
+	 *                 milliseconds since the epoch)
+	 * @param visitor  the {@link Consumer} visiting the filtered records
+	 * <p>
+	 * @return the number of visited records
+	 */
+	public long read(final Set<SeverityLevel> levels, final long fromTime, final long toTime, final Consumer<LogRecord> visitor)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(levels);
+		Arguments.requireNonNull(visitor);
+		// Process
+		final boolean[] isSelected = new boolean[SeverityLevel.values().length];
+		for (final SeverityLevel level : levels)
+		{
+			isSelected[level.ordinal()] = true;
+		}
+		long count = 0L;
+		try (final FileChannel channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ))
+		{
+			final long size = channel.size();
+			long windowStart = 0L;
+			MappedByteBuffer window = null;
+			long position = 0L;
+			while (position + Integer.BYTES <= size)
+			{
+				// Map the region containing the length of the record
+				if ((window == null) || (position + Integer.BYTES > windowStart + window.limit()))
+				{
+					windowStart = position;
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+				}
+				final int length = window.getInt((int) (position - windowStart));
+				if ((length < LogRecord.HEADER_SIZE - Integer.BYTES) || (length > Integer.MAX_VALUE - Integer.BYTES))
+				{
+					IOManager.printError("The record at position " + position + " of the log '" + pathname + "' has an invalid length " + length);
+					break;
+				}
+				final int recordSize = Integer.BYTES + length;
+				if (position + recordSize > size)
+				{
+					IOManager.printWarning("The last record of the log '" + pathname + "' is incomplete (" + (size - position) + " bytes available instead of " + recordSize + ")");
+					break;
+				}
+				// Map the region containing the whole record
+				if (position + recordSize > windowStart + window.limit())
+				{
+					windowStart = position;
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(Math.max(WINDOW_SIZE, recordSize), size - windowStart));
+				}
+				if (!LogRecord.isValid(window, (int) (position - windowStart), recordSize))
+				{
+					IOManager.printError("The record at position " + position + " of the log '" + pathname + "' is corrupted");
+					break;
+				}
+				// Filter the record by reading its header only
+				final int index = (int) (position - windowStart);
+				final long timestamp = window.getLong(index + LogRecord.TIMESTAMP_OFFSET);
+				if (isSelected[window.get(index + LogRecord.LEVEL_OFFSET)] && (timestamp >= fromTime) && (timestamp <= toTime))
+				{
+					visitor.accept(LogRecord.decode(window, index));
+					++count;
+				}
+				position += recordSize;
+			}
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+		}
+		return count;
+	}
+}
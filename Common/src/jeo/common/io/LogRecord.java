@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import jeo.common.io.Messages.IOType;
+import jeo.common.io.Messages.SeverityLevel;
+import jeo.common.util.Formats;
+import jeo.common.util.Strings;
+
+/**
+ * The structured log record written in binary by {@link LogsHandler} and read
+ * by {@link LogReader}. A record is encoded as follows (in big-endian order):
+ * <ul>
+ * <li>the length of the rest of the record ({@code int}),</li>
+ * <li>the timestamp in milliseconds since the epoch ({@code long}),</li>
+ * <li>the ordinal of the {@link SeverityLevel} ({@code byte}),</li>
+ * <li>the ordinal of the {@link IOType} ({@code byte}),</li>
+ * <li>the class name, the method name and the content, each encoded in UTF-8
+ * and preceded by its length ({@code short}, {@code short} and {@code int}
+ * respectively).</li>
+ * </ul>
+ */
+public class LogRecord
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The offset of the timestamp in a record.
+	 */
+	public static final int TIMESTAMP_OFFSET = 4;
+	/**
+	 * The offset of the severity level in a record.
+	 */
+	public static final int LEVEL_OFFSET = 12;
+	/**
+	 * The offset of the I/O type in a record.
+	 */
+	public static final int TYPE_OFFSET = 13;
+	/**
+	 * The size of the fixed part of a record (i.e. without the strings).
+	 */
+	public static final int HEADER_SIZE = 22;
+
+	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(Formats.DEFAULT_DATE_TIME_FORMAT);
+	private static final SeverityLevel[] LEVELS = SeverityLevel.values();
+	private static final IOType[] TYPES = IOType.values();
+
+	private final long timestamp;
+	private final SeverityLevel level;
+	private final IOType type;
+	private final String className;
+	private final String methodName;
+	private final String content;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public LogRecord(final Message message)
+	{
+		this(message.getTimestamp(), message.getLevel(), message.getType(), message.getClassName(), message.getMethodName(), message.getContent());
+	}
+
+	public LogRecord(final long timestamp, final SeverityLevel level, final IOType type, final String className, final String methodName, final String content)
+	{
+		this.timestamp = timestamp;
+		this.level = level;
+		this.type = type;
+		this.className = className != null ? className : Strings.EMPTY;
+		this.methodName = methodName != null ? methodName : Strings.EMPTY;
+		this.content = content != null ? content : Strings.EMPTY;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the timestamp (in milliseconds since the epoch)
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+	/**
+	 * @return the level
+	 */
+	public SeverityLevel getLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * @return the type
+	 */
+	public IOType getType()
+	{
+		return type;
+	}
+
+	/**
+	 * @return the simple name of the class of the caller
+	 */
+	public String getClassName()
+	{
+		return className;
+	}
+
+	/**
+	 * @return the name of the method of the caller
+	 */
+	public String getMethodName()
+	{
+		return methodName;
+	}
+
+	/**
+	 * @return the content
+	 */
+	public String getContent()
+	{
+		return content;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ENCODING
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the binary encoding of this record.
+	 * <p>
+	 * @return the binary encoding of this record
+	 */
+	public byte[] encode()
+	{
+		final byte[] classBytes = truncate(className.getBytes(Formats.UTF8_CHARSET));
+		final byte[] methodBytes = truncate(methodName.getBytes(Formats.UTF8_CHARSET));
+		final byte[] contentBytes = content.getBytes(Formats.UTF8_CHARSET);
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + classBytes.length + methodBytes.length + contentBytes.length);
+		buffer.putInt(buffer.capacity() - Integer.BYTES);
+		buffer.putLong(timestamp);
+		buffer.put((byte) level.ordinal());
+		buffer.put((byte) type.ordinal());
+		buffer.putShort((short) classBytes.length).put(classBytes);
+		buffer.putShort((short) methodBytes.length).put(methodBytes);
+		buffer.putInt(contentBytes.length).put(contentBytes);
+		return buffer.array();
+	}
+
+	/**
+	 * Returns the specified bytes truncated to the maximum length of a short
+	 * string.
+	 * <p>
+	 * @param bytes the bytes to be truncated
+	 * <p>
+	 * @return the truncated bytes
+	 */
+	private static byte[] truncate(final byte[] bytes)
+	{
+		if (bytes.length > Short.MAX_VALUE)
+		{
+			final byte[] truncatedBytes = new byte[Short.MAX_VALUE];
+			System.arraycopy(bytes, 0, truncatedBytes, 0, truncatedBytes.length);
+			return truncatedBytes;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Tests whether the record starting at the specified index of the
+	 * specified buffer is well-formed, i.e. whether its severity level and I/O
+	 * type are known and the lengths of its strings add up to its size.
+	 * <p>
+	 * @param buffer     the {@link ByteBuffer} containing the record
+	 * @param index      the index of the record in {@code buffer}
+	 * @param recordSize the size of the record (length prefix included)
+	 * <p>
+	 * @return {@code true} if the record is well-formed, {@code false}
+	 *         otherwise
+	 */
+	public static boolean isValid(final ByteBuffer buffer, final int index, final int recordSize)
+	{
+		if (recordSize < HEADER_SIZE)
+		{
+			return false;
+		}
+		final byte level = buffer.get(index + LEVEL_OFFSET);
+		final byte type = buffer.get(index + TYPE_OFFSET);
+		if ((level < 0) || (level >= LEVELS.length) || (type < 0) || (type >= TYPES.length))
+		{
+			return false;
+		}
+		int position = index + TYPE_OFFSET + 1;
+		final int classLength = buffer.getShort(position);
+		position += Short.BYTES + Math.max(classLength, 0);
+		if ((classLength < 0) || (position + Short.BYTES > index + recordSize))
+		{
+			return false;
+		}
+		final int methodLength = buffer.getShort(position);
+		position += Short.BYTES + Math.max(methodLength, 0);
+		if ((methodLength < 0) || (position + Integer.BYTES > index + recordSize))
+		{
+			return false;
+		}
+		final int contentLength = buffer.getInt(position);
+		return (contentLength >= 0) && ((long) position + Integer.BYTES + contentLength == (long) index + recordSize);
+	}
+
+	/**
+	 * Decodes the record starting at the specified index of the specified
+	 * buffer.
+	 * <p>
+	 * @param buffer the {@link ByteBuffer} containing the record
+	 * @param index  the index of the record in {@code buffer}
+	 * <p>
+	 * @return the decoded record
+	 */
+	public static LogRecord decode(final ByteBuffer buffer, final int index)
+	{
+		final long timestamp = buffer.getLong(index + TIMESTAMP_OFFSET);
+		final SeverityLevel level = LEVELS[buffer.get(index + LEVEL_OFFSET)];
+		final IOType type = TYPES[buffer.get(index + TYPE_OFFSET)];
+		int position = index + TYPE_OFFSET + 1;
+		final int classLength = buffer.getShort(position);
+		position += Short.BYTES;
+		final String className = decodeString(buffer, position, classLength);
+		position += classLength;
+		final int methodLength = buffer.getShort(position);
+		position += Short.BYTES;
+		final String methodName = decodeString(buffer, position, methodLength);
+		position += methodLength;
+		final int contentLength = buffer.getInt(position);
+		position += Integer.BYTES;
+		final String content = decodeString(buffer, position, contentLength);
+		return new LogRecord(timestamp, level, type, className, methodName, content);
+	}
+
+	private static String decodeString(final ByteBuffer buffer, final int index, final int length)
+	{
+		final byte[] bytes = new byte[length];
+		for (int i = 0; i < length; ++i)
+		{
+			bytes[i] = buffer.get(index + i);
+		}
+		return new String(bytes, Formats.UTF8_CHARSET);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// OBJECT
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = Strings.createBuffer();
+		builder.append('[').append(DATE_TIME_FORMATTER.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()))).append(']');
+		builder.append('[').append(type).append(']');
+		builder.append('[').append(level).append(']');
+		if (className.length() > 0)
+		{
+			builder.append('[').append(className).append(']');
+		}
+		if (methodName.length() > 0)
+		{
+			builder.append('[').append(methodName).append(']');
+		}
+		return String.valueOf(builder.append(' ').append(content));
+	}
+}
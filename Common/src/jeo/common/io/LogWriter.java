@@ -0,0 +1,845 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import jeo.common.io.Messages.SeverityLevel;
+import jeo.common.util.Arguments;
+import jeo.common.util.Formats;
+
+/**
+ * The asynchronous writer appending lines or binary records to a file. The
+ * entries are published in a bounded lock-free ring buffer and a single writer
+ * thread batches them into a large buffer written to a persistent
+ * {@link FileChannel}.
+ */
+public class LogWriter
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The default number of entries in the ring buffer.
+	 */
+	public static volatile int DEFAULT_CAPACITY = 8192;
+	/**
+	 * The default size of the write buffer (in bytes).
+	 */
+	public static volatile int DEFAULT_BUFFER_SIZE = 65536;
+	/**
+	 * The default maximum time between two writes of the buffered lines (in
+	 * milliseconds).
+	 */
+	public static volatile long DEFAULT_FLUSH_INTERVAL = 100L;
+	/**
+	 * The default minimum time between two synchronizations of the file with
+	 * the storage device for the policy {@link SyncPolicy#PERIODIC} (in
+	 * milliseconds).
+	 */
+	public static volatile long DEFAULT_SYNC_INTERVAL = 1000L;
+	/**
+	 * The time during which a producer waits for free space in the ring
+	 * buffer (in nanoseconds).
+	 */
+	private static final long BACK_OFF_TIME = 10000L;
+	/**
+	 * The format of the timestamps in the names of the archived segments.
+	 */
+	private static final String ARCHIVE_DATE_FORMAT = "yyyyMMdd-HHmmss-SSS";
+	/**
+	 * The extension of the compressed archived segments.
+	 */
+	private static final String COMPRESSED_EXTENSION = ".gz";
+	/**
+	 * The background thread compressing and deleting the archived segments.
+	 */
+	private static final ExecutorService ARCHIVER = Executors.newSingleThreadExecutor(runnable ->
+	{
+		final Thread thread = new Thread(runnable, "LogArchiver");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The pathname of the file.
+	 */
+	private final String pathname;
+	/**
+	 * The ring buffer containing the entries to be written (the lines as
+	 * {@link String} and the binary records as {@code byte[]}).
+	 */
+	private final AtomicReferenceArray<Object> entries;
+	private final int capacity;
+	private final int mask;
+	/**
+	 * The sequence number of the next entry to be published.
+	 */
+	private final AtomicLong tail = new AtomicLong(0L);
+	/**
+	 * The sequence number of the next entry to be consumed by the writer
+	 * thread.
+	 */
+	private volatile long head = 0L;
+	/**
+	 * The sequence number of the next entry to be written to the file.
+	 */
+	private volatile long writtenSequence = 0L;
+	/**
+	 * The maximum time between two writes of the buffered lines (in
+	 * nanoseconds).
+	 */
+	private final long flushInterval;
+	/**
+	 * The policy for synchronizing the file with the storage device.
+	 */
+	private final SyncPolicy syncPolicy;
+	/**
+	 * The minimum time between two synchronizations for the policy
+	 * {@link SyncPolicy#PERIODIC} (in nanoseconds).
+	 */
+	private final long syncInterval;
+	private long lastSyncTime = System.nanoTime();
+	/**
+	 * The policy for rolling the file over to a new segment.
+	 */
+	private final RollingPolicy rollingPolicy;
+	/**
+	 * The size (in bytes), the start time (in milliseconds since the epoch)
+	 * and the number of entries of the current segment.
+	 */
+	private long segmentSize = 0L;
+	private long segmentStartTime = 0L;
+	private long segmentCount = 0L;
+	/**
+	 * The persistent channel to the file (or {@code null} if it is closed).
+	 */
+	private final Lock channelLock = new ReentrantLock();
+	private FileChannel channel = null;
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder = Formats.DEFAULT_CHARSET.newEncoder();
+	/**
+	 * The writer thread (or {@code null} if it is not started).
+	 */
+	private volatile Thread writer = null;
+	private final Object flushMonitor = new Object();
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public LogWriter(final String pathname)
+	{
+		this(pathname, DEFAULT_CAPACITY, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL, SyncPolicy.NEVER, DEFAULT_SYNC_INTERVAL, RollingPolicy.NONE);
+	}
+
+	public LogWriter(final String pathname, final long flushInterval, final SyncPolicy syncPolicy)
+	{
+		this(pathname, DEFAULT_CAPACITY, DEFAULT_BUFFER_SIZE, flushInterval, syncPolicy, DEFAULT_SYNC_INTERVAL, RollingPolicy.NONE);
+	}
+
+	public LogWriter(final String pathname, final long flushInterval, final SyncPolicy syncPolicy, final RollingPolicy rollingPolicy)
+	{
+		this(pathname, DEFAULT_CAPACITY, DEFAULT_BUFFER_SIZE, flushInterval, syncPolicy, DEFAULT_SYNC_INTERVAL, rollingPolicy);
+	}
+
+	/**
+	 * Constructs a {@link LogWriter} appending lines or binary records to the
+	 * file denoted by the specified pathname.
+	 * <p>
+	 * @param pathname      the pathname of the file to be written to
+	 * @param capacity      the number of entries in the ring buffer (rounded up
+	 *                      to a power of two)
+	 * @param bufferSize    the size of the write buffer (in bytes)
+	 * @param flushInterval the maximum time between two writes of the
+	 *                      buffered lines (in milliseconds)
+	 * @param syncPolicy    the policy for synchronizing the file with the
+	 *                      storage device
+	 * @param syncInterval  the minimum time between two synchronizations for
+	 *                      the policy {@link SyncPolicy#PERIODIC} (in
+	 *                      milliseconds)
+	 * @param rollingPolicy the policy for rolling the file over to a new
+	 *                      segment
+	 */
+	public LogWriter(final String pathname, final int capacity, final int bufferSize, final long flushInterval, final SyncPolicy syncPolicy, final long syncInterval, final RollingPolicy rollingPolicy)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(pathname);
+		Arguments.requirePositive(capacity);
+		Arguments.requirePositive(bufferSize);
+		Arguments.requirePositive(flushInterval);
+		Arguments.requireNonNull(syncPolicy);
+		Arguments.requireNonNegative(syncInterval);
+		Arguments.requireNonNull(rollingPolicy);
+		// Process
+		this.pathname = pathname;
+		this.capacity = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+		mask = this.capacity - 1;
+		entries = new AtomicReferenceArray<Object>(this.capacity);
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.flushInterval = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+		this.syncPolicy = syncPolicy;
+		this.syncInterval = TimeUnit.MILLISECONDS.toNanos(syncInterval);
+		this.rollingPolicy = rollingPolicy;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the pathname of the file
+	 */
+	public String getPathname()
+	{
+		return pathname;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// WRITE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Publishes the specified line to be appended to the file. If the ring
+	 * buffer is full, waits for the writer thread to free some space.
+	 * <p>
+	 * @param line the line {@link String} to be written
+	 */
+	public void writeLine(final String line)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(line);
+		// Process
+		publish(line);
+	}
+
+	/**
+	 * Publishes the specified binary record to be appended to the file as it
+	 * is. If the ring buffer is full, waits for the writer thread to free some
+	 * space.
+	 * <p>
+	 * @param record the binary record to be written
+	 */
+	public void writeRecord(final byte[] record)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(record);
+		// Process
+		publish(record);
+	}
+
+	/**
+	 * Publishes the specified entry in the ring buffer.
+	 * <p>
+	 * @param entry the entry to be written
+	 */
+	private void publish(final Object entry)
+	{
+		final Thread writer = getWriter();
+		// Claim a sequence number
+		long sequence;
+		while (true)
+		{
+			sequence = tail.get();
+			if (sequence - head >= capacity)
+			{
+				// The ring buffer is full: wake up the writer thread and wait
+				LockSupport.unpark(writer);
+				LockSupport.parkNanos(BACK_OFF_TIME);
+			}
+			else if (tail.compareAndSet(sequence, sequence + 1L))
+			{
+				break;
+			}
+		}
+		// Publish the entry
+		entries.set((int) sequence & mask, entry);
+		if (sequence - head == capacity >>> 1)
+		{
+			// The ring buffer is half full: wake up the writer thread
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Waits until all the lines published before this call are written to the
+	 * file.
+	 */
+	public void flush()
+	{
+		final Thread writer = this.writer;
+		if ((writer == null) || (writer == Thread.currentThread()))
+		{
+			return;
+		}
+		final long sequence = tail.get();
+		synchronized (flushMonitor)
+		{
+			while (writtenSequence < sequence)
+			{
+				LockSupport.unpark(writer);
+				try
+				{
+					flushMonitor.wait(TimeUnit.NANOSECONDS.toMillis(flushInterval) + 1L);
+				}
+				catch (final InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes all the published lines and closes the channel to the file. The
+	 * channel is reopened when the next lines are written.
+	 */
+	public void close()
+	{
+		flush();
+		channelLock.lock();
+		try
+		{
+			if (channel != null)
+			{
+				try
+				{
+					if (syncPolicy != SyncPolicy.NEVER)
+					{
+						channel.force(false);
+					}
+					channel.close();
+				}
+				catch (final IOException ex)
+				{
+					printError(ex);
+				}
+				channel = null;
+			}
+		}
+		finally
+		{
+			channelLock.unlock();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// WRITER THREAD
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the writer thread and starts it if it is not started.
+	 * <p>
+	 * @return the writer thread
+	 */
+	private Thread getWriter()
+	{
+		Thread writer = this.writer;
+		if (writer == null)
+		{
+			synchronized (this)
+			{
+				writer = this.writer;
+				if (writer == null)
+				{
+					writer = new Thread(this::run, "LogWriter-" + new File(pathname).getName());
+					writer.setDaemon(true);
+					writer.start();
+					// Write the remaining lines at shutdown
+					Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+					this.writer = writer;
+				}
+			}
+		}
+		return writer;
+	}
+
+	/**
+	 * Writes the published lines in batches, waiting at most the flush
+	 * interval between two batches. The errors are reported without stopping
+	 * the thread, which would block the producers once the ring buffer is
+	 * full.
+	 */
+	private void run()
+	{
+		while (true)
+		{
+			if (head == tail.get())
+			{
+				LockSupport.parkNanos(this, flushInterval);
+			}
+			writeBatch();
+		}
+	}
+
+	/**
+	 * Consumes the published lines and writes them to the file.
+	 */
+	private void writeBatch()
+	{
+		final long end = tail.get();
+		if (head == end)
+		{
+			return;
+		}
+		channelLock.lock();
+		try
+		{
+			FileChannel channel = getChannel();
+			long sequence = head;
+			while (sequence < end)
+			{
+				// Wait for the entry to be published
+				final int index = (int) sequence & mask;
+				final Object entry = entries.get(index);
+				if (entry == null)
+				{
+					Thread.yield();
+					continue;
+				}
+				entries.lazySet(index, null);
+				head = ++sequence;
+				if ((channel != null) && rollingPolicy.isEnabled())
+				{
+					// Roll the file over if the current segment is complete
+					final long entrySize = entry instanceof byte[] ? ((byte[]) entry).length : ((String) entry).length() + 1L;
+					if (rollingPolicy.isTriggered(segmentSize + buffer.position(), segmentStartTime, segmentCount, entrySize, System.currentTimeMillis()))
+					{
+						channel = rollOver(channel);
+					}
+				}
+				if (channel != null)
+				{
+					++segmentCount;
+					final int entryStart = buffer.position();
+					final long entrySegmentSize = segmentSize;
+					try
+					{
+						if (entry instanceof byte[])
+						{
+							put(channel, (byte[]) entry);
+						}
+						else
+						{
+							encode(channel, (String) entry);
+							encode(channel, "\n");
+						}
+					}
+					catch (final RuntimeException ex)
+					{
+						// Drop the failing entry only: discard its bytes in the buffer
+						// (all of them if the buffer has not been written meanwhile)
+						printError(ex);
+						buffer.position(segmentSize == entrySegmentSize ? entryStart : 0);
+						encoder.reset();
+						--segmentCount;
+					}
+				}
+			}
+			if (channel != null)
+			{
+				write(channel);
+				sync(channel);
+			}
+		}
+		catch (final IOException ex)
+		{
+			printError(ex);
+			buffer.clear();
+			closeChannel();
+		}
+		catch (final RuntimeException ex)
+		{
+			// Keep the writer thread alive: the buffered entries of the batch
+			// are dropped and the next entries are written by the next batch
+			printError(ex);
+			printError(buffer.position() + " buffered bytes of the log '" + pathname + "' have been dropped");
+			buffer.clear();
+			encoder.reset();
+		}
+		finally
+		{
+			channelLock.unlock();
+		}
+		// Notify the threads waiting for the lines to be written
+		synchronized (flushMonitor)
+		{
+			writtenSequence = head;
+			flushMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Encodes the specified string into the write buffer, writing the buffer
+	 * to the specified channel whenever it is full.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be written to
+	 * @param string  the {@link String} to be encoded
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void encode(final FileChannel channel, final String string)
+		throws IOException
+	{
+		final CharBuffer chars = CharBuffer.wrap(string);
+		while (true)
+		{
+			final CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow())
+			{
+				write(channel);
+			}
+			else
+			{
+				if (result.isError())
+				{
+					// Skip the malformed or unmappable characters
+					chars.position(chars.position() + result.length());
+					continue;
+				}
+				break;
+			}
+		}
+		encoder.reset();
+	}
+
+	/**
+	 * Puts the specified bytes into the write buffer, writing the buffer to
+	 * the specified channel whenever it is full.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be written to
+	 * @param bytes   the bytes to be put
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void put(final FileChannel channel, final byte[] bytes)
+		throws IOException
+	{
+		int offset = 0;
+		while (offset < bytes.length)
+		{
+			if (!buffer.hasRemaining())
+			{
+				write(channel);
+			}
+			final int length = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Writes the content of the write buffer to the specified channel.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be written to
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void write(final FileChannel channel)
+		throws IOException
+	{
+		buffer.flip();
+		segmentSize += buffer.remaining();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Synchronizes the file with the storage device according to the sync
+	 * policy.
+	 * <p>
+	 * @param channel the {@link FileChannel} to be synchronized
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void sync(final FileChannel channel)
+		throws IOException
+	{
+		switch (syncPolicy)
+		{
+			case ALWAYS:
+				channel.force(false);
+				break;
+			case PERIODIC:
+				final long time = System.nanoTime();
+				if (time - lastSyncTime >= syncInterval)
+				{
+					channel.force(false);
+					lastSyncTime = time;
+				}
+				break;
+			default:
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CHANNEL
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the channel to the file and opens it (creating the file and its
+	 * directories if required) if it is closed.
+	 * <p>
+	 * @return the channel to the file, or {@code null} if it cannot be opened
+	 */
+	private FileChannel getChannel()
+	{
+		if (channel == null)
+		{
+			final File parent = new File(pathname).getAbsoluteFile().getParentFile();
+			if ((parent == null) || FileHandler.createDirectories(parent.getPath()))
+			{
+				try
+				{
+					channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+					// Start a new segment
+					segmentSize = channel.size();
+					segmentStartTime = System.currentTimeMillis();
+					segmentCount = 0L;
+				}
+				catch (final IOException ex)
+				{
+					printError(ex);
+				}
+			}
+		}
+		return channel;
+	}
+
+	private void closeChannel()
+	{
+		if (channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			catch (final IOException ignored)
+			{
+			}
+			channel = null;
+		}
+	}
+
+	////////////////////////////////////////////////////////////////////////////
+	// ROLLING
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Writes the buffered entries to the specified channel, closes it, renames
+	 * the file to an archived segment to be compressed and deleted in the
+	 * background according to the rolling policy, and opens a new segment.
+	 * <p>
+	 * @param channel the {@link FileChannel} of the current segment
+	 * <p>
+	 * @return the channel to the new segment, or {@code null} if it cannot be
+	 *         opened
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private FileChannel rollOver(final FileChannel channel)
+		throws IOException
+	{
+		// Close the current segment
+		write(channel);
+		if (syncPolicy != SyncPolicy.NEVER)
+		{
+			channel.force(false);
+		}
+		closeChannel();
+		// Archive the current segment
+		final Path path = Paths.get(pathname);
+		final String prefix = pathname + "." + new SimpleDateFormat(ARCHIVE_DATE_FORMAT).format(new Date(segmentStartTime));
+		Path archive = Paths.get(prefix);
+		for (int i = 1; Files.exists(archive) || Files.exists(Paths.get(archive + COMPRESSED_EXTENSION)); ++i)
+		{
+			archive = Paths.get(prefix + "-" + i);
+		}
+		Files.move(path, archive, StandardCopyOption.ATOMIC_MOVE);
+		final Path archivedSegment = archive;
+		ARCHIVER.execute(() -> archive(archivedSegment));
+		// Open a new segment
+		return getChannel();
+	}
+
+	/**
+	 * Compresses the specified archived segment and deletes the oldest
+	 * archived segments according to the rolling policy.
+	 * <p>
+	 * @param archive the {@link Path} of the archived segment
+	 */
+	private void archive(final Path archive)
+	{
+		try
+		{
+			if (rollingPolicy.isCompressed())
+			{
+				final Path compressedArchive = Paths.get(archive + COMPRESSED_EXTENSION);
+				try (final InputStream input = Files.newInputStream(archive);
+					final OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressedArchive), DEFAULT_BUFFER_SIZE))
+				{
+					final byte[] bytes = new byte[DEFAULT_BUFFER_SIZE];
+					int length;
+					while ((length = input.read(bytes)) >= 0)
+					{
+						output.write(bytes, 0, length);
+					}
+				}
+				Files.delete(archive);
+			}
+			if (rollingPolicy.getMaxArchives() > 0)
+			{
+				deleteOldArchives();
+			}
+		}
+		catch (final IOException ex)
+		{
+			printError(ex);
+		}
+	}
+
+	/**
+	 * Deletes the oldest archived segments exceeding the maximum number of
+	 * archived segments to retain. Only the files named after the pathname,
+	 * the start time of the segment, an optional disambiguation index and an
+	 * optional compression extension are considered as archived segments.
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void deleteOldArchives()
+		throws IOException
+	{
+		final File file = new File(pathname).getAbsoluteFile();
+		final Pattern archivePattern = Pattern.compile(Pattern.quote(file.getName()) + "\\.(\\d{8}-\\d{6}-\\d{3})(?:-(\\d{1,18}))?(?:" + Pattern.quote(COMPRESSED_EXTENSION) + ")?");
+		final File[] files = file.getParentFile().listFiles();
+		if (files == null)
+		{
+			return;
+		}
+		// Sort the archived segments chronologically by start time and index
+		// (a segment being compressed may have both of its files)
+		final SortedMap<String, List<File>> archives = new TreeMap<String, List<File>>();
+		for (final File archive : files)
+		{
+			final Matcher matcher = archivePattern.matcher(archive.getName());
+			if (matcher.matches())
+			{
+				final long index = matcher.group(2) == null ? 0L : Long.parseLong(matcher.group(2));
+				final String key = matcher.group(1) + String.format("-%019d", index);
+				archives.computeIfAbsent(key, k -> new ArrayList<File>(2)).add(archive);
+			}
+		}
+		while (archives.size() > rollingPolicy.getMaxArchives())
+		{
+			final String oldestKey = archives.firstKey();
+			for (final File archive : archives.remove(oldestKey))
+			{
+				Files.deleteIfExists(archive.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Prints the specified exception in the console only (printing it in the
+	 * logs could fail again).
+	 * <p>
+	 * @param exception the {@link Exception} to be printed
+	 */
+	private static void printError(final Exception exception)
+	{
+		IOManager.consoleHandler.printLine(new Message(exception));
+	}
+
+	/**
+	 * Prints the specified error message in the console only (printing it in
+	 * the logs could fail again).
+	 * <p>
+	 * @param message the error message to be printed
+	 */
+	private static void printError(final String message)
+	{
+		IOManager.consoleHandler.printLine(Messages.createOutputMessage(SeverityLevel.ERROR, message));
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SYNC POLICY
+	////////////////////////////////////////////////////////////////////////////
+
+	public enum SyncPolicy
+	{
+		/**
+		 * The file is never explicitly synchronized with the storage device.
+		 */
+		NEVER,
+		/**
+		 * The file is synchronized at most once per sync interval.
+		 */
+		PERIODIC,
+		/**
+		 * The file is synchronized after each batch of lines.
+		 */
+		ALWAYS
+	}
+}
@@ -26,6 +26,9 @@ package jeo.common.io;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import jeo.common.io.LogWriter.SyncPolicy;
+import jeo.common.io.Messages.IOType;
+import jeo.common.io.Messages.SeverityLevel;
 import jeo.common.util.Arguments;
 import jeo.common.util.Strings;
 
@@ -37,18 +40,22 @@ public class LogsHandler
 	////////////////////////////////////////////////////////////////////////////
 
 	// The names of the logs
-	private static final String logName = "log.txt";
-	private static final String errorLogName = "log_error.txt";
+	private static final String logName = "log";
+	private static final String errorLogName = "log_error";
 	// The path to the logs
 	private final String logsPath;
+	// The format of the logs
+	private final LogFormat format;
 	// The log
 	private final Lock logLock = new ReentrantLock();
 	private final String logPath;
 	private final StringBuilder lineBuffer = Strings.createBuffer();
+	private final LogWriter logWriter;
 	// The error log
 	private final Lock errorLogLock = new ReentrantLock();
 	private final String errorLogPath;
 	private final StringBuilder errorLineBuffer = Strings.createBuffer();
+	private final LogWriter errorLogWriter;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -57,16 +64,45 @@ public class LogsHandler
 
 	public LogsHandler()
 	{
-		logsPath = FileHandler.getCurrentPath() + "\\logs";
-		logPath = getPath(logName);
-		errorLogPath = getPath(errorLogName);
+		this(FileHandler.getCurrentPath() + "\\logs");
 	}
 
 	public LogsHandler(final String logsPath)
+	{
+		this(logsPath, LogFormat.TEXT);
+	}
+
+	public LogsHandler(final String logsPath, final LogFormat format)
+	{
+		this(logsPath, format, LogWriter.DEFAULT_FLUSH_INTERVAL, SyncPolicy.NEVER);
+	}
+
+	public LogsHandler(final String logsPath, final LogFormat format, final long flushInterval, final SyncPolicy syncPolicy)
+	{
+		this(logsPath, format, flushInterval, syncPolicy, RollingPolicy.NONE);
+	}
+
+	/**
+	 * Constructs a {@link LogsHandler} writing the logs asynchronously in the
+	 * specified directory.
+	 * <p>
+	 * @param logsPath      the pathname of the directory of the logs
+	 * @param format        the format of the logs
+	 * @param flushInterval the maximum time between two writes of the
+	 *                      buffered lines (in milliseconds)
+	 * @param syncPolicy    the policy for synchronizing the logs with the
+	 *                      storage device
+	 * @param rollingPolicy the policy for rolling the logs over (in the
+	 *                      background, without blocking the callers)
+	 */
+	public LogsHandler(final String logsPath, final LogFormat format, final long flushInterval, final SyncPolicy syncPolicy, final RollingPolicy rollingPolicy)
 	{
 		this.logsPath = logsPath;
-		logPath = getPath(logName);
-		errorLogPath = getPath(errorLogName);
+		this.format = format;
+		logPath = getPath(logName + format.getExtension());
+		logWriter = new LogWriter(logPath, flushInterval, syncPolicy, rollingPolicy);
+		errorLogPath = getPath(errorLogName + format.getExtension());
+		errorLogWriter = new LogWriter(errorLogPath, flushInterval, syncPolicy, rollingPolicy);
 	}
 
 
@@ -74,6 +110,30 @@ public class LogsHandler
 	// GENERAL
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * @return the format of the logs
+	 */
+	public LogFormat getFormat()
+	{
+		return format;
+	}
+
+	/**
+	 * @return the pathname of the log
+	 */
+	public String getLogPath()
+	{
+		return logPath;
+	}
+
+	/**
+	 * @return the pathname of the error log
+	 */
+	public String getErrorLogPath()
+	{
+		return errorLogPath;
+	}
+
 	/**
 	 * Gets the pathname of the log denoted by the specified file name.
 	 * <p>
@@ -87,14 +147,27 @@ public class LogsHandler
 	}
 
 	/**
-	 * Creates all the directories of the logs pathname.
+	 * Returns the lock of the log with the specified type.
+	 * <p>
+	 * @param error the type of log
+	 * <p>
+	 * @return the lock of the log
+	 */
+	private Lock getLock(final boolean error)
+	{
+		return error ? errorLogLock : logLock;
+	}
+
+	/**
+	 * Returns the writer of the log with the specified type.
+	 * <p>
+	 * @param error the type of log
 	 * <p>
-	 * @return {@code true} if the directories are created, {@code false}
-	 *         otherwise
+	 * @return the writer of the log
 	 */
-	private boolean createDirectories()
+	private LogWriter getWriter(final boolean error)
 	{
-		return FileHandler.createDirectories(logsPath);
+		return error ? errorLogWriter : logWriter;
 	}
 
 
@@ -116,11 +189,23 @@ public class LogsHandler
 		// Check the argument(s)
 		Arguments.requireNonNull(object);
 		// Process
-		updateLogLine(object, error);
+		final Lock lock = getLock(error);
+		lock.lock();
+		try
+		{
+			updateLogLine(object, error);
+		}
+		finally
+		{
+			lock.unlock();
+		}
 	}
 
 	/**
-	 * Writes the specified object to the log with the specified type.
+	 * Writes the specified object to the log with the specified type. Note
+	 * that the line is written asynchronously by the writer of the log and
+	 * that, in the binary format, a {@link Message} is written as a structured
+	 * {@link LogRecord}.
 	 * <p>
 	 * @param object the {@link Object} to be written
 	 * @param error  the type of log to be written to
@@ -131,19 +216,23 @@ public class LogsHandler
 		// Check the argument(s)
 		Arguments.requireNonNull(object);
 		// Process
-		logLock.lock();
+		final Lock lock = getLock(error);
+		lock.lock();
 		try
 		{
-			if (createDirectories())
+			if ((format == LogFormat.BINARY) && (object instanceof Message) && (getLogLineLength(error) == 0))
+			{
+				getWriter(error).writeRecord(new LogRecord((Message) object).encode());
+			}
+			else
 			{
 				updateLogLine(object, error);
-				FileHandler.writeLine(getLogLine(error), error ? errorLogPath : logPath);
-				clearLogLine(error);
+				writeLogLine(error);
 			}
 		}
 		finally
 		{
-			logLock.unlock();
+			lock.unlock();
 		}
 	}
 
@@ -152,16 +241,39 @@ public class LogsHandler
 	// FLUSH
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Writes the line buffers and waits until all the lines are written to the
+	 * logs.
+	 */
+	@Override
 	public void flush()
 	{
 		flush(false);
 		flush(true);
 	}
 
+	/**
+	 * Writes the line buffer with the specified type and waits until all the
+	 * lines are written to the log.
+	 * <p>
+	 * @param error the type of log to be flushed
+	 */
 	public void flush(final boolean error)
 	{
-		FileHandler.writeLine(getLogLine(error), error ? errorLogPath : logPath);
-		clearLogLine(error);
+		final Lock lock = getLock(error);
+		lock.lock();
+		try
+		{
+			if (getLogLineLength(error) > 0)
+			{
+				writeLogLine(error);
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		getWriter(error).flush();
 	}
 
 
@@ -186,6 +298,32 @@ public class LogsHandler
 		return error ? String.valueOf(errorLineBuffer) : String.valueOf(lineBuffer);
 	}
 
+	private int getLogLineLength(final boolean error)
+	{
+		return error ? errorLineBuffer.length() : lineBuffer.length();
+	}
+
+	/**
+	 * Writes the line buffer with the specified type to the log (as an
+	 * unstructured record in the binary format) and clears it.
+	 * <p>
+	 * @param error the type of log to be written to
+	 */
+	private void writeLogLine(final boolean error)
+	{
+		final String line = getLogLine(error);
+		if (format == LogFormat.BINARY)
+		{
+			final LogRecord record = new LogRecord(System.currentTimeMillis(), error ? SeverityLevel.ERROR : SeverityLevel.RESULT, IOType.OUTPUT, null, null, line);
+			getWriter(error).writeRecord(record.encode());
+		}
+		else
+		{
+			getWriter(error).writeLine(line);
+		}
+		clearLogLine(error);
+	}
+
 	private void clearLogLine(final boolean error)
 	{
 		if (error)
@@ -237,6 +375,7 @@ public class LogsHandler
 		logLock.lock();
 		try
 		{
+			logWriter.close();
 			if (FileHandler.exists(logPath))
 			{
 				FileHandler.delete(logPath);
@@ -256,6 +395,7 @@ public class LogsHandler
 		errorLogLock.lock();
 		try
 		{
+			errorLogWriter.close();
 			if (FileHandler.exists(errorLogPath))
 			{
 				FileHandler.delete(errorLogPath);
@@ -266,4 +406,37 @@ public class LogsHandler
 			errorLogLock.unlock();
 		}
 	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// FORMAT
+	////////////////////////////////////////////////////////////////////////////
+
+	public enum LogFormat
+	{
+		/**
+		 * The lines of text.
+		 */
+		TEXT(".txt"),
+		/**
+		 * The length-prefixed binary records (see {@link LogRecord}), which
+		 * can be filtered by {@link LogReader}.
+		 */
+		BINARY(".bin");
+
+		private final String extension;
+
+		private LogFormat(final String extension)
+		{
+			this.extension = extension;
+		}
+
+		/**
+		 * @return the extension of the log files
+		 */
+		public String getExtension()
+		{
+			return extension;
+		}
+	}
 }
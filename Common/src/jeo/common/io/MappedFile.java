@@ -0,0 +1,552 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import jeo.common.util.Arguments;
+import jeo.common.util.Formats;
+import jeo.common.util.Strings;
+
+/**
+ * The file read through memory-mapped windows. The lines are exposed as
+ * {@link CharSequence} slices of the mapped bytes, which are only decoded
+ * when their characters are accessed (the ASCII lines are never decoded), so
+ * that the scans and the counts of lines do not materialize the file. The
+ * lines are terminated by {@code \n} or {@code \r\n}.
+ * <p>
+ * The character set must encode the ASCII characters in single bytes (e.g.
+ * UTF-8 or ISO-8859-1); the other character sets are read through a
+ * {@link BufferedReader} splitting the lines at the same terminators (a lone
+ * {@code \r} does not terminate a line).
+ */
+public class MappedFile
+	implements Iterable<CharSequence>, Closeable
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The size of the mapped windows of the file (in bytes).
+	 */
+	public static volatile int WINDOW_SIZE = 1 << 28;
+	/**
+	 * The size of the buffer counting the lines read by a reader (in
+	 * characters).
+	 */
+	private static final int READER_BUFFER_SIZE = 8192;
+
+	private final String pathname;
+	private final Charset charset;
+	private final FileChannel channel;
+	private final long size;
+	/**
+	 * The open readers of the file if its character set is not
+	 * ASCII-compatible (they are closed with the file).
+	 */
+	private final Set<BufferedReader> readers = ConcurrentHashMap.newKeySet();
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public MappedFile(final String pathname)
+		throws IOException
+	{
+		this(pathname, Formats.DEFAULT_CHARSET);
+	}
+
+	public MappedFile(final String pathname, final Charset charset)
+		throws IOException
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(pathname);
+		Arguments.requireNonNull(charset);
+		// Set the attribute(s)
+		this.pathname = pathname;
+		this.charset = charset;
+		channel = FileChannel.open(Paths.get(pathname), StandardOpenOption.READ);
+		size = channel.size();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the size of the file (in bytes)
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Tests whether the specified character set encodes the ASCII characters
+	 * in single bytes.
+	 * <p>
+	 * @param charset a {@link Charset}
+	 * <p>
+	 * @return {@code true} if {@code charset} encodes the ASCII characters in
+	 *         single bytes, {@code false} otherwise
+	 */
+	public static boolean isASCIICompatible(final Charset charset)
+	{
+		return charset.equals(Formats.UTF8_CHARSET) || (charset.newEncoder().maxBytesPerChar() == 1f);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// LINES
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of lines of the file without decoding it (unless its
+	 * character set is not ASCII-compatible), i.e. the number of {@code \n}
+	 * plus one if the last line is not terminated.
+	 * <p>
+	 * @return the number of lines of the file
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	public long countLines()
+		throws IOException
+	{
+		if (!isASCIICompatible(charset))
+		{
+			try (final BufferedReader reader = FileHandler.getReader(pathname, charset))
+			{
+				long count = 0L;
+				final char[] buffer = new char[READER_BUFFER_SIZE];
+				char lastCharacter = '\n';
+				int length;
+				while ((length = reader.read(buffer)) >= 0)
+				{
+					for (int i = 0; i < length; ++i)
+					{
+						if (buffer[i] == '\n')
+						{
+							++count;
+						}
+					}
+					if (length > 0)
+					{
+						lastCharacter = buffer[length - 1];
+					}
+				}
+				if (lastCharacter != '\n')
+				{
+					// The last line is not terminated
+					++count;
+				}
+				return count;
+			}
+		}
+		long count = 0L;
+		for (long windowStart = 0L; windowStart < size; windowStart += WINDOW_SIZE)
+		{
+			final MappedByteBuffer window = map(windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+			final int limit = window.limit();
+			for (int i = 0; i < limit; ++i)
+			{
+				if (window.get(i) == '\n')
+				{
+					++count;
+				}
+			}
+		}
+		if ((size > 0L) && (map(size - 1L, 1L).get(0) != '\n'))
+		{
+			// The last line is not terminated
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the lines of the file. If the character
+	 * set is not ASCII-compatible, the underlying reader is closed when the
+	 * iterator is exhausted or when the file is closed.
+	 * <p>
+	 * @return an {@link Iterator} over the lines of the file
+	 */
+	@Override
+	public Iterator<CharSequence> iterator()
+	{
+		if (!isASCIICompatible(charset))
+		{
+			try
+			{
+				return new ReaderLineIterator(FileHandler.getReader(pathname, charset));
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+		return new LineIterator();
+	}
+
+	/**
+	 * Returns a sequential {@link Stream} of the lines of the file. Closing
+	 * the stream closes the file (and its open readers).
+	 * <p>
+	 * @return a sequential {@link Stream} of the lines of the file
+	 */
+	public Stream<CharSequence> lines()
+	{
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() ->
+		{
+			try
+			{
+				close();
+			}
+			catch (final IOException ex)
+			{
+				IOManager.printError(ex);
+			}
+		});
+	}
+
+	private MappedByteBuffer map(final long position, final long length)
+		throws IOException
+	{
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CLOSEABLE
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		channel.close();
+		for (final BufferedReader reader : readers)
+		{
+			FileHandler.closeReader(reader);
+		}
+		readers.clear();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ITERATOR
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The {@link Iterator} over the lines of the mapped windows. A line
+	 * crossing the end of a window is read from a new window starting at the
+	 * beginning of the line.
+	 */
+	private class LineIterator
+		implements Iterator<CharSequence>
+	{
+		private MappedByteBuffer window = null;
+		private long windowStart = 0L;
+		/**
+		 * The position of the next line in the file.
+		 */
+		private long position = 0L;
+
+		@Override
+		public boolean hasNext()
+		{
+			return position < size;
+		}
+
+		@Override
+		public CharSequence next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			try
+			{
+				if (window == null)
+				{
+					window = map(windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+				}
+				// Look for the end of the line
+				int start = (int) (position - windowStart);
+				int end = start;
+				while (true)
+				{
+					if (end == window.limit())
+					{
+						if (windowStart + end == size)
+						{
+							// The last line is not terminated
+							position = size;
+							return new Line(window, start, end, charset);
+						}
+						// Map a new window starting at the beginning of the line
+						final long length = Math.min(Math.max(WINDOW_SIZE, 2L * (end - start)), size - position);
+						if (length > Integer.MAX_VALUE)
+						{
+							throw new IOException("The line starting at " + position + " is too long to be mapped");
+						}
+						windowStart = position;
+						window = map(windowStart, length);
+						end -= start;
+						start = 0;
+					}
+					if (window.get(end) == '\n')
+					{
+						position = windowStart + end + 1;
+						final int lineEnd = (end > start) && (window.get(end - 1) == '\r') ? end - 1 : end;
+						return new Line(window, start, lineEnd, charset);
+					}
+					++end;
+				}
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+	/**
+	 * The {@link Iterator} over the lines read by a {@link BufferedReader},
+	 * which are terminated by {@code \n} or {@code \r\n} as the lines of the
+	 * mapped windows. The reader is closed once the last line is read.
+	 */
+	private class ReaderLineIterator
+		implements Iterator<CharSequence>
+	{
+		private final BufferedReader reader;
+		private final StringBuilder builder = Strings.createBuffer();
+		/**
+		 * The next line (or {@code null} if it is not read yet or if there is
+		 * none).
+		 */
+		private String nextLine = null;
+		private boolean isExhausted = false;
+
+		private ReaderLineIterator(final BufferedReader reader)
+		{
+			this.reader = reader;
+			readers.add(reader);
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if ((nextLine == null) && !isExhausted)
+			{
+				nextLine = readLine();
+			}
+			return nextLine != null;
+		}
+
+		@Override
+		public CharSequence next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			final String line = nextLine;
+			nextLine = null;
+			return line;
+		}
+
+		/**
+		 * Reads the next line, or closes the reader if there is none.
+		 * <p>
+		 * @return the next line, or {@code null} if there is none
+		 */
+		private String readLine()
+		{
+			try
+			{
+				builder.setLength(0);
+				int c;
+				while ((c = reader.read()) >= 0)
+				{
+					if (c == '\n')
+					{
+						final int length = builder.length();
+						if ((length > 0) && (builder.charAt(length - 1) == '\r'))
+						{
+							builder.setLength(length - 1);
+						}
+						return builder.toString();
+					}
+					builder.append((char) c);
+				}
+				isExhausted = true;
+				readers.remove(reader);
+				FileHandler.closeReader(reader);
+				// The last line may not be terminated
+				return builder.length() > 0 ? builder.toString() : null;
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// LINE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The line of a mapped window. Its characters are read directly from the
+	 * bytes if it only contains ASCII characters, otherwise the line is
+	 * decoded once on the first access.
+	 */
+	private static class Line
+		implements CharSequence
+	{
+		private final ByteBuffer window;
+		private final int start;
+		private final int end;
+		private final Charset charset;
+		/**
+		 * The flag specifying whether the line only contains ASCII characters
+		 * (or {@code null} if it is not checked yet) and the decoded line (or
+		 * {@code null} if it is not decoded).
+		 */
+		private Boolean isASCII = null;
+		private String decodedLine = null;
+
+		private Line(final ByteBuffer window, final int start, final int end, final Charset charset)
+		{
+			this.window = window;
+			this.start = start;
+			this.end = end;
+			this.charset = charset;
+		}
+
+		/**
+		 * Returns the decoded line if it does not only contain ASCII
+		 * characters.
+		 * <p>
+		 * @return the decoded line, or {@code null} if it only contains ASCII
+		 *         characters
+		 */
+		private String getDecodedLine()
+		{
+			if (isASCII == null)
+			{
+				isASCII = true;
+				for (int i = start; i < end; ++i)
+				{
+					if (window.get(i) < 0)
+					{
+						isASCII = false;
+						break;
+					}
+				}
+			}
+			if (!isASCII && (decodedLine == null))
+			{
+				final ByteBuffer bytes = window.duplicate();
+				bytes.limit(end).position(start);
+				decodedLine = String.valueOf(charset.decode(bytes));
+			}
+			return decodedLine;
+		}
+
+		@Override
+		public int length()
+		{
+			final String line = getDecodedLine();
+			return line == null ? end - start : line.length();
+		}
+
+		@Override
+		public char charAt(final int index)
+		{
+			final String line = getDecodedLine();
+			if (line != null)
+			{
+				return line.charAt(index);
+			}
+			if ((index < 0) || (index >= end - start))
+			{
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			}
+			return (char) window.get(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(final int from, final int to)
+		{
+			final String line = getDecodedLine();
+			if (line != null)
+			{
+				return line.subSequence(from, to);
+			}
+			if ((from < 0) || (from > to) || (to > end - start))
+			{
+				throw new IndexOutOfBoundsException("[" + from + ", " + to + "[");
+			}
+			return new Line(window, start + from, start + to, charset);
+		}
+
+		@Override
+		public String toString()
+		{
+			final String line = getDecodedLine();
+			if (line != null)
+			{
+				return line;
+			}
+			final char[] characters = new char[end - start];
+			for (int i = 0; i < characters.length; ++i)
+			{
+				characters[i] = (char) window.get(start + i);
+			}
+			return new String(characters);
+		}
+	}
+}
@@ -25,6 +25,7 @@ package jeo.common.io;
 
 import jeo.common.io.Messages.IOType;
 import jeo.common.io.Messages.SeverityLevel;
+import jeo.common.util.Strings;
 
 public class Message
 {
@@ -32,8 +33,11 @@ public class Message
 	// ATTRIBUTE(S)
 	////////////////////////////////////////////////////////////////////////////
 
+	private final long timestamp;
 	private final IOType type;
 	private final SeverityLevel level;
+	private final String className;
+	private final String methodName;
 	private final String prefix;
 	private final String content;
 	private final Exception exception;
@@ -45,27 +49,39 @@ public class Message
 
 	public Message(final IOType type, final SeverityLevel level, final String content)
 	{
+		this.timestamp = System.currentTimeMillis();
 		this.type = type;
 		this.level = level;
-		this.prefix = Messages.getPrefix(type, level);
+		final StackTraceElement caller = Messages.isCallerResolved(level) ? Messages.getCaller() : null;
+		this.className = caller != null ? Messages.getSimpleClassName(caller) : Strings.EMPTY;
+		this.methodName = caller != null ? caller.getMethodName() : Strings.EMPTY;
+		this.prefix = Messages.getPrefix(type, level, caller);
 		this.content = content;
 		this.exception = null;
 	}
 
 	public Message(final IOType type, final SeverityLevel level, final Object content)
 	{
+		this.timestamp = System.currentTimeMillis();
 		this.type = type;
 		this.level = level;
-		this.prefix = Messages.getPrefix(type, level);
+		final StackTraceElement caller = Messages.isCallerResolved(level) ? Messages.getCaller() : null;
+		this.className = caller != null ? Messages.getSimpleClassName(caller) : Strings.EMPTY;
+		this.methodName = caller != null ? caller.getMethodName() : Strings.EMPTY;
+		this.prefix = Messages.getPrefix(type, level, caller);
 		this.content = String.valueOf(content);
 		this.exception = null;
 	}
 
 	public Message(final Exception exception)
 	{
+		this.timestamp = System.currentTimeMillis();
 		this.type = IOType.OUTPUT;
 		this.level = SeverityLevel.ERROR;
-		this.prefix = Messages.getPrefix(type, level);
+		final StackTraceElement caller = Messages.isCallerResolved(level) ? Messages.getCaller() : null;
+		this.className = caller != null ? Messages.getSimpleClassName(caller) : Strings.EMPTY;
+		this.methodName = caller != null ? caller.getMethodName() : Strings.EMPTY;
+		this.prefix = Messages.getPrefix(type, level, caller);
 		this.content = String.valueOf(exception.getMessage());
 		this.exception = exception;
 	}
@@ -75,6 +91,14 @@ public class Message
 	// GETTER(S)
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * @return the time of creation (in milliseconds since the epoch)
+	 */
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
 	/**
 	 * @return the type
 	 */
@@ -91,6 +115,22 @@ public class Message
 		return level;
 	}
 
+	/**
+	 * @return the simple name of the class of the caller
+	 */
+	public String getClassName()
+	{
+		return className;
+	}
+
+	/**
+	 * @return the name of the method of the caller
+	 */
+	public String getMethodName()
+	{
+		return methodName;
+	}
+
 	/**
 	 * @return the content
 	 */
@@ -23,11 +23,115 @@
  */
 package jeo.common.io;
 
-import jeo.common.util.Dates;
+import java.lang.reflect.Method;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import jeo.common.util.Formats;
 import jeo.common.util.Strings;
 
 public class Messages
 {
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The thread-safe formatter of the timestamps.
+	 */
+	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(Formats.DEFAULT_DATE_TIME_FORMAT);
+	/**
+	 * The resolution of the timestamps (in milliseconds).
+	 */
+	private static final long TIMESTAMP_RESOLUTION = 1000L;
+	/**
+	 * The label of the timestamp of the current period, rendered at most once
+	 * per period.
+	 */
+	private static volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, Strings.EMPTY);
+	/**
+	 * The precomputed labels of the I/O types and of the severity levels.
+	 */
+	private static final Map<IOType, String> TYPE_LABELS = new EnumMap<IOType, String>(IOType.class);
+	private static final Map<SeverityLevel, String> LEVEL_LABELS = new EnumMap<SeverityLevel, String>(SeverityLevel.class);
+	/**
+	 * The prefix builder of each thread.
+	 */
+	private static final ThreadLocal<StringBuilder> BUILDERS = ThreadLocal.withInitial(Strings::createBuffer);
+	/**
+	 * The severity levels of the messages whose caller is resolved.
+	 */
+	private static volatile Set<SeverityLevel> callerLevels = EnumSet.of(SeverityLevel.WARNING, SeverityLevel.TEST, SeverityLevel.DEBUG, SeverityLevel.ERROR, SeverityLevel.CRITICAL);
+	/**
+	 * The names of the classes creating and printing the messages, which are
+	 * skipped when resolving the caller.
+	 */
+	private static final Set<String> LOGGING_CLASS_NAMES = new HashSet<String>(Arrays.asList(Message.class.getName(), Messages.class.getName(), IOManager.class.getName()));
+	/**
+	 * The simple names of the classes indexed by their names.
+	 */
+	private static final Map<String, String> SIMPLE_CLASS_NAMES = new ConcurrentHashMap<String, String>();
+	/**
+	 * The {@code StackWalker} and its methods (or {@code null} if it is not
+	 * available, i.e. before Java 9), accessed by reflection to keep the
+	 * compatibility with Java 8.
+	 */
+	private static final Object STACK_WALKER;
+	private static final Method WALK_METHOD;
+	private static final Method GET_CLASS_NAME_METHOD;
+	private static final Method TO_STACK_TRACE_ELEMENT_METHOD;
+	/**
+	 * The function finding the first frame outside the logging classes.
+	 */
+	private static final Function<Stream<Object>, Object> FIND_CALLER = frames -> frames.filter(frame -> !LOGGING_CLASS_NAMES.contains(getClassName(frame))).findFirst().orElse(null);
+
+	static
+	{
+		Object stackWalker = null;
+		Method walkMethod = null, getClassNameMethod = null, toStackTraceElementMethod = null;
+		try
+		{
+			final Class<?> stackWalkerClass = Class.forName("java.lang.StackWalker");
+			final Class<?> stackFrameClass = Class.forName("java.lang.StackWalker$StackFrame");
+			walkMethod = stackWalkerClass.getMethod("walk", Function.class);
+			getClassNameMethod = stackFrameClass.getMethod("getClassName");
+			toStackTraceElementMethod = stackFrameClass.getMethod("toStackTraceElement");
+			stackWalker = stackWalkerClass.getMethod("getInstance").invoke(null);
+		}
+		catch (final ReflectiveOperationException ignored)
+		{
+			// Use the stack traces of the throwables instead
+		}
+		STACK_WALKER = stackWalker;
+		WALK_METHOD = walkMethod;
+		GET_CLASS_NAME_METHOD = getClassNameMethod;
+		TO_STACK_TRACE_ELEMENT_METHOD = toStackTraceElementMethod;
+	}
+
+	static
+	{
+		for (final IOType type : IOType.values())
+		{
+			TYPE_LABELS.put(type, createLabel(type));
+		}
+		for (final SeverityLevel level : SeverityLevel.values())
+		{
+			LEVEL_LABELS.put(level, createLabel(level));
+		}
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTOR(S)
 	////////////////////////////////////////////////////////////////////////////
@@ -43,13 +147,18 @@ public class Messages
 
 	// - ALL
 	public static String getPrefix(final IOType type, final SeverityLevel level)
+	{
+		return getPrefix(type, level, isCallerResolved(level) ? getCaller() : null);
+	}
+
+	public static String getPrefix(final IOType type, final SeverityLevel level, final StackTraceElement stackTraceElement)
 	{
 		switch (type)
 		{
 			case INPUT:
 				return getInputPrefix();
 			case OUTPUT:
-				return getOutputPrefix(level);
+				return getOutputPrefix(level, stackTraceElement);
 			default:
 				return Strings.EMPTY;
 		}
@@ -62,11 +171,23 @@ public class Messages
 	}
 
 	// - OUTPUT
-	public static String getOutputPrefix(final SeverityLevel level)
+	/**
+	 * Returns the prefix of an output message with the specified severity
+	 * level. The labels of the caller are omitted if {@code stackTraceElement}
+	 * is {@code null}.
+	 * <p>
+	 * @param level             the {@link SeverityLevel} of the message
+	 * @param stackTraceElement the stack trace element of the caller (may be
+	 *                          {@code null})
+	 * <p>
+	 * @return the prefix of an output message
+	 */
+	public static String getOutputPrefix(final SeverityLevel level, final StackTraceElement stackTraceElement)
 	{
-		// Get information about the call (class name, method name and Message number)
-		final StackTraceElement stackTraceElement = getStackTraceElement(6);
-		final String simpleClassName = getSimpleClassName(stackTraceElement);
+		if ((stackTraceElement == null) && (level != SeverityLevel.RESULT))
+		{
+			return createOutputPrefix(level);
+		}
 		// Create the prefix
 		String prefix;
 		switch (level)
@@ -78,15 +199,15 @@ public class Messages
 				prefix = createOutputPrefix(level);
 				break;
 			case WARNING:
-				prefix = createOutputPrefix(level, simpleClassName);
+				prefix = createOutputPrefix(level, getSimpleClassName(stackTraceElement));
 				break;
 			case TEST:
 			case ERROR:
-				prefix = createOutputPrefix(level, simpleClassName, stackTraceElement.getMethodName());
+				prefix = createOutputPrefix(level, getSimpleClassName(stackTraceElement), stackTraceElement.getMethodName());
 				break;
 			case DEBUG:
 			case CRITICAL:
-				prefix = createOutputPrefix(level, simpleClassName, stackTraceElement.getMethodName(), stackTraceElement.getLineNumber());
+				prefix = createOutputPrefix(level, getSimpleClassName(stackTraceElement), stackTraceElement.getMethodName(), stackTraceElement.getLineNumber());
 				break;
 			default:
 				prefix = Strings.EMPTY;
@@ -94,15 +215,141 @@ public class Messages
 		return prefix;
 	}
 
+
+	////////////////////////////////////////////////////////////////////////////
+	// CALLER
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Tests whether the caller of the messages with the specified severity
+	 * level is resolved (to label them with its class, method and line).
+	 * <p>
+	 * @param level a {@link SeverityLevel}
+	 * <p>
+	 * @return {@code true} if the caller of the messages with {@code level} is
+	 *         resolved, {@code false} otherwise
+	 */
+	public static boolean isCallerResolved(final SeverityLevel level)
+	{
+		return callerLevels.contains(level);
+	}
+
+	/**
+	 * Sets whether the caller of the messages with the specified severity
+	 * level is resolved. By default, it is resolved only for the severity
+	 * levels whose prefixes contain the class of the caller.
+	 * <p>
+	 * @param level    a {@link SeverityLevel}
+	 * @param resolved {@code true} to resolve the caller of the messages with
+	 *                 {@code level}, {@code false} otherwise
+	 */
+	public static synchronized void setCallerResolved(final SeverityLevel level, final boolean resolved)
+	{
+		final Set<SeverityLevel> levels = EnumSet.copyOf(callerLevels);
+		if (resolved)
+		{
+			levels.add(level);
+		}
+		else
+		{
+			levels.remove(level);
+		}
+		callerLevels = levels;
+	}
+
+	/**
+	 * Returns the stack trace element of the first caller outside the classes
+	 * creating and printing the messages (i.e. {@link Message},
+	 * {@link Messages} and {@link IOManager}). Only the required frames are
+	 * walked if {@code StackWalker} is available (Java 9 or later).
+	 * <p>
+	 * @return the stack trace element of the caller, or {@code null} if there
+	 *         is none
+	 */
+	public static StackTraceElement getCaller()
+	{
+		if (STACK_WALKER != null)
+		{
+			try
+			{
+				final Object frame = WALK_METHOD.invoke(STACK_WALKER, FIND_CALLER);
+				return frame != null ? (StackTraceElement) TO_STACK_TRACE_ELEMENT_METHOD.invoke(frame) : null;
+			}
+			catch (final ReflectiveOperationException ignored)
+			{
+				// Materialize the stack trace instead
+			}
+		}
+		for (final StackTraceElement stackTraceElement : new Throwable().getStackTrace())
+		{
+			if (!LOGGING_CLASS_NAMES.contains(stackTraceElement.getClassName()))
+			{
+				return stackTraceElement;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the stack trace element at the specified index of the stack of
+	 * the current thread, where the index {@code 0} is this method. Only the
+	 * required frames are walked if {@code StackWalker} is available (Java 9
+	 * or later).
+	 * <p>
+	 * @param index the index of the stack trace element
+	 * <p>
+	 * @return the stack trace element at {@code index}, or {@code null} if the
+	 *         stack is not deep enough
+	 */
 	public static StackTraceElement getStackTraceElement(final int index)
 	{
-		return new Throwable().fillInStackTrace().getStackTrace()[index];
+		if (STACK_WALKER != null)
+		{
+			try
+			{
+				final Function<Stream<Object>, Object> findFrame = frames -> frames.skip(index).findFirst().orElse(null);
+				final Object frame = WALK_METHOD.invoke(STACK_WALKER, findFrame);
+				return frame != null ? (StackTraceElement) TO_STACK_TRACE_ELEMENT_METHOD.invoke(frame) : null;
+			}
+			catch (final ReflectiveOperationException ignored)
+			{
+				// Materialize the stack trace instead
+			}
+		}
+		final StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+		return index < stackTrace.length ? stackTrace[index] : null;
 	}
 
+	/**
+	 * Returns the simple name of the class of the specified stack trace
+	 * element. The simple names are cached per class.
+	 * <p>
+	 * @param stackTraceElement a {@link StackTraceElement}
+	 * <p>
+	 * @return the simple name of the class of {@code stackTraceElement}
+	 */
 	public static String getSimpleClassName(final StackTraceElement stackTraceElement)
 	{
-		final String className = stackTraceElement.getClassName();
-		return className.substring(className.lastIndexOf('.') + 1);
+		return SIMPLE_CLASS_NAMES.computeIfAbsent(stackTraceElement.getClassName(), className -> className.substring(className.lastIndexOf('.') + 1));
+	}
+
+	/**
+	 * Returns the class name of the specified {@code StackWalker.StackFrame}.
+	 * <p>
+	 * @param frame a {@code StackWalker.StackFrame}
+	 * <p>
+	 * @return the class name of {@code frame}
+	 */
+	private static String getClassName(final Object frame)
+	{
+		try
+		{
+			return (String) GET_CLASS_NAME_METHOD.invoke(frame);
+		}
+		catch (final ReflectiveOperationException ex)
+		{
+			throw new IllegalStateException(ex);
+		}
 	}
 
 
@@ -171,46 +418,82 @@ public class Messages
 	////////////////////////////////////////////////////////////////////////////
 
 	// - ALL
-	private static String createPrefix()
+	/**
+	 * Returns the label of the current date and time, which is rendered at
+	 * most once per second.
+	 * <p>
+	 * @return the label of the current date and time
+	 */
+	private static String getTimestampLabel()
 	{
-		return createLabel(Dates.getCurrentDateTime());
+		final long period = System.currentTimeMillis() / TIMESTAMP_RESOLUTION;
+		Timestamp currentTimestamp = timestamp;
+		if (currentTimestamp.period != period)
+		{
+			final LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(period * TIMESTAMP_RESOLUTION), ZoneId.systemDefault());
+			currentTimestamp = new Timestamp(period, createLabel(DATE_TIME_FORMATTER.format(dateTime)));
+			timestamp = currentTimestamp;
+		}
+		return currentTimestamp.label;
+	}
+
+	/**
+	 * Returns the cleared prefix builder of the current thread containing the
+	 * label of the current date and time.
+	 * <p>
+	 * @return the prefix builder of the current thread
+	 */
+	private static StringBuilder createPrefix()
+	{
+		final StringBuilder builder = BUILDERS.get();
+		builder.setLength(0);
+		return builder.append(getTimestampLabel());
 	}
 
-	private static String createPrefix(final IOType type)
+	private static StringBuilder createPrefix(final IOType type)
 	{
-		return createPrefix() + createLabel(type);
+		return createPrefix().append(TYPE_LABELS.get(type));
+	}
+
+	private static StringBuilder appendLabel(final StringBuilder builder, final String string)
+	{
+		if ((string != null) && (string.length() > 0))
+		{
+			builder.append('[').append(string).append(']');
+		}
+		return builder;
 	}
 
 	// - INPUT
 	private static String createInputPrefix()
 	{
-		return createPrefix(IOType.INPUT);
+		return String.valueOf(createPrefix(IOType.INPUT));
 	}
 
 	// - OUTPUT
-	private static String createOutputPrefix()
+	private static StringBuilder createOutputPrefix()
 	{
 		return createPrefix();
 	}
 
 	private static String createOutputPrefix(final SeverityLevel level)
 	{
-		return createOutputPrefix() + createLabel(level);
+		return String.valueOf(createOutputPrefix().append(LEVEL_LABELS.get(level)));
 	}
 
 	private static String createOutputPrefix(final SeverityLevel level, final String className)
 	{
-		return createOutputPrefix(level) + createLabel(className);
+		return String.valueOf(appendLabel(createOutputPrefix().append(LEVEL_LABELS.get(level)), className));
 	}
 
 	private static String createOutputPrefix(final SeverityLevel level, final String className, final String methodName)
 	{
-		return createOutputPrefix(level, className) + createLabel(methodName);
+		return String.valueOf(appendLabel(appendLabel(createOutputPrefix().append(LEVEL_LABELS.get(level)), className), methodName));
 	}
 
 	private static String createOutputPrefix(final SeverityLevel level, final String className, final String methodName, final int lineNumber)
 	{
-		return createOutputPrefix(level, className, methodName) + createLabel(String.valueOf(lineNumber));
+		return String.valueOf(appendLabel(appendLabel(createOutputPrefix().append(LEVEL_LABELS.get(level)), className), methodName).append('[').append(lineNumber).append(']'));
 	}
 
 
@@ -236,10 +519,53 @@ public class Messages
 	}
 
 
+	////////////////////////////////////////////////////////////////////////////
+	// FORMAT
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the specified pattern in which each {@code {}} is replaced by
+	 * the next argument. The remaining {@code {}} are kept if there are not
+	 * enough arguments.
+	 * <p>
+	 * @param pattern   the pattern {@link String}
+	 * @param arguments the arguments replacing the {@code {}} in order
+	 * <p>
+	 * @return the formatted {@link String}
+	 */
+	public static String format(final String pattern, final Object... arguments)
+	{
+		final StringBuilder builder = new StringBuilder(pattern.length() + 16 * arguments.length);
+		int fromIndex = 0, argumentIndex = 0;
+		int index;
+		while ((argumentIndex < arguments.length) && ((index = pattern.indexOf("{}", fromIndex)) >= 0))
+		{
+			builder.append(pattern, fromIndex, index).append(arguments[argumentIndex++]);
+			fromIndex = index + 2;
+		}
+		return String.valueOf(builder.append(pattern, fromIndex, pattern.length()));
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// ENUM(S)
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * The label of the date and time of a period.
+	 */
+	private static class Timestamp
+	{
+		private final long period;
+		private final String label;
+
+		private Timestamp(final long period, final String label)
+		{
+			this.period = period;
+			this.label = label;
+		}
+	}
+
 	public enum IOType
 	{
 		INPUT,
@@ -248,12 +574,36 @@ public class Messages
 
 	public enum SeverityLevel
 	{
-		RESULT,
-		INFO,
-		TEST,
-		DEBUG,
-		WARNING,
-		ERROR,
-		CRITICAL
+		RESULT(3),
+		INFO(2),
+		TEST(1),
+		DEBUG(0),
+		WARNING(4),
+		ERROR(5),
+		CRITICAL(6);
+
+		/**
+		 * The rank of the severity level (the higher, the more severe).
+		 */
+		private final int rank;
+
+		private SeverityLevel(final int rank)
+		{
+			this.rank = rank;
+		}
+
+		/**
+		 * Tests whether this severity level is at least as severe as the
+		 * specified one.
+		 * <p>
+		 * @param level a {@link SeverityLevel}
+		 * <p>
+		 * @return {@code true} if this severity level is at least as severe as
+		 *         {@code level}, {@code false} otherwise
+		 */
+		public boolean isAtLeast(final SeverityLevel level)
+		{
+			return rank >= level.rank;
+		}
 	}
 }
@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import jeo.common.util.Arguments;
+
+/**
+ * The policy for rolling a log over to a new segment. The current segment is
+ * archived when its size, its age or its number of entries reaches the
+ * corresponding limit (a limit of {@code 0} is disabled). The archived
+ * segments may be compressed with GZIP and only the most recent ones are
+ * retained.
+ */
+public class RollingPolicy
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The policy never rolling the log over.
+	 */
+	public static final RollingPolicy NONE = new RollingPolicy(0L, 0L, 0L, 0, false);
+
+	/**
+	 * The maximum size of a segment (in bytes).
+	 */
+	private final long maxSize;
+	/**
+	 * The maximum age of a segment (in milliseconds).
+	 */
+	private final long maxAge;
+	/**
+	 * The maximum number of entries in a segment.
+	 */
+	private final long maxCount;
+	/**
+	 * The maximum number of archived segments to retain ({@code 0} to retain
+	 * all of them).
+	 */
+	private final int maxArchives;
+	/**
+	 * The flag specifying whether the archived segments are compressed.
+	 */
+	private final boolean compress;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructs a {@link RollingPolicy}.
+	 * <p>
+	 * @param maxSize     the maximum size of a segment (in bytes, {@code 0} to
+	 *                    disable)
+	 * @param maxAge      the maximum age of a segment (in milliseconds,
+	 *                    {@code 0} to disable)
+	 * @param maxCount    the maximum number of entries in a segment
+	 *                    ({@code 0} to disable)
+	 * @param maxArchives the maximum number of archived segments to retain
+	 *                    ({@code 0} to retain all of them)
+	 * @param compress    the flag specifying whether the archived segments are
+	 *                    compressed with GZIP
+	 */
+	public RollingPolicy(final long maxSize, final long maxAge, final long maxCount, final int maxArchives, final boolean compress)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNegative(maxSize);
+		Arguments.requireNonNegative(maxAge);
+		Arguments.requireNonNegative(maxCount);
+		Arguments.requireNonNegative(maxArchives);
+		// Process
+		this.maxSize = maxSize;
+		this.maxAge = maxAge;
+		this.maxCount = maxCount;
+		this.maxArchives = maxArchives;
+		this.compress = compress;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// FACTORIES
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a policy rolling the log over by size and retaining the
+	 * specified number of compressed archives.
+	 * <p>
+	 * @param maxSize     the maximum size of a segment (in bytes)
+	 * @param maxArchives the maximum number of archived segments to retain
+	 * <p>
+	 * @return a policy rolling the log over by size
+	 */
+	public static RollingPolicy bySize(final long maxSize, final int maxArchives)
+	{
+		return new RollingPolicy(maxSize, 0L, 0L, maxArchives, true);
+	}
+
+	/**
+	 * Returns a policy rolling the log over by time and retaining the
+	 * specified number of compressed archives.
+	 * <p>
+	 * @param maxAge      the maximum age of a segment (in milliseconds)
+	 * @param maxArchives the maximum number of archived segments to retain
+	 * <p>
+	 * @return a policy rolling the log over by time
+	 */
+	public static RollingPolicy byTime(final long maxAge, final int maxArchives)
+	{
+		return new RollingPolicy(0L, maxAge, 0L, maxArchives, true);
+	}
+
+	/**
+	 * Returns a policy rolling the log over by number of entries and retaining
+	 * the specified number of compressed archives.
+	 * <p>
+	 * @param maxCount    the maximum number of entries in a segment
+	 * @param maxArchives the maximum number of archived segments to retain
+	 * <p>
+	 * @return a policy rolling the log over by number of entries
+	 */
+	public static RollingPolicy byCount(final long maxCount, final int maxArchives)
+	{
+		return new RollingPolicy(0L, 0L, maxCount, maxArchives, true);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the maximum size of a segment (in bytes)
+	 */
+	public long getMaxSize()
+	{
+		return maxSize;
+	}
+
+	/**
+	 * @return the maximum age of a segment (in milliseconds)
+	 */
+	public long getMaxAge()
+	{
+		return maxAge;
+	}
+
+	/**
+	 * @return the maximum number of entries in a segment
+	 */
+	public long getMaxCount()
+	{
+		return maxCount;
+	}
+
+	/**
+	 * @return the maximum number of archived segments to retain
+	 */
+	public int getMaxArchives()
+	{
+		return maxArchives;
+	}
+
+	/**
+	 * @return {@code true} if the archived segments are compressed,
+	 *         {@code false} otherwise
+	 */
+	public boolean isCompressed()
+	{
+		return compress;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ROLLING
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Tests whether this policy is enabled.
+	 * <p>
+	 * @return {@code true} if this policy is enabled, {@code false} otherwise
+	 */
+	public boolean isEnabled()
+	{
+		return (maxSize > 0L) || (maxAge > 0L) || (maxCount > 0L);
+	}
+
+	/**
+	 * Tests whether a segment with the specified size, start time and number
+	 * of entries has to be rolled over before appending an entry of the
+	 * specified size.
+	 * <p>
+	 * @param size      the size of the segment (in bytes)
+	 * @param startTime the start time of the segment (in milliseconds since
+	 *                  the epoch)
+	 * @param count     the number of entries in the segment
+	 * @param entrySize the size of the entry to be appended (in bytes)
+	 * @param time      the current time (in milliseconds since the epoch)
+	 * <p>
+	 * @return {@code true} if the segment has to be rolled over, {@code false}
+	 *         otherwise
+	 */
+	public boolean isTriggered(final long size, final long startTime, final long count, final long entrySize, final long time)
+	{
+		if (count == 0L)
+		{
+			// Never roll an empty segment over
+			return false;
+		}
+		return ((maxSize > 0L) && (size + entrySize > maxSize)) || ((maxAge > 0L) && (time - startTime >= maxAge)) || ((maxCount > 0L) && (count >= maxCount));
+	}
+}
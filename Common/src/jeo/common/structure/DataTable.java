@@ -0,0 +1,1233 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.structure;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import jeo.common.exception.InvalidOperationException;
+import jeo.common.util.Arguments;
+import jeo.common.util.Strings;
+
+/**
+ * The table storing its columns in primitive arrays: the integers in
+ * {@code int[]} or {@code long[]}, the decimal numbers in {@code double[]} and
+ * the strings as codes in {@code int[]} referring to a dictionary of distinct
+ * values. A {@link Builder} infers the type of each column from its values
+ * (e.g. while parsing a CSV file), so that numeric data is never boxed nor
+ * kept as strings.
+ */
+public class DataTable
+	implements Serializable
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Generated serial version ID.
+	 */
+	private static final long serialVersionUID = 4823749238157703165L;
+
+	/**
+	 * The number of rows.
+	 */
+	protected final int m;
+	/**
+	 * The columns.
+	 */
+	protected final Column[] columns;
+	/**
+	 * The indexes of the columns by name.
+	 */
+	protected final Map<String, Integer> columnIndexes;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructs a table from the specified columns, which must all have the
+	 * same size.
+	 * <p>
+	 * @param columns the columns of the table
+	 */
+	public DataTable(final Column... columns)
+	{
+		// Check the argument(s)
+		Arguments.requireNonEmpty(columns);
+		// Set the attribute(s)
+		this.m = columns[0].size();
+		this.columns = columns.clone();
+		columnIndexes = new HashMap<String, Integer>(columns.length);
+		for (int j = 0; j < columns.length; ++j)
+		{
+			if (columns[j].size() != m)
+			{
+				throw new IllegalArgumentException("The column '" + columns[j].getName() + "' has a wrong size " + Arguments.expectedButFound(m, columns[j].size()));
+			}
+			columnIndexes.put(columns[j].getName(), j);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of rows.
+	 * <p>
+	 * @return the number of rows
+	 */
+	public int getRowSize()
+	{
+		return m;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * <p>
+	 * @return the number of columns
+	 */
+	public int getColumnSize()
+	{
+		return columns.length;
+	}
+
+	/**
+	 * Returns the column that is indexed by {@code columnIndex}.
+	 * <p>
+	 * @param columnIndex the index of the column to be gotten
+	 * <p>
+	 * @return the column that is indexed by {@code columnIndex}
+	 */
+	public Column getColumn(final int columnIndex)
+	{
+		return columns[columnIndex];
+	}
+
+	/**
+	 * Returns the column with the specified name.
+	 * <p>
+	 * @param name the name of the column to be gotten
+	 * <p>
+	 * @return the column with the specified name, or {@code null} if there is
+	 *         no such column
+	 */
+	public Column getColumn(final String name)
+	{
+		final Integer columnIndex = columnIndexes.get(name);
+		return columnIndex != null ? columns[columnIndex] : null;
+	}
+
+	/**
+	 * Returns the names of the columns.
+	 * <p>
+	 * @return the names of the columns
+	 */
+	public String[] getColumnNames()
+	{
+		final String[] names = new String[columns.length];
+		for (int j = 0; j < columns.length; ++j)
+		{
+			names[j] = columns[j].getName();
+		}
+		return names;
+	}
+
+	/**
+	 * Returns the numeric value of the element of the table that is indexed by
+	 * {@code rowIndex} and {@code columnIndex}.
+	 * <p>
+	 * @param rowIndex    the row index of the element to be gotten
+	 * @param columnIndex the column index of the element to be gotten
+	 * <p>
+	 * @return the numeric value of the element
+	 */
+	public double getDouble(final int rowIndex, final int columnIndex)
+	{
+		return columns[columnIndex].getDouble(rowIndex);
+	}
+
+	/**
+	 * Returns the string representation of the element of the table that is
+	 * indexed by {@code rowIndex} and {@code columnIndex}.
+	 * <p>
+	 * @param rowIndex    the row index of the element to be gotten
+	 * @param columnIndex the column index of the element to be gotten
+	 * <p>
+	 * @return the string representation of the element
+	 */
+	public String getString(final int rowIndex, final int columnIndex)
+	{
+		return columns[columnIndex].getString(rowIndex);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONVERSION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a {@link Table} containing the string representations of the
+	 * elements of {@code this}.
+	 * <p>
+	 * @return a {@link Table} containing the string representations of the
+	 *         elements of {@code this}
+	 */
+	public Table<String> toTable()
+	{
+		final Table<String> table = new Table<String>(String.class, m, columns.length);
+		for (int j = 0; j < columns.length; ++j)
+		{
+			final Column column = columns[j];
+			for (int i = 0; i < m; ++i)
+			{
+				table.set(i, j, column.getString(i));
+			}
+		}
+		return table;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// OBJECT
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = Strings.createBuffer();
+		for (int j = 0; j < columns.length; ++j)
+		{
+			if (j > 0)
+			{
+				builder.append('\t');
+			}
+			builder.append(columns[j].getName());
+		}
+		for (int i = 0; i < m; ++i)
+		{
+			builder.append('\n');
+			for (int j = 0; j < columns.length; ++j)
+			{
+				if (j > 0)
+				{
+					builder.append('\t');
+				}
+				builder.append(columns[j].getString(i));
+			}
+		}
+		return builder.toString();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// COLUMN TYPE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The types of the columns, ordered from the narrowest to the widest.
+	 */
+	public enum ColumnType
+	{
+		INT,
+		LONG,
+		DOUBLE,
+		STRING;
+
+		/**
+		 * Tests whether {@code this} is numeric.
+		 * <p>
+		 * @return {@code true} if {@code this} is numeric, {@code false}
+		 *         otherwise
+		 */
+		public boolean isNumeric()
+		{
+			return this != STRING;
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// COLUMNS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The column of a {@link DataTable}.
+	 */
+	public abstract static class Column
+		implements Serializable
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = -2154397081569180434L;
+
+		/**
+		 * The name.
+		 */
+		protected final String name;
+
+		protected Column(final String name)
+		{
+			this.name = name;
+		}
+
+		/**
+		 * @return the name
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return the type
+		 */
+		public abstract ColumnType getType();
+
+		/**
+		 * @return the number of elements
+		 */
+		public abstract int size();
+
+		/**
+		 * Returns the numeric value of the element at the specified index.
+		 * <p>
+		 * @param index the index of the element
+		 * <p>
+		 * @return the numeric value of the element at the specified index
+		 * <p>
+		 * @throws InvalidOperationException if {@code this} is not numeric
+		 */
+		public abstract double getDouble(final int index);
+
+		/**
+		 * Returns the string representation of the element at the specified
+		 * index.
+		 * <p>
+		 * @param index the index of the element
+		 * <p>
+		 * @return the string representation of the element at the specified
+		 *         index
+		 */
+		public abstract String getString(final int index);
+
+		/**
+		 * Returns the numeric values of the elements.
+		 * <p>
+		 * @return the numeric values of the elements
+		 * <p>
+		 * @throws InvalidOperationException if {@code this} is not numeric
+		 */
+		public double[] toDoubles()
+		{
+			final int size = size();
+			final double[] values = new double[size];
+			for (int i = 0; i < size; ++i)
+			{
+				values[i] = getDouble(i);
+			}
+			return values;
+		}
+
+		/**
+		 * Returns the statistics of the elements.
+		 * <p>
+		 * @return the statistics of the elements
+		 */
+		public ColumnStatistics getStatistics()
+		{
+			// Compute the statistics in one pass (with the algorithm of Welford)
+			final int size = size();
+			int count = 0;
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY, mean = 0., m2 = 0.;
+			for (int i = 0; i < size; ++i)
+			{
+				final double value = getDouble(i);
+				if (!Double.isNaN(value))
+				{
+					++count;
+					if (value < min)
+					{
+						min = value;
+					}
+					if (value > max)
+					{
+						max = value;
+					}
+					final double delta = value - mean;
+					mean += delta / count;
+					m2 += delta * (value - mean);
+				}
+			}
+			if (count == 0)
+			{
+				return new ColumnStatistics(size, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, -1);
+			}
+			return new ColumnStatistics(size, count, min, max, mean, m2 / count, -1);
+		}
+	}
+
+	/**
+	 * The column of {@code int}.
+	 */
+	public static class IntColumn
+		extends Column
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = 7364297153864032185L;
+
+		private final int[] values;
+
+		public IntColumn(final String name, final int[] values)
+		{
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		public ColumnType getType()
+		{
+			return ColumnType.INT;
+		}
+
+		@Override
+		public int size()
+		{
+			return values.length;
+		}
+
+		public int get(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public double getDouble(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public String getString(final int index)
+		{
+			return String.valueOf(values[index]);
+		}
+
+		/**
+		 * @return the values (not copied)
+		 */
+		public int[] getValues()
+		{
+			return values;
+		}
+	}
+
+	/**
+	 * The column of {@code long}.
+	 */
+	public static class LongColumn
+		extends Column
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = -5403785307616924611L;
+
+		private final long[] values;
+
+		public LongColumn(final String name, final long[] values)
+		{
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		public ColumnType getType()
+		{
+			return ColumnType.LONG;
+		}
+
+		@Override
+		public int size()
+		{
+			return values.length;
+		}
+
+		public long get(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public double getDouble(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public String getString(final int index)
+		{
+			return String.valueOf(values[index]);
+		}
+
+		/**
+		 * @return the values (not copied)
+		 */
+		public long[] getValues()
+		{
+			return values;
+		}
+	}
+
+	/**
+	 * The column of {@code double} (the missing values are {@code NaN}).
+	 */
+	public static class DoubleColumn
+		extends Column
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = 1683640524791926540L;
+
+		private final double[] values;
+
+		public DoubleColumn(final String name, final double[] values)
+		{
+			super(name);
+			this.values = values;
+		}
+
+		@Override
+		public ColumnType getType()
+		{
+			return ColumnType.DOUBLE;
+		}
+
+		@Override
+		public int size()
+		{
+			return values.length;
+		}
+
+		public double get(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public double getDouble(final int index)
+		{
+			return values[index];
+		}
+
+		@Override
+		public String getString(final int index)
+		{
+			final double value = values[index];
+			return Double.isNaN(value) ? Strings.EMPTY : String.valueOf(value);
+		}
+
+		@Override
+		public double[] toDoubles()
+		{
+			return values.clone();
+		}
+
+		/**
+		 * @return the values (not copied)
+		 */
+		public double[] getValues()
+		{
+			return values;
+		}
+	}
+
+	/**
+	 * The column of strings encoded as the indexes of their values in a
+	 * dictionary of distinct values.
+	 */
+	public static class StringColumn
+		extends Column
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = -1826438570939510682L;
+
+		private final int[] codes;
+		private final String[] dictionary;
+
+		public StringColumn(final String name, final int[] codes, final String[] dictionary)
+		{
+			super(name);
+			this.codes = codes;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		public ColumnType getType()
+		{
+			return ColumnType.STRING;
+		}
+
+		@Override
+		public int size()
+		{
+			return codes.length;
+		}
+
+		/**
+		 * Returns the code of the element at the specified index, i.e. the
+		 * index of its value in the dictionary.
+		 * <p>
+		 * @param index the index of the element
+		 * <p>
+		 * @return the code of the element at the specified index
+		 */
+		public int getCode(final int index)
+		{
+			return codes[index];
+		}
+
+		/**
+		 * @return the distinct values (not copied)
+		 */
+		public String[] getDictionary()
+		{
+			return dictionary;
+		}
+
+		@Override
+		public double getDouble(final int index)
+		{
+			throw new InvalidOperationException("The column '" + name + "' is not numeric");
+		}
+
+		@Override
+		public String getString(final int index)
+		{
+			return dictionary[codes[index]];
+		}
+
+		@Override
+		public ColumnStatistics getStatistics()
+		{
+			return new ColumnStatistics(codes.length, codes.length, Double.NaN, Double.NaN, Double.NaN, Double.NaN, dictionary.length);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// COLUMN STATISTICS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The statistics of a column. The extrema, the mean and the variance are
+	 * only defined for the numeric columns (they are {@code NaN} otherwise) and
+	 * the number of distinct values is only defined for the string columns (it
+	 * is {@code -1} otherwise).
+	 */
+	public static class ColumnStatistics
+		implements Serializable
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = 3356870154780493402L;
+
+		private final int size;
+		private final int count;
+		private final double min;
+		private final double max;
+		private final double mean;
+		private final double variance;
+		private final int distinctCount;
+
+		public ColumnStatistics(final int size, final int count, final double min, final double max, final double mean, final double variance, final int distinctCount)
+		{
+			this.size = size;
+			this.count = count;
+			this.min = min;
+			this.max = max;
+			this.mean = mean;
+			this.variance = variance;
+			this.distinctCount = distinctCount;
+		}
+
+		/**
+		 * @return the number of elements
+		 */
+		public int getSize()
+		{
+			return size;
+		}
+
+		/**
+		 * @return the number of non-missing elements
+		 */
+		public int getCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @return the number of missing elements
+		 */
+		public int getMissingCount()
+		{
+			return size - count;
+		}
+
+		/**
+		 * @return the minimum
+		 */
+		public double getMin()
+		{
+			return min;
+		}
+
+		/**
+		 * @return the maximum
+		 */
+		public double getMax()
+		{
+			return max;
+		}
+
+		/**
+		 * @return the mean
+		 */
+		public double getMean()
+		{
+			return mean;
+		}
+
+		/**
+		 * @return the (population) variance
+		 */
+		public double getVariance()
+		{
+			return variance;
+		}
+
+		/**
+		 * @return the (population) standard deviation
+		 */
+		public double getStandardDeviation()
+		{
+			return Math.sqrt(variance);
+		}
+
+		/**
+		 * @return the number of distinct values
+		 */
+		public int getDistinctCount()
+		{
+			return distinctCount;
+		}
+
+		@Override
+		public String toString()
+		{
+			if (distinctCount >= 0)
+			{
+				return "size: " + size + ", distinct: " + distinctCount;
+			}
+			return "size: " + size + ", missing: " + getMissingCount() + ", min: " + min + ", max: " + max + ", mean: " + mean + ", variance: " + variance;
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// BUILDER
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The builder of {@link DataTable} appending rows of strings and inferring
+	 * the type of each column from its values. A column starts as
+	 * {@link ColumnType#INT} and is widened to {@link ColumnType#LONG},
+	 * {@link ColumnType#DOUBLE} (the empty values are missing values, which
+	 * are {@code NaN}) and finally {@link ColumnType#STRING} as soon as a
+	 * value does not fit. The values parsed before a widening to
+	 * {@link ColumnType#STRING} are converted back to their canonical string
+	 * representations.
+	 */
+	public static class Builder
+		implements Consumer<String[]>
+	{
+		private final String[] names;
+		private ColumnBuilder[] columns;
+		private int m = 0;
+
+		/**
+		 * Constructs a {@link Builder} of a table whose first row contains the
+		 * names of the columns if {@code hasHeader}, or whose columns are
+		 * named by their indexes otherwise.
+		 * <p>
+		 * @param hasHeader the flag specifying whether the first row contains
+		 *                  the names of the columns
+		 */
+		public Builder(final boolean hasHeader)
+		{
+			names = hasHeader ? null : new String[0];
+		}
+
+		/**
+		 * Constructs a {@link Builder} of a table with the specified names of
+		 * columns.
+		 * <p>
+		 * @param names the names of the columns
+		 */
+		public Builder(final String... names)
+		{
+			// Check the argument(s)
+			Arguments.requireNonEmpty(names);
+			// Set the attribute(s)
+			this.names = names;
+			createColumns(names);
+		}
+
+		private void createColumns(final String[] names)
+		{
+			columns = new ColumnBuilder[names.length];
+			for (int j = 0; j < names.length; ++j)
+			{
+				columns[j] = new ColumnBuilder(names[j]);
+			}
+		}
+
+		/**
+		 * Appends the specified row. The missing fields are empty and the
+		 * fields in excess are ignored.
+		 * <p>
+		 * @param row the row to be appended
+		 */
+		@Override
+		public void accept(final String[] row)
+		{
+			if (columns == null)
+			{
+				if (names == null)
+				{
+					// The first row is the header
+					createColumns(row);
+					return;
+				}
+				final String[] indexes = new String[row.length];
+				for (int j = 0; j < row.length; ++j)
+				{
+					indexes[j] = String.valueOf(j);
+				}
+				createColumns(indexes);
+			}
+			for (int j = 0; j < columns.length; ++j)
+			{
+				columns[j].append(j < row.length ? row[j] : Strings.EMPTY);
+			}
+			++m;
+		}
+
+		/**
+		 * Returns the number of appended rows.
+		 * <p>
+		 * @return the number of appended rows
+		 */
+		public int getRowSize()
+		{
+			return m;
+		}
+
+		/**
+		 * Builds the table.
+		 * <p>
+		 * @return the table, or {@code null} if there is no column
+		 */
+		public DataTable build()
+		{
+			if ((columns == null) || (columns.length == 0))
+			{
+				return null;
+			}
+			final Column[] result = new Column[columns.length];
+			for (int j = 0; j < columns.length; ++j)
+			{
+				result[j] = columns[j].build();
+			}
+			return new DataTable(result);
+		}
+	}
+
+	/**
+	 * The builder of a column inferring its type.
+	 */
+	private static class ColumnBuilder
+	{
+		private static final int INITIAL_CAPACITY = 16;
+
+		private final String name;
+		private ColumnType type = ColumnType.INT;
+		private int size = 0;
+		private int[] ints = new int[INITIAL_CAPACITY];
+		private long[] longs;
+		private double[] doubles;
+		/**
+		 * The codes of the strings and the dictionary.
+		 */
+		private int[] codes;
+		private List<String> dictionary;
+		private Map<String, Integer> dictionaryIndexes;
+		/**
+		 * The raw values of the numeric elements whose string representations
+		 * differ from them (e.g. {@code "007"} or {@code "2"} in a column of
+		 * doubles), kept until the type of the column is settled.
+		 */
+		private String[] rawValues;
+		/**
+		 * The numeric value of the last parsed value.
+		 */
+		private long parsedLong;
+		private double parsedDouble;
+
+		private ColumnBuilder(final String name)
+		{
+			this.name = name;
+		}
+
+		private void append(final String value)
+		{
+			// Widen the column if the value does not fit
+			final ColumnType valueType = inferType(value);
+			if (valueType.compareTo(type) > 0)
+			{
+				widen(valueType);
+			}
+			// Store the value
+			ensureCapacity();
+			switch (type)
+			{
+				case INT:
+					ints[size] = (int) parsedLong;
+					keepRawValue(value, isCanonicalInteger(value));
+					break;
+				case LONG:
+					longs[size] = parsedLong;
+					keepRawValue(value, isCanonicalInteger(value));
+					break;
+				case DOUBLE:
+					doubles[size] = valueType == ColumnType.DOUBLE ? parsedDouble : parsedLong;
+					keepRawValue(value, value.isEmpty() || ((valueType == ColumnType.DOUBLE) && value.equals(String.valueOf(parsedDouble))));
+					break;
+				default:
+					Integer code = dictionaryIndexes.get(value);
+					if (code == null)
+					{
+						code = dictionary.size();
+						dictionary.add(value);
+						dictionaryIndexes.put(value, code);
+					}
+					codes[size] = code;
+			}
+			++size;
+		}
+
+		/**
+		 * Keeps the specified raw value of the numeric element being appended
+		 * if its string representation differs from it.
+		 * <p>
+		 * @param value       the raw value of the element
+		 * @param isCanonical the flag specifying whether {@code value} is the
+		 *                    string representation of the element
+		 */
+		private void keepRawValue(final String value, final boolean isCanonical)
+		{
+			if (!isCanonical)
+			{
+				if (rawValues == null)
+				{
+					rawValues = new String[capacity()];
+				}
+				rawValues[size] = value;
+			}
+			else if (rawValues != null)
+			{
+				rawValues[size] = null;
+			}
+		}
+
+		/**
+		 * Returns the narrowest type of the specified value and stores its
+		 * numeric value in {@code parsedLong} or {@code parsedDouble}.
+		 * <p>
+		 * @param value the value to be parsed
+		 * <p>
+		 * @return the narrowest type of the specified value
+		 */
+		private ColumnType inferType(final String value)
+		{
+			if (type == ColumnType.STRING)
+			{
+				return ColumnType.STRING;
+			}
+			if (value.isEmpty())
+			{
+				// The missing values are NaN
+				parsedDouble = Double.NaN;
+				return ColumnType.DOUBLE;
+			}
+			if ((type != ColumnType.DOUBLE) && isInteger(value))
+			{
+				if (value.length() <= 9)
+				{
+					parsedLong = Integer.parseInt(value);
+					return ColumnType.INT;
+				}
+				try
+				{
+					parsedLong = Long.parseLong(value);
+					return (parsedLong >= Integer.MIN_VALUE) && (parsedLong <= Integer.MAX_VALUE) ? ColumnType.INT : ColumnType.LONG;
+				}
+				catch (final NumberFormatException ignored)
+				{
+					// The value does not fit into a long
+				}
+			}
+			if (isDecimal(value))
+			{
+				try
+				{
+					parsedDouble = Double.parseDouble(value);
+					return ColumnType.DOUBLE;
+				}
+				catch (final NumberFormatException ignored)
+				{
+					// The value is not a decimal number
+				}
+			}
+			return ColumnType.STRING;
+		}
+
+		private static boolean isInteger(final String value)
+		{
+			final int length = value.length();
+			int i = (length > 0) && ((value.charAt(0) == '-') || (value.charAt(0) == '+')) ? 1 : 0;
+			if (i == length)
+			{
+				return false;
+			}
+			for (; i < length; ++i)
+			{
+				final char c = value.charAt(i);
+				if ((c < '0') || (c > '9'))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Tests whether the specified integer value is written as its string
+		 * representation, i.e. without any plus sign or leading zero.
+		 * <p>
+		 * @param value the integer value to be tested
+		 * <p>
+		 * @return {@code true} if {@code value} is written as its string
+		 *         representation, {@code false} otherwise
+		 */
+		private static boolean isCanonicalInteger(final String value)
+		{
+			final int start = value.charAt(0) == '-' ? 1 : 0;
+			return (value.charAt(0) != '+') && ((value.charAt(start) != '0') || (value.length() == 1));
+		}
+
+		private static boolean isDecimal(final String value)
+		{
+			boolean hasDigit = false;
+			for (int i = 0; i < value.length(); ++i)
+			{
+				final char c = value.charAt(i);
+				if ((c >= '0') && (c <= '9'))
+				{
+					hasDigit = true;
+				}
+				else if ((c != '.') && (c != '-') && (c != '+') && (c != 'e') && (c != 'E'))
+				{
+					return false;
+				}
+			}
+			return hasDigit;
+		}
+
+		private void ensureCapacity()
+		{
+			if (size < capacity())
+			{
+				return;
+			}
+			final int capacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+			switch (type)
+			{
+				case INT:
+					ints = Arrays.copyOf(ints, capacity);
+					break;
+				case LONG:
+					longs = Arrays.copyOf(longs, capacity);
+					break;
+				case DOUBLE:
+					doubles = Arrays.copyOf(doubles, capacity);
+					break;
+				default:
+					codes = Arrays.copyOf(codes, capacity);
+			}
+			if (rawValues != null)
+			{
+				rawValues = Arrays.copyOf(rawValues, capacity);
+			}
+		}
+
+		private int capacity()
+		{
+			switch (type)
+			{
+				case INT:
+					return ints.length;
+				case LONG:
+					return longs.length;
+				case DOUBLE:
+					return doubles.length;
+				default:
+					return codes.length;
+			}
+		}
+
+		/**
+		 * Converts the values to the specified wider type.
+		 * <p>
+		 * @param newType the new type
+		 */
+		private void widen(final ColumnType newType)
+		{
+			final int capacity = capacity();
+			switch (newType)
+			{
+				case LONG:
+					longs = new long[capacity];
+					for (int i = 0; i < size; ++i)
+					{
+						longs[i] = ints[i];
+					}
+					break;
+				case DOUBLE:
+					doubles = new double[capacity];
+					if (rawValues == null)
+					{
+						rawValues = new String[capacity];
+					}
+					for (int i = 0; i < size; ++i)
+					{
+						// The integers are no longer written as their string representations
+						if (rawValues[i] == null)
+						{
+							rawValues[i] = getString(i);
+						}
+						doubles[i] = type == ColumnType.INT ? ints[i] : longs[i];
+					}
+					break;
+				default:
+					final String[] values = new String[size];
+					for (int i = 0; i < size; ++i)
+					{
+						values[i] = getString(i);
+					}
+					codes = new int[capacity];
+					dictionary = new ArrayList<String>();
+					dictionaryIndexes = new HashMap<String, Integer>();
+					doubles = null;
+					rawValues = null;
+					type = newType;
+					final int count = size;
+					size = 0;
+					for (int i = 0; i < count; ++i)
+					{
+						append(values[i]);
+					}
+			}
+			ints = null;
+			longs = newType == ColumnType.LONG ? longs : null;
+			type = newType;
+		}
+
+		/**
+		 * Returns the raw value of the element at the specified index.
+		 * <p>
+		 * @param index the index of the element
+		 * <p>
+		 * @return the raw value of the element at the specified index
+		 */
+		private String getString(final int index)
+		{
+			if ((rawValues != null) && (rawValues[index] != null))
+			{
+				return rawValues[index];
+			}
+			switch (type)
+			{
+				case INT:
+					return String.valueOf(ints[index]);
+				case LONG:
+					return String.valueOf(longs[index]);
+				default:
+					return Double.isNaN(doubles[index]) ? Strings.EMPTY : String.valueOf(doubles[index]);
+			}
+		}
+
+		private Column build()
+		{
+			switch (type)
+			{
+				case INT:
+					return new IntColumn(name, Arrays.copyOf(ints, size));
+				case LONG:
+					return new LongColumn(name, Arrays.copyOf(longs, size));
+				case DOUBLE:
+					return new DoubleColumn(name, Arrays.copyOf(doubles, size));
+				default:
+					return new StringColumn(name, Arrays.copyOf(codes, size), dictionary.toArray(new String[dictionary.size()]));
+			}
+		}
+	}
+}
@@ -23,6 +23,11 @@
  */
 package jeo.common.structure;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import jeo.common.math.Statistics;
 
 public class NumberTable<T extends Number>
@@ -36,6 +41,10 @@ public class NumberTable<T extends Number>
 	 * Generated serial version ID.
 	 */
 	private static final long serialVersionUID = -6780581322570406940L;
+	/**
+	 * The minimum number of elements of the tables aggregated in parallel.
+	 */
+	public static volatile int PARALLEL_THRESHOLD = 1 << 16;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -67,12 +76,7 @@ public class NumberTable<T extends Number>
 	 */
 	public Double[] getRowMeans()
 	{
-		final Double[] means = new Double[m];
-		for (int i = 0; i < m; ++i)
-		{
-			means[i] = Statistics.<T>getMean(getRow(i));
-		}
-		return means;
+		return toObjects(aggregateRows(Aggregate.MEAN));
 	}
 
 	/**
@@ -82,11 +86,268 @@ public class NumberTable<T extends Number>
 	 */
 	public Double[] getColumnMeans()
 	{
-		final Double[] means = new Double[n];
-		for (int i = 0; i < n; ++i)
+		return toObjects(aggregateColumns(Aggregate.MEAN));
+	}
+
+	private static Double[] toObjects(final double[] values)
+	{
+		final Double[] objects = new Double[values.length];
+		for (int i = 0; i < values.length; ++i)
+		{
+			objects[i] = values[i];
+		}
+		return objects;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// REDUCTIONS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the sum of the elements of the specified view (without the
+	 * {@code null} and {@code NaN} elements).
+	 * <p>
+	 * @param view the {@link View} of the row or the column to be summed
+	 * <p>
+	 * @return the sum of the elements of {@code view}
+	 */
+	public double sum(final View view)
+	{
+		final int size = view.size();
+		double sum = 0.;
+		for (int i = 0; i < size; ++i)
+		{
+			final T element = view.get(i);
+			if (element != null)
+			{
+				final double value = element.doubleValue();
+				if (!Double.isNaN(value))
+				{
+					sum += value;
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the mean of the elements of the specified view, as
+	 * {@link Statistics#getMean(Number[])} does.
+	 * <p>
+	 * @param view the {@link View} of the row or the column
+	 * <p>
+	 * @return the mean of the elements of {@code view}
+	 */
+	public double mean(final View view)
+	{
+		return sum(view) / view.size();
+	}
+
+	/**
+	 * Returns the variance of the elements of the specified view, as
+	 * {@link Statistics#getVariance(Number[])} does.
+	 * <p>
+	 * @param view the {@link View} of the row or the column
+	 * <p>
+	 * @return the variance of the elements of {@code view}
+	 */
+	public double variance(final View view)
+	{
+		final double mean = mean(view);
+		final int size = view.size();
+		double sum = 0.;
+		for (int i = 0; i < size; ++i)
 		{
-			means[i] = Statistics.<T>getMean(getColumn(i));
+			final T element = view.get(i);
+			if (element != null)
+			{
+				final double value = element.doubleValue();
+				if (!Double.isNaN(value))
+				{
+					sum += (value - mean) * (value - mean);
+				}
+			}
 		}
-		return means;
+		return sum / size;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// AGGREGATION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the specified aggregate of each row. The rows are processed by
+	 * blocks in the common {@link ForkJoinPool} if the table contains at least
+	 * {@link #PARALLEL_THRESHOLD} elements.
+	 * <p>
+	 * @param aggregate the {@link Aggregate} to be computed
+	 * <p>
+	 * @return the specified aggregate of each row
+	 */
+	public double[] aggregateRows(final Aggregate aggregate)
+	{
+		final double[] result = new double[m];
+		forEachBlock((from, to) ->
+		{
+			final RowView view = getRowView();
+			for (int i = from; i < to; ++i)
+			{
+				result[i] = aggregate(aggregate, view.moveTo(i));
+			}
+			return null;
+		});
+		return result;
+	}
+
+	/**
+	 * Returns the specified aggregate of each column. The rows are processed
+	 * by blocks in the common {@link ForkJoinPool} if the table contains at
+	 * least {@link #PARALLEL_THRESHOLD} elements, each block computing the
+	 * partial sums of all the columns, so that the table is read row per row.
+	 * <p>
+	 * @param aggregate the {@link Aggregate} to be computed
+	 * <p>
+	 * @return the specified aggregate of each column
+	 */
+	public double[] aggregateColumns(final Aggregate aggregate)
+	{
+		// Sum the columns
+		final double[] sums = sumColumns(null);
+		if (aggregate == Aggregate.SUM)
+		{
+			return sums;
+		}
+		// Compute the means
+		final double[] means = sums;
+		for (int j = 0; j < n; ++j)
+		{
+			means[j] /= m;
+		}
+		if (aggregate == Aggregate.MEAN)
+		{
+			return means;
+		}
+		// Compute the variances
+		final double[] variances = sumColumns(means);
+		for (int j = 0; j < n; ++j)
+		{
+			variances[j] /= m;
+		}
+		return variances;
+	}
+
+	private double aggregate(final Aggregate aggregate, final View view)
+	{
+		switch (aggregate)
+		{
+			case SUM:
+				return sum(view);
+			case MEAN:
+				return mean(view);
+			default:
+				return variance(view);
+		}
+	}
+
+	/**
+	 * Returns the sums of the elements of each column (without the
+	 * {@code null} and {@code NaN} elements), or the sums of their squared
+	 * deviations from the specified means if they are not {@code null}.
+	 * <p>
+	 * @param means the means of the columns (may be {@code null})
+	 * <p>
+	 * @return the sums of each column
+	 */
+	private double[] sumColumns(final double[] means)
+	{
+		final List<double[]> partialSums = forEachBlock((from, to) ->
+		{
+			final double[] sums = new double[n];
+			for (int i = from; i < to; ++i)
+			{
+				final T[] row = table[i];
+				for (int j = 0; j < n; ++j)
+				{
+					if (row[j] != null)
+					{
+						final double value = row[j].doubleValue();
+						if (!Double.isNaN(value))
+						{
+							sums[j] += means == null ? value : (value - means[j]) * (value - means[j]);
+						}
+					}
+				}
+			}
+			return sums;
+		});
+		final double[] sums = new double[n];
+		for (final double[] partialSum : partialSums)
+		{
+			for (int j = 0; j < n; ++j)
+			{
+				sums[j] += partialSum[j];
+			}
+		}
+		return sums;
+	}
+
+	/**
+	 * Applies the specified function to the blocks of rows and returns its
+	 * results in the order of the blocks.
+	 * <p>
+	 * @param <R>      the type of the results
+	 * @param function the {@link BlockFunction} to be applied
+	 * <p>
+	 * @return the results of {@code function} for each block
+	 */
+	private <R> List<R> forEachBlock(final BlockFunction<R> function)
+	{
+		final List<R> results = new ArrayList<R>();
+		if (((long) m * n < PARALLEL_THRESHOLD) || (m < 2))
+		{
+			results.add(function.apply(0, m));
+			return results;
+		}
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final int blocksNumber = Math.min(m, 4 * pool.getParallelism());
+		final List<ForkJoinTask<R>> tasks = new ArrayList<ForkJoinTask<R>>(blocksNumber);
+		for (int b = 0; b < blocksNumber; ++b)
+		{
+			final int from = (int) ((long) m * b / blocksNumber), to = (int) ((long) m * (b + 1) / blocksNumber);
+			tasks.add(pool.submit(() -> function.apply(from, to)));
+		}
+		for (final ForkJoinTask<R> task : tasks)
+		{
+			results.add(task.join());
+		}
+		return results;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// AGGREGATE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The aggregates of the rows and the columns.
+	 */
+	public enum Aggregate
+	{
+		SUM,
+		MEAN,
+		VARIANCE
+	}
+
+	/**
+	 * The function processing the rows in the range [{@code from},
+	 * {@code to}[.
+	 * <p>
+	 * @param <R> the type of the result
+	 */
+	private interface BlockFunction<R>
+	{
+		R apply(final int from, final int to);
 	}
 }
@@ -162,8 +162,7 @@ public class Table<T>
 	public T[] getRow(final int rowIndex)
 	{
 		// Check the argument(s)
-		Arguments.requireNonNegative(rowIndex);
-		Arguments.requireLessThan(rowIndex, m);
+		Arguments.requireIndex(rowIndex, m);
 		// Get the corresponding row
 		final T[] row = createArray(n);
 		for (int i = 0; i < n; ++i)
@@ -196,8 +195,7 @@ public class Table<T>
 	{
 		// Check the argument(s)
 		// - rowIndex
-		Arguments.requireNonNegative(rowIndex);
-		Arguments.requireLessThan(rowIndex, m);
+		Arguments.requireIndex(rowIndex, m);
 		// - row
 		Arguments.requireNonEmpty(row);
 		Arguments.requireMinimumSize(row, n);
@@ -220,8 +218,7 @@ public class Table<T>
 	{
 		// Check the argument(s)
 		// - rowIndex
-		Arguments.requireNonNegative(rowIndex);
-		Arguments.requireLessThan(rowIndex, m);
+		Arguments.requireIndex(rowIndex, m);
 		// - row
 		Arguments.requireNonEmpty(row);
 		Arguments.requireMinimumSize(row, n);
@@ -252,8 +249,7 @@ public class Table<T>
 	public T[] getColumn(final int columnIndex)
 	{
 		// Check the argument(s)
-		Arguments.requireNonNegative(columnIndex);
-		Arguments.requireLessThan(columnIndex, n);
+		Arguments.requireIndex(columnIndex, n);
 		// Get the corresponding column
 		final T[] column = createArray(m);
 		for (int i = 0; i < m; ++i)
@@ -286,8 +282,7 @@ public class Table<T>
 	{
 		// Check the argument(s)
 		// - columnIndex
-		Arguments.requireNonNegative(columnIndex);
-		Arguments.requireLessThan(columnIndex, n);
+		Arguments.requireIndex(columnIndex, n);
 		// - column
 		Arguments.requireNonEmpty(column);
 		Arguments.requireMinimumSize(column, m);
@@ -401,6 +396,237 @@ public class Table<T>
 	}
 
 
+	////////////////////////////////////////////////////////////////////////////
+	// VIEWS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a {@link RowView} positioned before the first row, which may be
+	 * moved over the rows with {@link View#next()} without copying them.
+	 * <p>
+	 * @return a {@link RowView} positioned before the first row
+	 */
+	public RowView getRowView()
+	{
+		return new RowView();
+	}
+
+	/**
+	 * Returns a {@link RowView} positioned on the row that is indexed by
+	 * {@code rowIndex}.
+	 * <p>
+	 * @param rowIndex the index of the row to be viewed
+	 * <p>
+	 * @return a {@link RowView} positioned on the row that is indexed by
+	 *         {@code rowIndex}
+	 */
+	public RowView getRowView(final int rowIndex)
+	{
+		final RowView view = new RowView();
+		view.moveTo(rowIndex);
+		return view;
+	}
+
+	/**
+	 * Returns a {@link ColumnView} positioned before the first column, which
+	 * may be moved over the columns with {@link View#next()} without copying
+	 * them.
+	 * <p>
+	 * @return a {@link ColumnView} positioned before the first column
+	 */
+	public ColumnView getColumnView()
+	{
+		return new ColumnView();
+	}
+
+	/**
+	 * Returns a {@link ColumnView} positioned on the column that is indexed by
+	 * {@code columnIndex}.
+	 * <p>
+	 * @param columnIndex the index of the column to be viewed
+	 * <p>
+	 * @return a {@link ColumnView} positioned on the column that is indexed by
+	 *         {@code columnIndex}
+	 */
+	public ColumnView getColumnView(final int columnIndex)
+	{
+		final ColumnView view = new ColumnView();
+		view.moveTo(columnIndex);
+		return view;
+	}
+
+	/**
+	 * A cursor viewing one row or one column of {@code this} in place: the
+	 * elements are read and written directly in the table, so that a single
+	 * view may be moved over all the rows or columns without any allocation.
+	 */
+	public abstract class View
+	{
+		/**
+		 * The index of the viewed row or column.
+		 */
+		protected int index = -1;
+
+		/**
+		 * Returns the index of the viewed row or column.
+		 * <p>
+		 * @return the index of the viewed row or column
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		/**
+		 * Moves {@code this} to the row or the column that is indexed by
+		 * {@code index}.
+		 * <p>
+		 * @param index the index of the row or the column to be viewed
+		 * <p>
+		 * @return {@code this}
+		 */
+		public View moveTo(final int index)
+		{
+			this.index = Arguments.requireIndex(index, count());
+			return this;
+		}
+
+		/**
+		 * Moves {@code this} to the next row or column.
+		 * <p>
+		 * @return {@code true} if there is a next row or column, {@code false}
+		 *         otherwise
+		 */
+		public boolean next()
+		{
+			if (index + 1 < count())
+			{
+				++index;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Moves {@code this} before the first row or column.
+		 */
+		public void reset()
+		{
+			index = -1;
+		}
+
+		/**
+		 * Returns the number of rows or columns that may be viewed.
+		 * <p>
+		 * @return the number of rows or columns that may be viewed
+		 */
+		protected abstract int count();
+
+		/**
+		 * Returns the number of elements in the viewed row or column.
+		 * <p>
+		 * @return the number of elements in the viewed row or column
+		 */
+		public abstract int size();
+
+		/**
+		 * Returns the element at the specified position in the viewed row or
+		 * column.
+		 * <p>
+		 * @param i the position of the element in the viewed row or column
+		 * <p>
+		 * @return the element at the specified position
+		 */
+		public abstract T get(final int i);
+
+		/**
+		 * Sets the element at the specified position in the viewed row or
+		 * column.
+		 * <p>
+		 * @param i       the position of the element in the viewed row or
+		 *                column
+		 * @param element the element to set
+		 */
+		public abstract void set(final int i, final T element);
+	}
+
+	/**
+	 * A {@link View} of a row.
+	 */
+	public class RowView
+		extends View
+	{
+		@Override
+		public RowView moveTo(final int rowIndex)
+		{
+			super.moveTo(rowIndex);
+			return this;
+		}
+
+		@Override
+		protected int count()
+		{
+			return m;
+		}
+
+		@Override
+		public int size()
+		{
+			return n;
+		}
+
+		@Override
+		public T get(final int j)
+		{
+			return table[index][j];
+		}
+
+		@Override
+		public void set(final int j, final T element)
+		{
+			table[index][j] = element;
+		}
+	}
+
+	/**
+	 * A {@link View} of a column.
+	 */
+	public class ColumnView
+		extends View
+	{
+		@Override
+		public ColumnView moveTo(final int columnIndex)
+		{
+			super.moveTo(columnIndex);
+			return this;
+		}
+
+		@Override
+		protected int count()
+		{
+			return n;
+		}
+
+		@Override
+		public int size()
+		{
+			return m;
+		}
+
+		@Override
+		public T get(final int i)
+		{
+			return table[i][index];
+		}
+
+		@Override
+		public void set(final int i, final T element)
+		{
+			table[i][index] = element;
+		}
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// ITERABLE
 	////////////////////////////////////////////////////////////////////////////
@@ -493,7 +719,7 @@ public class Table<T>
 		final StringBuilder buffer = new StringBuilder(2 * m * n);
 		for (int i = 0; i < m; ++i)
 		{
-			buffer.append(Strings.arrayToString(getRow(i), "\t")).append("\n");
+			buffer.append(Strings.arrayToString(table[i], "\t")).append("\n");
 		}
 		return String.valueOf(buffer);
 	}
@@ -123,11 +123,14 @@ public class AVLTreeMap<K extends Comparable<K>, V>
 				// The new node is the right node of parent
 				parent.setRightNode(newNode);
 			}
+			// Update the sizes of the subtrees containing the new node
+			updateSizes(parent, 1);
 			// Balance if necessary
 			balance(newNode);
 		}
 		// Increase the size of this tree
 		++size;
+		++modCount;
 		// Return null since no previous value exists
 		return null;
 	}
@@ -177,6 +180,11 @@ public class AVLTreeMap<K extends Comparable<K>, V>
 			{
 				parentNode.setRightNode(childNode);
 			}
+			// Update the sizes of the subtrees which contained the node
+			updateSizes(parentNode, -1);
+			// Decrement the number of nodes
+			--size;
+			++modCount;
 		}
 		// 2 children (this tree is not guaranteed to be balanced)
 		else
@@ -185,6 +193,7 @@ public class AVLTreeMap<K extends Comparable<K>, V>
 			// Note: the successor cannot be null since the node has a right node
 			final AVLBinaryNode<K, V> successor = getSuccessor(node);
 			// Remove the successor from this tree
+			// Note: the number of nodes is decremented by this removal
 			removeNode(successor);
 			// Override the key and value of the node with the successor
 			node.key = successor.key;
@@ -192,8 +201,6 @@ public class AVLTreeMap<K extends Comparable<K>, V>
 			// Balance this tree from the node
 			balanceAfterDeletion(node);
 		}
-		// Decrement the number of nodes
-		--size;
 	}
 
 
@@ -23,10 +23,15 @@
  */
 package jeo.common.structure.tree;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.SortedMap;
 
 import jeo.common.io.IOManager;
 import jeo.common.structure.ExtendedList;
@@ -36,6 +41,7 @@ import jeo.common.util.Strings;
 
 public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNode<K, V, N>>
 	extends Tree<K, V, N>
+	implements SortedMap<K, V>
 {
 	////////////////////////////////////////////////////////////////////////////
 	// ATTRIBUTE(S)
@@ -46,6 +52,16 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 	 */
 	private static final long serialVersionUID = 7422191110233616440L;
 
+	/**
+	 * The number of structural modifications of this tree (used to make the
+	 * iterators fail-fast).
+	 */
+	protected transient int modCount = 0;
+	/**
+	 * The view of the mappings contained in this tree.
+	 */
+	private transient Set<Entry<K, V>> entrySet = null;
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// CONSTRUCTOR(S)
@@ -99,6 +115,160 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 		return null;
 	}
 
+	/**
+	 * Returns the node with the least key greater than (or equal to if
+	 * {@code inclusive}) the specified key, or {@code null} if there is no such
+	 * node.
+	 * <p>
+	 * @param key       the key to be searched
+	 * @param inclusive the flag specifying whether the node with the key is
+	 *                  returned if present
+	 * <p>
+	 * @return the node with the least key greater than (or equal to)
+	 *         {@code key}, or {@code null} if there is no such node
+	 */
+	protected N getCeilingNode(final K key, final boolean inclusive)
+	{
+		N node = root;
+		N ceilingNode = null;
+		int cmp;
+		while (node != null)
+		{
+			cmp = key.compareTo(node.key);
+			if ((cmp < 0) || ((cmp == 0) && inclusive))
+			{
+				if (cmp == 0)
+				{
+					return node;
+				}
+				ceilingNode = node;
+				node = node.left;
+			}
+			else
+			{
+				node = node.right;
+			}
+		}
+		return ceilingNode;
+	}
+
+	/**
+	 * Returns the node with the greatest key less than (or equal to if
+	 * {@code inclusive}) the specified key, or {@code null} if there is no such
+	 * node.
+	 * <p>
+	 * @param key       the key to be searched
+	 * @param inclusive the flag specifying whether the node with the key is
+	 *                  returned if present
+	 * <p>
+	 * @return the node with the greatest key less than (or equal to)
+	 *         {@code key}, or {@code null} if there is no such node
+	 */
+	protected N getFloorNode(final K key, final boolean inclusive)
+	{
+		N node = root;
+		N floorNode = null;
+		int cmp;
+		while (node != null)
+		{
+			cmp = key.compareTo(node.key);
+			if ((cmp > 0) || ((cmp == 0) && inclusive))
+			{
+				if (cmp == 0)
+				{
+					return node;
+				}
+				floorNode = node;
+				node = node.right;
+			}
+			else
+			{
+				node = node.left;
+			}
+		}
+		return floorNode;
+	}
+
+	/**
+	 * Returns the mapping with the least key in this tree, or {@code null} if
+	 * this tree is empty.
+	 * <p>
+	 * @return the mapping with the least key in this tree, or {@code null} if
+	 *         this tree is empty
+	 */
+	public Entry<K, V> firstEntry()
+	{
+		return getFirstEntry();
+	}
+
+	/**
+	 * Returns the mapping with the greatest key in this tree, or {@code null}
+	 * if this tree is empty.
+	 * <p>
+	 * @return the mapping with the greatest key in this tree, or {@code null}
+	 *         if this tree is empty
+	 */
+	public Entry<K, V> lastEntry()
+	{
+		return getLastEntry();
+	}
+
+	/**
+	 * Returns the mapping with the least key greater than or equal to the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the mapping with the least key greater than or equal to
+	 *         {@code key}, or {@code null} if there is no such key
+	 */
+	public Entry<K, V> ceilingEntry(final K key)
+	{
+		return getCeilingNode(key, true);
+	}
+
+	/**
+	 * Returns the mapping with the least key strictly greater than the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the mapping with the least key strictly greater than
+	 *         {@code key}, or {@code null} if there is no such key
+	 */
+	public Entry<K, V> higherEntry(final K key)
+	{
+		return getCeilingNode(key, false);
+	}
+
+	/**
+	 * Returns the mapping with the greatest key less than or equal to the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the mapping with the greatest key less than or equal to
+	 *         {@code key}, or {@code null} if there is no such key
+	 */
+	public Entry<K, V> floorEntry(final K key)
+	{
+		return getFloorNode(key, true);
+	}
+
+	/**
+	 * Returns the mapping with the greatest key strictly less than the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the mapping with the greatest key strictly less than
+	 *         {@code key}, or {@code null} if there is no such key
+	 */
+	public Entry<K, V> lowerEntry(final K key)
+	{
+		return getFloorNode(key, false);
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// DELETION
@@ -128,8 +298,10 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 		// Remove the node from this tree if present
 		if (node != null)
 		{
+			// Note: the node may be overridden by its successor during the removal
+			final V value = node.value;
 			removeNode(node);
-			return node.value;
+			return value;
 		}
 		return null;
 	}
@@ -195,6 +367,9 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 		// Update the children of the rotated nodes
 		treeRoot.setRightNode(rotatedTreeRoot.left);
 		rotatedTreeRoot.setLeftNode(treeRoot);
+		// Update the sizes of the rotated subtrees
+		updateSize(treeRoot);
+		updateSize(rotatedTreeRoot);
 		return rotatedTreeRoot;
 	}
 
@@ -228,6 +403,9 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 		// Update the children of the rotated nodes
 		treeRoot.setLeftNode(rotatedTreeRoot.right);
 		rotatedTreeRoot.setRightNode(treeRoot);
+		// Update the sizes of the rotated subtrees
+		updateSize(treeRoot);
+		updateSize(rotatedTreeRoot);
 		return rotatedTreeRoot;
 	}
 
@@ -258,6 +436,51 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 	}
 
 
+	////////////////////////////////////////////////////////////////////////////
+	// SIZES
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the number of nodes in the subtree whose root is the specified
+	 * node.
+	 * <p>
+	 * @param node the root of the subtree
+	 * <p>
+	 * @return the number of nodes in the subtree whose root is {@code node},
+	 *         or {@code 0} if {@code node} is {@code null}
+	 */
+	protected int getSize(final N node)
+	{
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Updates the size of the subtree whose root is the specified node from
+	 * the sizes of its children.
+	 * <p>
+	 * @param node the root of the subtree
+	 */
+	protected void updateSize(final N node)
+	{
+		node.size = 1 + getSize(node.left) + getSize(node.right);
+	}
+
+	/**
+	 * Adds the specified difference to the sizes of the subtrees from the
+	 * specified node up to the root of this tree.
+	 * <p>
+	 * @param node       the first node to be updated
+	 * @param difference the difference to be added
+	 */
+	protected void updateSizes(final N node, final int difference)
+	{
+		for (N parent = node; parent != null; parent = parent.parent)
+		{
+			parent.size += difference;
+		}
+	}
+
+
 	////////////////////////////////////////////////////////////////////////////
 	// SETTER
 	////////////////////////////////////////////////////////////////////////////
@@ -403,6 +626,7 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 	{
 		root = null;
 		size = 0;
+		++modCount;
 	}
 
 	/**
@@ -458,116 +682,406 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 	 * and vice-versa. If this tree is modified while an iteration over the set
 	 * is in progress (except through the iterator's own {@code remove}
 	 * operation, or through the {@code setValue} operation on a map entry
-	 * returned by the iterator) the results of the iteration are undefined. The
-	 * set supports element removal, which removes the corresponding mapping
-	 * from this tree, via the {@link Iterator.remove}, {@link Set.remove},
-	 * {@code removeAll}, {@code retainAll} and {@code clear} operations. It
-	 * does not support the {@code add} or {@code addAll} operations.
+	 * returned by the iterator) the iterator throws a
+	 * {@link ConcurrentModificationException}. The set supports element
+	 * removal, which removes the corresponding mapping from this tree, via the
+	 * {@link Iterator#remove}, {@link Set#remove}, {@code removeAll},
+	 * {@code retainAll} and {@code clear} operations. It does not support the
+	 * {@code add} or {@code addAll} operations.
 	 * <p>
 	 * @return a {@link Set} view of the mappings contained in this tree
 	 */
 	@Override
 	public Set<Entry<K, V>> entrySet()
 	{
-		return getEntries(root, new TreeSet<Entry<K, V>>());
+		if (entrySet == null)
+		{
+			entrySet = new SubMap(null, false, null, false).entrySet();
+		}
+		return entrySet;
 	}
 
 	/**
-	 * Performs the in-order traversal of the specified tree and returns the
-	 * visited nodes in the specified set.
+	 * Returns the number of key-value mappings in this tree.
 	 * <p>
-	 * @param treeRoot the root of the tree
-	 * @param set      the set to be filled
+	 * @return the number of key-value mappings in this tree
+	 */
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SORTED MAP
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code null} since this tree uses the natural ordering of its
+	 * keys.
+	 * <p>
+	 * @return {@code null}
+	 */
+	@Override
+	public Comparator<? super K> comparator()
+	{
+		return null;
+	}
+
+	/**
+	 * Returns the least key currently in this tree.
+	 * <p>
+	 * @return the least key currently in this tree
+	 * <p>
+	 * @throws NoSuchElementException if this tree is empty
+	 */
+	@Override
+	public K firstKey()
+	{
+		return getKey(getFirstEntry());
+	}
+
+	/**
+	 * Returns the greatest key currently in this tree.
+	 * <p>
+	 * @return the greatest key currently in this tree
+	 * <p>
+	 * @throws NoSuchElementException if this tree is empty
+	 */
+	@Override
+	public K lastKey()
+	{
+		return getKey(getLastEntry());
+	}
+
+	/**
+	 * Returns a view of the portion of this tree whose keys range from
+	 * {@code fromKey} (inclusive) to {@code toKey} (exclusive). The view is
+	 * backed by this tree and is browsed with the successors of its first node,
+	 * so that no mapping is copied.
+	 * <p>
+	 * @param fromKey the low endpoint (inclusive) of the keys in the view
+	 * @param toKey   the high endpoint (exclusive) of the keys in the view
 	 * <p>
-	 * @return the nodes of this tree in {@code set}
+	 * @return a view of the portion of this tree whose keys range from
+	 *         {@code fromKey} (inclusive) to {@code toKey} (exclusive)
+	 * <p>
+	 * @throws IllegalArgumentException if {@code fromKey} is greater than
+	 *                                  {@code toKey}
+	 * @throws NullPointerException     if {@code fromKey} or {@code toKey} is
+	 *                                  null
 	 */
-	public Set<Entry<K, V>> getEntries(final N treeRoot, final Set<Entry<K, V>> set)
+	@Override
+	public SortedMap<K, V> subMap(final K fromKey, final K toKey)
 	{
-		if (treeRoot != null)
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this tree whose keys range from
+	 * {@code fromKey} to {@code toKey}.
+	 * <p>
+	 * @param fromKey       the low endpoint of the keys in the view
+	 * @param fromInclusive the flag specifying whether the low endpoint is
+	 *                      included in the view
+	 * @param toKey         the high endpoint of the keys in the view
+	 * @param toInclusive   the flag specifying whether the high endpoint is
+	 *                      included in the view
+	 * <p>
+	 * @return a view of the portion of this tree whose keys range from
+	 *         {@code fromKey} to {@code toKey}
+	 * <p>
+	 * @throws IllegalArgumentException if {@code fromKey} is greater than
+	 *                                  {@code toKey}
+	 * @throws NullPointerException     if {@code fromKey} or {@code toKey} is
+	 *                                  null
+	 */
+	public SortedMap<K, V> subMap(final K fromKey, final boolean fromInclusive, final K toKey, final boolean toInclusive)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(fromKey);
+		Arguments.requireNonNull(toKey);
+		if (fromKey.compareTo(toKey) > 0)
 		{
-			getEntries(treeRoot.left, set);
-			set.add(treeRoot);
-			getEntries(treeRoot.right, set);
+			throw new IllegalArgumentException("The low endpoint is greater than the high endpoint");
 		}
-		return set;
+		// Process
+		return new SubMap(fromKey, fromInclusive, toKey, toInclusive);
 	}
 
 	/**
-	 * Returns the number of key-value mappings in this tree.
+	 * Returns a view of the portion of this tree whose keys are strictly less
+	 * than {@code toKey}.
 	 * <p>
-	 * @return the number of key-value mappings in this tree
+	 * @param toKey the high endpoint (exclusive) of the keys in the view
+	 * <p>
+	 * @return a view of the portion of this tree whose keys are strictly less
+	 *         than {@code toKey}
+	 * <p>
+	 * @throws NullPointerException if {@code toKey} is null
 	 */
 	@Override
-	public int size()
+	public SortedMap<K, V> headMap(final K toKey)
 	{
-		return size;
+		return headMap(toKey, false);
+	}
+
+	/**
+	 * Returns a view of the portion of this tree whose keys are less than (or
+	 * equal to if {@code inclusive}) {@code toKey}.
+	 * <p>
+	 * @param toKey     the high endpoint of the keys in the view
+	 * @param inclusive the flag specifying whether the high endpoint is
+	 *                  included in the view
+	 * <p>
+	 * @return a view of the portion of this tree whose keys are less than (or
+	 *         equal to) {@code toKey}
+	 * <p>
+	 * @throws NullPointerException if {@code toKey} is null
+	 */
+	public SortedMap<K, V> headMap(final K toKey, final boolean inclusive)
+	{
+		return new SubMap(null, false, Arguments.requireNonNull(toKey), inclusive);
+	}
+
+	/**
+	 * Returns a view of the portion of this tree whose keys are greater than
+	 * or equal to {@code fromKey}.
+	 * <p>
+	 * @param fromKey the low endpoint (inclusive) of the keys in the view
+	 * <p>
+	 * @return a view of the portion of this tree whose keys are greater than
+	 *         or equal to {@code fromKey}
+	 * <p>
+	 * @throws NullPointerException if {@code fromKey} is null
+	 */
+	@Override
+	public SortedMap<K, V> tailMap(final K fromKey)
+	{
+		return tailMap(fromKey, true);
+	}
+
+	/**
+	 * Returns a view of the portion of this tree whose keys are greater than
+	 * (or equal to if {@code inclusive}) {@code fromKey}.
+	 * <p>
+	 * @param fromKey   the low endpoint of the keys in the view
+	 * @param inclusive the flag specifying whether the low endpoint is
+	 *                  included in the view
+	 * <p>
+	 * @return a view of the portion of this tree whose keys are greater than
+	 *         (or equal to) {@code fromKey}
+	 * <p>
+	 * @throws NullPointerException if {@code fromKey} is null
+	 */
+	public SortedMap<K, V> tailMap(final K fromKey, final boolean inclusive)
+	{
+		return new SubMap(Arguments.requireNonNull(fromKey), inclusive, null, false);
+	}
+
+	/**
+	 * Returns the key of the specified node.
+	 * <p>
+	 * @param node a node
+	 * <p>
+	 * @return the key of {@code node}
+	 * <p>
+	 * @throws NoSuchElementException if {@code node} is null
+	 */
+	protected K getKey(final N node)
+	{
+		if (node == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return node.key;
 	}
 
 
 	////////////////////////////////////////////////////////////////////////////
-	// LIST
+	// ORDER STATISTICS
 	////////////////////////////////////////////////////////////////////////////
 
 	/**
-	 * Performs the in-order traversal of this tree and returns the keys of the
-	 * visited nodes in a list.
+	 * Returns the mapping with the specified rank in this tree (i.e. the
+	 * mapping whose key is greater than exactly {@code index} keys) in
+	 * O(log n).
 	 * <p>
-	 * @return a list of the keys of the nodes of this tree
+	 * @param index the rank of the mapping (from {@code 0} to {@code size - 1})
+	 * <p>
+	 * @return the mapping with the specified rank in this tree
+	 * <p>
+	 * @throws IllegalArgumentException if {@code index} is out of bounds
 	 */
-	public List<K> getKeys()
+	public Entry<K, V> select(final int index)
 	{
-		final List<K> keys = new ExtendedList<K>(size);
-		getKeys(root, keys);
-		return keys;
+		// Check the argument(s)
+		Arguments.requireIndex(index, size);
+		// Process
+		N node = root;
+		int rank = index;
+		int leftSize;
+		while (true)
+		{
+			leftSize = getSize(node.left);
+			if (rank < leftSize)
+			{
+				node = node.left;
+			}
+			else if (rank > leftSize)
+			{
+				rank -= leftSize + 1;
+				node = node.right;
+			}
+			else
+			{
+				return node;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of keys strictly less than the specified key in
+	 * O(log n).
+	 * <p>
+	 * @param key the key to be ranked
+	 * <p>
+	 * @return the number of keys strictly less than {@code key}
+	 */
+	public int rank(final K key)
+	{
+		return rank(key, false);
 	}
 
 	/**
-	 * Performs the in-order traversal of the tree whose root is
-	 * {@code treeRoot} and returns the keys of the visited nodes in
-	 * {@code keys}.
+	 * Returns the number of keys less than (or equal to if {@code inclusive})
+	 * the specified key in O(log n).
+	 * <p>
+	 * @param key       the key to be ranked
+	 * @param inclusive the flag specifying whether the key is counted if
+	 *                  present
 	 * <p>
-	 * @param treeRoot the root of the tree
-	 * @param keys     the list of the keys of the nodes of the tree
+	 * @return the number of keys less than (or equal to) {@code key}
 	 */
-	protected void getKeys(final N treeRoot, final List<K> keys)
+	public int rank(final K key, final boolean inclusive)
 	{
-		if (treeRoot != null)
+		N node = root;
+		int rank = 0;
+		int cmp;
+		while (node != null)
 		{
-			getKeys(treeRoot.left, keys);
-			keys.add(treeRoot.key);
-			getKeys(treeRoot.right, keys);
+			cmp = key.compareTo(node.key);
+			if (cmp < 0)
+			{
+				node = node.left;
+			}
+			else if (cmp > 0)
+			{
+				rank += getSize(node.left) + 1;
+				node = node.right;
+			}
+			else
+			{
+				return rank + getSize(node.left) + (inclusive ? 1 : 0);
+			}
 		}
+		return rank;
 	}
 
 	/**
-	 * Performs the in-order traversal of this tree and returns the values of
-	 * the visited nodes in a list.
+	 * Returns the number of keys ranging from {@code fromKey} to
+	 * {@code toKey} in O(log n).
 	 * <p>
-	 * @return a list of the values of the nodes of this tree
+	 * @param fromKey       the low endpoint of the keys to be counted
+	 * @param fromInclusive the flag specifying whether the low endpoint is
+	 *                      counted
+	 * @param toKey         the high endpoint of the keys to be counted
+	 * @param toInclusive   the flag specifying whether the high endpoint is
+	 *                      counted
+	 * <p>
+	 * @return the number of keys ranging from {@code fromKey} to {@code toKey}
 	 */
-	public List<V> getValues()
+	public int count(final K fromKey, final boolean fromInclusive, final K toKey, final boolean toInclusive)
 	{
-		final List<V> values = new ExtendedList<V>(size);
-		getValues(root, values);
-		return values;
+		final int count = rank(toKey, toInclusive) - rank(fromKey, !fromInclusive);
+		return count > 0 ? count : 0;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ITERATORS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns an iterator over the keys of this tree in ascending order. The
+	 * iterator browses the nodes with their successors, so that neither the
+	 * tree nor a stack is copied.
+	 * <p>
+	 * @return an iterator over the keys of this tree in ascending order
+	 */
+	public Iterator<K> keyIterator()
+	{
+		return new KeyIterator(getFirstEntry(), null);
+	}
+
+	/**
+	 * Returns an iterator over the values of this tree in ascending order of
+	 * their keys.
+	 * <p>
+	 * @return an iterator over the values of this tree in ascending order of
+	 *         their keys
+	 */
+	public Iterator<V> valueIterator()
+	{
+		return new ValueIterator(getFirstEntry(), null);
+	}
+
+	/**
+	 * Returns an iterator over the nodes of this tree in ascending key order.
+	 * <p>
+	 * @return an iterator over the nodes of this tree in ascending key order
+	 */
+	public Iterator<Entry<K, V>> entryIterator()
+	{
+		return new EntryIterator(getFirstEntry(), null);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// LIST
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Performs the in-order traversal of this tree and returns the keys of the
+	 * visited nodes in a list.
+	 * <p>
+	 * @return a list of the keys of the nodes of this tree
+	 */
+	public List<K> getKeys()
+	{
+		final List<K> keys = new ExtendedList<K>(size);
+		for (N node = getFirstEntry(); node != null; node = getSuccessor(node))
+		{
+			keys.add(node.key);
+		}
+		return keys;
 	}
 
 	/**
-	 * Performs the in-order traversal of the tree whose root is
-	 * {@code treeRoot} and returns the values of the visited nodes in
-	 * {@code values}.
+	 * Performs the in-order traversal of this tree and returns the values of
+	 * the visited nodes in a list.
 	 * <p>
-	 * @param treeRoot the root of the tree
-	 * @param values   the list of the values of the nodes of the tree
+	 * @return a list of the values of the nodes of this tree
 	 */
-	protected void getValues(final N treeRoot, final List<V> values)
+	public List<V> getValues()
 	{
-		if (treeRoot != null)
+		final List<V> values = new ExtendedList<V>(size);
+		for (N node = getFirstEntry(); node != null; node = getSuccessor(node))
 		{
-			getValues(treeRoot.left, values);
-			values.add(treeRoot.value);
-			getValues(treeRoot.right, values);
+			values.add(node.value);
 		}
+		return values;
 	}
 
 
@@ -623,9 +1137,438 @@ public abstract class BinaryTree<K extends Comparable<K>, V, N extends BinaryNod
 	////////////////////////////////////////////////////////////////////////////
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public Object clone()
 		throws CloneNotSupportedException
 	{
-		return super.clone();
+		final BinaryTree<K, V, N> clone = (BinaryTree<K, V, N>) super.clone();
+		clone.entrySet = null;
+		return clone;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// NODE ITERATORS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The fail-fast iterator browsing the nodes of this tree in ascending key
+	 * order with their successors, up to the node holding the fence key.
+	 * <p>
+	 * @param <T> the type of the returned elements
+	 */
+	private abstract class NodeIterator<T>
+		implements Iterator<T>
+	{
+		/**
+		 * The next node to be returned and the last returned node.
+		 */
+		private N next;
+		private N lastReturned = null;
+		/**
+		 * The key of the first node not to be returned, or {@code null} to
+		 * browse the nodes up to the last one.
+		 * <p>
+		 * Note: the keys are compared by reference since the key of a removed
+		 * node is moved to the node of its predecessor.
+		 */
+		private final K fenceKey;
+		private int expectedModCount = modCount;
+
+		protected NodeIterator(final N first, final K fenceKey)
+		{
+			next = first;
+			this.fenceKey = fenceKey;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return (next != null) && (next.key != fenceKey);
+		}
+
+		protected N nextNode()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			if (modCount != expectedModCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			lastReturned = next;
+			next = getSuccessor(next);
+			return lastReturned;
+		}
+
+		@Override
+		public void remove()
+		{
+			if (lastReturned == null)
+			{
+				throw new IllegalStateException();
+			}
+			if (modCount != expectedModCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			// If the node has 2 children, it is overridden by its successor
+			if ((lastReturned.left != null) && (lastReturned.right != null))
+			{
+				next = lastReturned;
+			}
+			removeNode(lastReturned);
+			expectedModCount = modCount;
+			lastReturned = null;
+		}
+	}
+
+	private class KeyIterator
+		extends NodeIterator<K>
+	{
+		protected KeyIterator(final N first, final K fenceKey)
+		{
+			super(first, fenceKey);
+		}
+
+		@Override
+		public K next()
+		{
+			return nextNode().key;
+		}
+	}
+
+	private class ValueIterator
+		extends NodeIterator<V>
+	{
+		protected ValueIterator(final N first, final K fenceKey)
+		{
+			super(first, fenceKey);
+		}
+
+		@Override
+		public V next()
+		{
+			return nextNode().value;
+		}
+	}
+
+	private class EntryIterator
+		extends NodeIterator<Entry<K, V>>
+	{
+		protected EntryIterator(final N first, final K fenceKey)
+		{
+			super(first, fenceKey);
+		}
+
+		@Override
+		public Entry<K, V> next()
+		{
+			return nextNode();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SUB MAP
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The view of the portion of this tree whose keys range between two
+	 * (optional) endpoints.
+	 */
+	private class SubMap
+		extends AbstractMap<K, V>
+		implements SortedMap<K, V>
+	{
+		/**
+		 * The low and high endpoints (or {@code null} if unbounded).
+		 */
+		private final K fromKey, toKey;
+		private final boolean fromInclusive, toInclusive;
+		private transient Set<Entry<K, V>> entrySet = null;
+
+		protected SubMap(final K fromKey, final boolean fromInclusive, final K toKey, final boolean toInclusive)
+		{
+			this.fromKey = fromKey;
+			this.fromInclusive = fromInclusive;
+			this.toKey = toKey;
+			this.toInclusive = toInclusive;
+		}
+
+		private boolean isUnbounded()
+		{
+			return (fromKey == null) && (toKey == null);
+		}
+
+		private boolean isTooLow(final K key)
+		{
+			if (fromKey != null)
+			{
+				final int cmp = key.compareTo(fromKey);
+				return (cmp < 0) || ((cmp == 0) && !fromInclusive);
+			}
+			return false;
+		}
+
+		private boolean isTooHigh(final K key)
+		{
+			if (toKey != null)
+			{
+				final int cmp = key.compareTo(toKey);
+				return (cmp > 0) || ((cmp == 0) && !toInclusive);
+			}
+			return false;
+		}
+
+		@SuppressWarnings("unchecked")
+		private boolean isInRange(final Object key)
+		{
+			return !isTooLow((K) key) && !isTooHigh((K) key);
+		}
+
+		private boolean isInClosedRange(final K key)
+		{
+			return ((fromKey == null) || (key.compareTo(fromKey) >= 0)) && ((toKey == null) || (key.compareTo(toKey) <= 0));
+		}
+
+		private N getLowestNode()
+		{
+			final N node = fromKey == null ? getFirstEntry() : getCeilingNode(fromKey, fromInclusive);
+			return (node == null) || isTooHigh(node.key) ? null : node;
+		}
+
+		private N getHighestNode()
+		{
+			final N node = toKey == null ? getLastEntry() : getFloorNode(toKey, toInclusive);
+			return (node == null) || isTooLow(node.key) ? null : node;
+		}
+
+		private K getFenceKey()
+		{
+			if (toKey == null)
+			{
+				return null;
+			}
+			final N fence = getCeilingNode(toKey, !toInclusive);
+			return fence == null ? null : fence.key;
+		}
+
+		/**
+		 * Checks that the specified endpoint of a nested view is in the range
+		 * of this view: an inclusive endpoint must be in the range and an
+		 * exclusive endpoint may be one of the endpoints of this view.
+		 */
+		private K requireInRange(final K key, final boolean inclusive)
+		{
+			Arguments.requireNonNull(key);
+			if (inclusive ? !isInRange(key) : !isInClosedRange(key))
+			{
+				throw new IllegalArgumentException("The key is out of range");
+			}
+			return key;
+		}
+
+		/**
+		 * Returns the nested view of the intersection of this view with the
+		 * specified range, keeping the tighter endpoints.
+		 */
+		private SubMap intersect(final K fromKey, final boolean fromInclusive, final K toKey, final boolean toInclusive)
+		{
+			K lowKey = this.fromKey, highKey = this.toKey;
+			boolean lowInclusive = this.fromInclusive, highInclusive = this.toInclusive;
+			if (fromKey != null)
+			{
+				final int cmp = lowKey == null ? 1 : fromKey.compareTo(lowKey);
+				if (cmp >= 0)
+				{
+					lowInclusive = cmp > 0 ? fromInclusive : lowInclusive && fromInclusive;
+					lowKey = fromKey;
+				}
+			}
+			if (toKey != null)
+			{
+				final int cmp = highKey == null ? -1 : toKey.compareTo(highKey);
+				if (cmp <= 0)
+				{
+					highInclusive = cmp < 0 ? toInclusive : highInclusive && toInclusive;
+					highKey = toKey;
+				}
+			}
+			return new SubMap(lowKey, lowInclusive, highKey, highInclusive);
+		}
+
+		@Override
+		public V get(final Object key)
+		{
+			return isInRange(key) ? BinaryTree.this.get(key) : null;
+		}
+
+		@Override
+		public boolean containsKey(final Object key)
+		{
+			return isInRange(key) && BinaryTree.this.containsKey(key);
+		}
+
+		@Override
+		public V put(final K key, final V value)
+		{
+			if (!isInRange(Arguments.requireNonNull(key)))
+			{
+				throw new IllegalArgumentException("The key is out of range");
+			}
+			return BinaryTree.this.put(key, value);
+		}
+
+		@Override
+		public V remove(final Object key)
+		{
+			return isInRange(key) ? BinaryTree.this.remove(key) : null;
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet()
+		{
+			if (entrySet == null)
+			{
+				entrySet = new EntrySet();
+			}
+			return entrySet;
+		}
+
+		@Override
+		public int size()
+		{
+			final int count = (toKey == null ? size : rank(toKey, toInclusive)) - (fromKey == null ? 0 : rank(fromKey, !fromInclusive));
+			return count > 0 ? count : 0;
+		}
+
+		@Override
+		public boolean isEmpty()
+		{
+			return getLowestNode() == null;
+		}
+
+		@Override
+		public Comparator<? super K> comparator()
+		{
+			return null;
+		}
+
+		@Override
+		public K firstKey()
+		{
+			return getKey(getLowestNode());
+		}
+
+		@Override
+		public K lastKey()
+		{
+			return getKey(getHighestNode());
+		}
+
+		@Override
+		public SortedMap<K, V> subMap(final K fromKey, final K toKey)
+		{
+			requireInRange(fromKey, true);
+			requireInRange(toKey, false);
+			if (fromKey.compareTo(toKey) > 0)
+			{
+				throw new IllegalArgumentException("The low endpoint is greater than the high endpoint");
+			}
+			return intersect(fromKey, true, toKey, false);
+		}
+
+		@Override
+		public SortedMap<K, V> headMap(final K toKey)
+		{
+			return intersect(null, false, requireInRange(toKey, false), false);
+		}
+
+		@Override
+		public SortedMap<K, V> tailMap(final K fromKey)
+		{
+			return intersect(requireInRange(fromKey, true), true, null, false);
+		}
+
+		private class EntrySet
+			extends AbstractSet<Entry<K, V>>
+		{
+			@Override
+			public Iterator<Entry<K, V>> iterator()
+			{
+				return new EntryIterator(getLowestNode(), getFenceKey());
+			}
+
+			@Override
+			public int size()
+			{
+				return SubMap.this.size();
+			}
+
+			@Override
+			public boolean isEmpty()
+			{
+				return SubMap.this.isEmpty();
+			}
+
+			@Override
+			public boolean contains(final Object object)
+			{
+				return getNode(object) != null;
+			}
+
+			@Override
+			public boolean remove(final Object object)
+			{
+				final N node = getNode(object);
+				if (node != null)
+				{
+					removeNode(node);
+					return true;
+				}
+				return false;
+			}
+
+			@Override
+			public void clear()
+			{
+				if (isUnbounded())
+				{
+					BinaryTree.this.clear();
+				}
+				else
+				{
+					super.clear();
+				}
+			}
+
+			/**
+			 * Returns the node of the specified entry if it belongs to the
+			 * view, {@code null} otherwise.
+			 * <p>
+			 * @param object an {@link Object}
+			 * <p>
+			 * @return the node of {@code object} if it belongs to the view,
+			 *         {@code null} otherwise
+			 */
+			private N getNode(final Object object)
+			{
+				if (object instanceof Entry)
+				{
+					final Entry<?, ?> entry = (Entry<?, ?>) object;
+					if ((entry.getKey() != null) && isInRange(entry.getKey()))
+					{
+						final N node = BinaryTree.this.getNode(entry.getKey());
+						if ((node != null) && Arguments.equals(node.value, entry.getValue()))
+						{
+							return node;
+						}
+					}
+				}
+				return null;
+			}
+		}
 	}
 }
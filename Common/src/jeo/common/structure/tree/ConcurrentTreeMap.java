@@ -0,0 +1,601 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.structure.tree;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jeo.common.io.IOManager;
+import jeo.common.structure.ExtendedList;
+import jeo.common.structure.tree.node.Node;
+import jeo.common.util.Arguments;
+
+/**
+ * The concurrent sorted tree map. The nodes are immutable and stored in a
+ * lock-free {@link ConcurrentSkipListMap}: the readers never block and the
+ * writers on disjoint keys proceed in parallel. A write replaces the node of
+ * the key, so that the readers always see a consistent key-value pair.
+ * <p>
+ * The iterators are weakly consistent and the entries they return do not
+ * support {@code setValue}. Unlike {@link ConcurrentSkipListMap}, the
+ * {@code null} values are permitted.
+ */
+public class ConcurrentTreeMap<K extends Comparable<K>, V>
+	extends Tree<K, V, Node<K, V>>
+	implements ConcurrentMap<K, V>
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Generated serial version ID.
+	 */
+	private static final long serialVersionUID = 2384516630467155215L;
+
+	/**
+	 * The nodes of this tree sorted by key.
+	 */
+	private ConcurrentSkipListMap<K, Node<K, V>> nodes = new ConcurrentSkipListMap<K, Node<K, V>>();
+	/**
+	 * The number of entries in this tree.
+	 */
+	private LongAdder count = new LongAdder();
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public ConcurrentTreeMap()
+	{
+		super();
+	}
+
+	public ConcurrentTreeMap(final Map<? extends K, ? extends V> map)
+	{
+		super();
+		putAll(map);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// INSERT
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Associates the specified value with the specified key in this tree. If
+	 * this tree previously contained a mapping for the key, the old value is
+	 * replaced.
+	 * <p>
+	 * @param key   key with which the specified value is to be associated
+	 * @param value value to be associated with the specified key
+	 * <p>
+	 * @return the previous value associated with {@code key}, or {@code null}
+	 *         if there was no mapping for {@code key}. (A {@code null} return
+	 *         can also indicate that this tree previously associated
+	 *         {@code null} with {@code key}.)
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public V put(final K key, final V value)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(key);
+		// Process
+		final Node<K, V> previousNode = nodes.put(key, new ImmutableNode<K, V>(key, value));
+		if (previousNode == null)
+		{
+			count.increment();
+			return null;
+		}
+		return previousNode.value;
+	}
+
+	/**
+	 * Associates the specified value with the specified key in this tree if
+	 * the key is not already associated with a value.
+	 * <p>
+	 * @param key   key with which the specified value is to be associated
+	 * @param value value to be associated with the specified key
+	 * <p>
+	 * @return the value associated with {@code key}, or {@code null} if there
+	 *         was no mapping for {@code key}
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public V putIfAbsent(final K key, final V value)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(key);
+		// Process
+		final Node<K, V> previousNode = nodes.putIfAbsent(key, new ImmutableNode<K, V>(key, value));
+		if (previousNode == null)
+		{
+			count.increment();
+			return null;
+		}
+		return previousNode.value;
+	}
+
+	/**
+	 * Replaces the value of the specified key only if it is currently mapped to
+	 * some value.
+	 * <p>
+	 * @param key   key with which the specified value is associated
+	 * @param value value to be associated with the specified key
+	 * <p>
+	 * @return the previous value associated with {@code key}, or {@code null}
+	 *         if there was no mapping for {@code key}
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public V replace(final K key, final V value)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(key);
+		// Process
+		final Node<K, V> previousNode = nodes.replace(key, new ImmutableNode<K, V>(key, value));
+		return previousNode == null ? null : previousNode.value;
+	}
+
+	/**
+	 * Replaces the value of the specified key only if it is currently mapped to
+	 * the specified old value.
+	 * <p>
+	 * @param key      key with which the specified value is associated
+	 * @param oldValue value expected to be associated with the specified key
+	 * @param newValue value to be associated with the specified key
+	 * <p>
+	 * @return {@code true} if the value was replaced, {@code false} otherwise
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public boolean replace(final K key, final V oldValue, final V newValue)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(key);
+		// Process
+		// Note: the nodes are equal if their keys and values are equal
+		return nodes.replace(key, new ImmutableNode<K, V>(key, oldValue), new ImmutableNode<K, V>(key, newValue));
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SEARCH
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns this tree's node for the given key, or {@code null} if this tree
+	 * does not contain a node for the key.
+	 * <p>
+	 * @param key the key of the node to be searched
+	 * <p>
+	 * @return this tree's node for the given key, or {@code null} if this tree
+	 *         does not contain a node for the key
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	protected Node<K, V> getNode(final Comparable<? super K> key)
+	{
+		return nodes.get(key);
+	}
+
+	/**
+	 * Returns the node with the least key in this tree, or {@code null} if this
+	 * tree is empty.
+	 * <p>
+	 * @return the node with the least key in this tree, or {@code null} if this
+	 *         tree is empty
+	 */
+	public Entry<K, V> firstEntry()
+	{
+		final Entry<K, Node<K, V>> entry = nodes.firstEntry();
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the node with the greatest key in this tree, or {@code null} if
+	 * this tree is empty.
+	 * <p>
+	 * @return the node with the greatest key in this tree, or {@code null} if
+	 *         this tree is empty
+	 */
+	public Entry<K, V> lastEntry()
+	{
+		final Entry<K, Node<K, V>> entry = nodes.lastEntry();
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the node with the least key greater than or equal to the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the node with the least key greater than or equal to
+	 *         {@code key}, or {@code null} if there is no such key
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	public Entry<K, V> ceilingEntry(final K key)
+	{
+		final Entry<K, Node<K, V>> entry = nodes.ceilingEntry(key);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * Returns the node with the greatest key less than or equal to the
+	 * specified key, or {@code null} if there is no such key.
+	 * <p>
+	 * @param key the key to be searched
+	 * <p>
+	 * @return the node with the greatest key less than or equal to
+	 *         {@code key}, or {@code null} if there is no such key
+	 * <p>
+	 * @throws NullPointerException if the specified key is null
+	 */
+	public Entry<K, V> floorEntry(final K key)
+	{
+		final Entry<K, Node<K, V>> entry = nodes.floorEntry(key);
+		return entry == null ? null : entry.getValue();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// DELETION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Removes the mapping for this key from this tree if present.
+	 * <p>
+	 * @param key key for which mapping should be removed
+	 * <p>
+	 * @return the previous value associated with {@code key}, or {@code null}
+	 *         if there was no mapping for {@code key}
+	 * <p>
+	 * @throws ClassCastException   if the specified key cannot be compared with
+	 *                              the keys currently in this tree
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public V remove(final Object key)
+	{
+		final Node<K, V> node = nodes.remove(key);
+		if (node != null)
+		{
+			count.decrement();
+			return node.value;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the mapping for the specified key only if it is currently mapped
+	 * to the specified value.
+	 * <p>
+	 * @param key   key with which the specified value is associated
+	 * @param value value expected to be associated with the specified key
+	 * <p>
+	 * @return {@code true} if the mapping was removed, {@code false} otherwise
+	 * <p>
+	 * @throws ClassCastException   if the specified key cannot be compared with
+	 *                              the keys currently in this tree
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(final Object key, final Object value)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(key);
+		// Process
+		// Note: the nodes are equal if their keys and values are equal
+		if (nodes.remove(key, new Node<K, V>((K) key, (V) value)))
+		{
+			count.decrement();
+			return true;
+		}
+		return false;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ABSTRACT MAP
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Removes all of the mappings from this tree. The mappings inserted
+	 * concurrently may be retained.
+	 */
+	@Override
+	public void clear()
+	{
+		while (nodes.pollFirstEntry() != null)
+		{
+			count.decrement();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if this tree contains a mapping for the specified
+	 * key.
+	 * <p>
+	 * @param key key whose presence in this tree is to be tested
+	 * <p>
+	 * @return {@code true} if this tree contains a mapping for the specified
+	 *         key
+	 * <p>
+	 * @throws ClassCastException   if the specified key cannot be compared with
+	 *                              the keys currently in this tree
+	 * @throws NullPointerException if the specified key is null
+	 */
+	@Override
+	public boolean containsKey(final Object key)
+	{
+		return nodes.containsKey(key);
+	}
+
+	/**
+	 * Returns {@code true} if this tree maps one or more keys to the specified
+	 * value. This operation requires time linear in this tree size.
+	 * <p>
+	 * @param value value whose presence in this tree is to be tested
+	 * <p>
+	 * @return {@code true} if a mapping to {@code value} exists; {@code false}
+	 *         otherwise
+	 */
+	@Override
+	public boolean containsValue(final Object value)
+	{
+		for (final Node<K, V> node : nodes.values())
+		{
+			if (Arguments.equals(value, node.value))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a {@link Set} view of the mappings contained in this tree. The
+	 * set's iterator returns the entries in ascending key order and is weakly
+	 * consistent: it never throws {@link java.util.ConcurrentModificationException}
+	 * and reflects some (but not necessarily all) of the modifications made
+	 * after its creation. The set supports element removal, but not the
+	 * {@code add} or {@code addAll} operations.
+	 * <p>
+	 * @return a {@link Set} view of the mappings contained in this tree
+	 */
+	@Override
+	public Set<Entry<K, V>> entrySet()
+	{
+		return new EntrySet();
+	}
+
+	/**
+	 * Returns the number of key-value mappings in this tree. Under concurrent
+	 * modifications, the returned number is an estimate.
+	 * <p>
+	 * @return the number of key-value mappings in this tree
+	 */
+	@Override
+	public int size()
+	{
+		return count.intValue();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return nodes.isEmpty();
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// LIST
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the keys of this tree in ascending order in a list.
+	 * <p>
+	 * @return a list of the keys of the nodes of this tree
+	 */
+	public List<K> getKeys()
+	{
+		final List<K> keys = new ExtendedList<K>(size());
+		keys.addAll(nodes.keySet());
+		return keys;
+	}
+
+	/**
+	 * Returns the values of this tree in ascending order of their keys in a
+	 * list.
+	 * <p>
+	 * @return a list of the values of the nodes of this tree
+	 */
+	public List<V> getValues()
+	{
+		final List<V> values = new ExtendedList<V>(size());
+		for (final Node<K, V> node : nodes.values())
+		{
+			values.add(node.value);
+		}
+		return values;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// PRINT
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Prints all the nodes of this tree.
+	 */
+	@Override
+	public void print()
+	{
+		for (final Node<K, V> node : nodes.values())
+		{
+			IOManager.printLine(convertToString("Node", node), false);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// OBJECT
+	////////////////////////////////////////////////////////////////////////////
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object clone()
+		throws CloneNotSupportedException
+	{
+		final ConcurrentTreeMap<K, V> clone = (ConcurrentTreeMap<K, V>) super.clone();
+		// Share the immutable nodes
+		clone.nodes = new ConcurrentSkipListMap<K, Node<K, V>>(nodes);
+		clone.count = new LongAdder();
+		clone.count.add(clone.nodes.size());
+		return clone;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ENTRY SET
+	////////////////////////////////////////////////////////////////////////////
+
+	private class EntrySet
+		extends AbstractSet<Entry<K, V>>
+	{
+		@Override
+		public Iterator<Entry<K, V>> iterator()
+		{
+			final Iterator<Node<K, V>> iterator = nodes.values().iterator();
+			return new Iterator<Entry<K, V>>()
+			{
+				private Node<K, V> lastNode = null;
+
+				@Override
+				public boolean hasNext()
+				{
+					return iterator.hasNext();
+				}
+
+				@Override
+				public Entry<K, V> next()
+				{
+					lastNode = iterator.next();
+					return lastNode;
+				}
+
+				@Override
+				public void remove()
+				{
+					if (lastNode == null)
+					{
+						throw new IllegalStateException();
+					}
+					ConcurrentTreeMap.this.remove(lastNode.key, lastNode.value);
+					lastNode = null;
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(final Object object)
+		{
+			if (!(object instanceof Entry))
+			{
+				return false;
+			}
+			final Entry<?, ?> entry = (Entry<?, ?>) object;
+			final Node<K, V> node = getNode(entry.getKey());
+			return (node != null) && Arguments.equals(node.value, entry.getValue());
+		}
+
+		@Override
+		public boolean remove(final Object object)
+		{
+			if (!(object instanceof Entry))
+			{
+				return false;
+			}
+			final Entry<?, ?> entry = (Entry<?, ?>) object;
+			return ConcurrentTreeMap.this.remove(entry.getKey(), entry.getValue());
+		}
+
+		@Override
+		public int size()
+		{
+			return ConcurrentTreeMap.this.size();
+		}
+
+		@Override
+		public void clear()
+		{
+			ConcurrentTreeMap.this.clear();
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// IMMUTABLE NODE
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The node published in the skip list, whose value cannot be replaced in
+	 * place.
+	 */
+	private static class ImmutableNode<K extends Comparable<K>, V>
+		extends Node<K, V>
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = -3318730431658520064L;
+
+		private ImmutableNode(final K key, final V value)
+		{
+			super(key, value);
+		}
+
+		@Override
+		public V setValue(final V value)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -120,11 +120,14 @@ public class RedBlackTreeMap<K extends Comparable<K>, V>
 				// The new node is the right node of parent
 				parent.setRightNode(newNode);
 			}
+			// Update the sizes of the subtrees containing the new node
+			updateSizes(parent, 1);
 			// Balance if necessary
 			balanceAfterInsertion(newNode);
 		}
 		// Increase the size of this tree
 		++size;
+		++modCount;
 		// Return null since no previous value exists
 		return null;
 	}
@@ -181,12 +184,17 @@ public class RedBlackTreeMap<K extends Comparable<K>, V>
 			{
 				parentNode.setRightNode(childNode);
 			}
+			// Update the sizes of the subtrees which contained the node
+			updateSizes(parentNode, -1);
 			// If the node has at least one child and is black
 			if ((childNode != null) && !node.isRed)
 			{
 				// Balance this tree from the child
 				balanceAfterDeletion(childNode);
 			}
+			// Decrement the number of nodes
+			--size;
+			++modCount;
 		}
 		// 2 children (this tree is not guaranteed to be balanced)
 		else
@@ -195,13 +203,12 @@ public class RedBlackTreeMap<K extends Comparable<K>, V>
 			// Note: the successor cannot be null since the node has a right node
 			final RedBlackBinaryNode<K, V> successor = getSuccessor(node);
 			// Remove the successor from this tree
+			// Note: the number of nodes is decremented by this removal
 			removeNode(successor);
 			// Override the key and value of the node with the successor
 			node.key = successor.key;
 			node.value = successor.value;
 		}
-		// Decrement the number of nodes
-		--size;
 	}
 
 
@@ -368,7 +375,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V>
 					}
 					node.isRed = parent.isRed;
 					parent.isRed = false;
-					rightNode.isRed = false;
+					// Note: the right node may have been rotated
+					node.right.isRed = false;
 					rotateLeft(parent);
 					treeRoot = root;
 					break;
@@ -405,7 +413,8 @@ public class RedBlackTreeMap<K extends Comparable<K>, V>
 					}
 					node.isRed = parent.isRed;
 					parent.isRed = false;
-					leftNode.isRed = false;
+					// Note: the left node may have been rotated
+					node.left.isRed = false;
 					rotateRight(parent);
 					treeRoot = root;
 					break;
@@ -36,6 +36,10 @@ public abstract class BinaryNode<K extends Comparable<K>, V, N extends BinaryNod
 	private static final long serialVersionUID = 5288646753242971859L;
 	public N parent, left, right;
 	public boolean isLeft;
+	/**
+	 * The number of nodes in the subtree whose root is this node.
+	 */
+	public int size;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -52,6 +56,7 @@ public abstract class BinaryNode<K extends Comparable<K>, V, N extends BinaryNod
 	{
 		super(key, value);
 		parent = left = right = null;
+		size = 1;
 	}
 
 
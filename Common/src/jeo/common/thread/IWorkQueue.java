@@ -63,6 +63,20 @@ public interface IWorkQueue<W extends Worker<W, I, O>, I, O>
 	 */
 	public Long addTask(final I input);
 
+	/**
+	 * Adds a task with the specified input and timeout to the list and returns
+	 * its identifier. The timeout is enforced when the result is requested:
+	 * {@code getResult} waits until the deadline at most and then cancels the
+	 * task if its result is still not available.
+	 * <p>
+	 * @param input   the input of the task to be added
+	 * @param timeout the maximum time to wait for the result of the task (in
+	 *                milliseconds)
+	 * <p>
+	 * @return the identifier of the added task
+	 */
+	public Long addTask(final I input, final long timeout);
+
 	/**
 	 * Gets the next task from the list.
 	 * <p>
@@ -70,6 +84,17 @@ public interface IWorkQueue<W extends Worker<W, I, O>, I, O>
 	 */
 	public Pair<Long, I> getNextTask();
 
+	/**
+	 * Cancels the task with the specified identifier. If the task is being
+	 * processed, its working thread is interrupted and replaced by a new one.
+	 * <p>
+	 * @param id the identifier of the task to be cancelled
+	 * <p>
+	 * @return {@code true} if the task is cancelled, {@code false} if it is
+	 *         already finished or unknown
+	 */
+	public boolean cancelTask(final Long id);
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// RESULT
@@ -92,6 +117,17 @@ public interface IWorkQueue<W extends Worker<W, I, O>, I, O>
 	 */
 	public Report<O> getResult(final Long id);
 
+	/**
+	 * Gets the result of the task with the specified identifier, waiting at
+	 * most the specified time. The task is cancelled if the timeout expires.
+	 * <p>
+	 * @param id      the identifier of the task
+	 * @param timeout the maximum time to wait (in milliseconds)
+	 * <p>
+	 * @return the result of the task with the specified identifier
+	 */
+	public Report<O> getResult(final Long id, final long timeout);
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// POOL
@@ -23,16 +23,21 @@
  */
 package jeo.common.thread;
 
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jeo.common.util.Arguments;
 
 public class ReservedThreadPoolExecutor
 	extends ThreadPoolExecutor
@@ -46,9 +51,10 @@ public class ReservedThreadPoolExecutor
 	 */
 	private volatile int maximumPoolSize;
 	/**
-	 * The internal lock for submission.
+	 * The number of submitted tasks that can still be admitted (one permit per
+	 * thread of the pool).
 	 */
-	private final ReentrantLock submitLock = new ReentrantLock();
+	private final AtomicInteger permits;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -59,30 +65,91 @@ public class ReservedThreadPoolExecutor
 	{
 		super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
 		this.maximumPoolSize = poolSize;
+		this.permits = new AtomicInteger(poolSize);
 	}
 
 	public ReservedThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> workQueue)
 	{
 		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
 		this.maximumPoolSize = maximumPoolSize;
+		this.permits = new AtomicInteger(maximumPoolSize);
 	}
 
 	public ReservedThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> workQueue, final ThreadFactory threadFactory)
 	{
 		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
 		this.maximumPoolSize = maximumPoolSize;
+		this.permits = new AtomicInteger(maximumPoolSize);
 	}
 
 	public ReservedThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> workQueue, final RejectedExecutionHandler handler)
 	{
 		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, handler);
 		this.maximumPoolSize = maximumPoolSize;
+		this.permits = new AtomicInteger(maximumPoolSize);
 	}
 
 	public ReservedThreadPoolExecutor(final int corePoolSize, final int maximumPoolSize, final long keepAliveTime, final TimeUnit unit, final BlockingQueue<Runnable> workQueue, final ThreadFactory threadFactory, final RejectedExecutionHandler handler)
 	{
 		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
 		this.maximumPoolSize = maximumPoolSize;
+		this.permits = new AtomicInteger(maximumPoolSize);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// PERMITS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Acquires a permit if one is available without blocking.
+	 * <p>
+	 * @return {@code true} if a permit is acquired, {@code false} otherwise
+	 */
+	private boolean tryAcquirePermit()
+	{
+		int available;
+		do
+		{
+			available = permits.get();
+			if (available <= 0)
+			{
+				return false;
+			}
+		}
+		while (!permits.compareAndSet(available, available - 1));
+		return true;
+	}
+
+	/**
+	 * Releases a permit.
+	 */
+	private void releasePermit()
+	{
+		permits.incrementAndGet();
+	}
+
+	/**
+	 * Returns the number of tasks that can still be submitted to the threads of
+	 * the pool.
+	 * <p>
+	 * @return the number of tasks that can still be submitted to the threads of
+	 *         the pool
+	 */
+	public int getAvailablePermits()
+	{
+		return Math.max(0, permits.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setMaximumPoolSize(final int maximumPoolSize)
+	{
+		super.setMaximumPoolSize(maximumPoolSize);
+		permits.addAndGet(maximumPoolSize - this.maximumPoolSize);
+		this.maximumPoolSize = maximumPoolSize;
 	}
 
 
@@ -92,47 +159,119 @@ public class ReservedThreadPoolExecutor
 
 	/**
 	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
-	 * at least one thread that is not actively executing tasks. Returns a
-	 * {@link Future} representing the pending results if the task is submitted,
-	 * {@code null} otherwise.
+	 * at least one thread that is not reserved by another submitted task.
+	 * Returns a {@link Future} representing the pending results if the task is
+	 * submitted, an empty {@link Optional} otherwise.
 	 * <p>
 	 * @param task the task to be submitted
 	 * <p>
 	 * @return a {@link Future} representing the pending results if the task is
-	 *         submitted, {@code null} otherwise
+	 *         submitted, an empty {@link Optional} otherwise
 	 * <p>
-	 * @throws RejectedExecutionException {@inheritDoc}
-	 * @throws NullPointerException       {@inheritDoc}
+	 * @throws RejectedExecutionException if the task cannot be scheduled for
+	 *                                    execution
+	 * @throws NullPointerException       if the task is {@code null}
 	 */
-	@Override
-	public Future<?> submit(final Runnable task)
+	public <T> Optional<Future<T>> trySubmit(final Callable<T> task)
 	{
-		submitLock.lock();
+		// Check the argument(s)
+		Arguments.requireNonNull(task);
+		// Process
+		if (!tryAcquirePermit())
+		{
+			return Optional.empty();
+		}
+		final FutureTask<T> future = new PermitFutureTask<T>(task);
 		try
 		{
-			if (getActiveCount() < maximumPoolSize)
-			{
-				return super.submit(task);
-			}
+			execute(future);
+			return Optional.of(future);
 		}
-		finally
+		catch (final RejectedExecutionException ex)
 		{
-			submitLock.unlock();
+			releasePermit();
+			throw ex;
 		}
-		return null;
 	}
 
 	/**
 	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
-	 * at least one thread that is not actively executing tasks. Returns a
-	 * {@link Future} representing the pending results if the task is submitted,
-	 * {@code null} otherwise.
+	 * at least one thread that is not reserved by another submitted task.
+	 * Returns a {@link Future} representing the pending results if the task is
+	 * submitted, an empty {@link Optional} otherwise.
 	 * <p>
 	 * @param task   the task to be submitted
 	 * @param result the default value for the returned future
 	 * <p>
 	 * @return a {@link Future} representing the pending results if the task is
-	 *         submitted, {@code null} otherwise
+	 *         submitted, an empty {@link Optional} otherwise
+	 * <p>
+	 * @throws RejectedExecutionException if the task cannot be scheduled for
+	 *                                    execution
+	 * @throws NullPointerException       if the task is {@code null}
+	 */
+	public <T> Optional<Future<T>> trySubmit(final Runnable task, final T result)
+	{
+		// Check the argument(s)
+		Arguments.requireNonNull(task);
+		// Process
+		return trySubmit(Executors.callable(task, result));
+	}
+
+	/**
+	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
+	 * at least one thread that is not reserved by another submitted task.
+	 * Returns a {@link Future} representing the pending results if the task is
+	 * submitted, an empty {@link Optional} otherwise.
+	 * <p>
+	 * @param task the task to be submitted
+	 * <p>
+	 * @return a {@link Future} representing the pending results if the task is
+	 *         submitted, an empty {@link Optional} otherwise
+	 * <p>
+	 * @throws RejectedExecutionException if the task cannot be scheduled for
+	 *                                    execution
+	 * @throws NullPointerException       if the task is {@code null}
+	 */
+	public Optional<Future<Object>> trySubmit(final Runnable task)
+	{
+		return trySubmit(task, null);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SUBMIT
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
+	 * at least one thread that is not reserved by another submitted task, runs
+	 * it in the calling thread otherwise. Returns a {@link Future} representing
+	 * the pending (or completed) results.
+	 * <p>
+	 * @param task the task to be submitted
+	 * <p>
+	 * @return a {@link Future} representing the pending (or completed) results
+	 * <p>
+	 * @throws RejectedExecutionException {@inheritDoc}
+	 * @throws NullPointerException       {@inheritDoc}
+	 */
+	@Override
+	public Future<?> submit(final Runnable task)
+	{
+		return submit(task, null);
+	}
+
+	/**
+	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
+	 * at least one thread that is not reserved by another submitted task, runs
+	 * it in the calling thread otherwise. Returns a {@link Future} representing
+	 * the pending (or completed) results.
+	 * <p>
+	 * @param task   the task to be submitted
+	 * @param result the default value for the returned future
+	 * <p>
+	 * @return a {@link Future} representing the pending (or completed) results
 	 * <p>
 	 * @throws RejectedExecutionException {@inheritDoc}
 	 * @throws NullPointerException       {@inheritDoc}
@@ -140,31 +279,21 @@ public class ReservedThreadPoolExecutor
 	@Override
 	public <T> Future<T> submit(final Runnable task, final T result)
 	{
-		submitLock.lock();
-		try
-		{
-			if (getActiveCount() < maximumPoolSize)
-			{
-				return super.submit(task, result);
-			}
-		}
-		finally
-		{
-			submitLock.unlock();
-		}
-		return null;
+		// Check the argument(s)
+		Arguments.requireNonNull(task);
+		// Process
+		return submit(Executors.callable(task, result));
 	}
 
 	/**
 	 * Submits the specified task to the {@link ThreadPoolExecutor} if there is
-	 * at least one thread that is not actively executing tasks. Returns a
-	 * {@link Future} representing the pending results if the task is submitted,
-	 * {@code null} otherwise.
+	 * at least one thread that is not reserved by another submitted task, runs
+	 * it in the calling thread otherwise. Returns a {@link Future} representing
+	 * the pending (or completed) results.
 	 * <p>
 	 * @param task the task to be submitted
 	 * <p>
-	 * @return a {@link Future} representing the pending results if the task is
-	 *         submitted, {@code null} otherwise
+	 * @return a {@link Future} representing the pending (or completed) results
 	 * <p>
 	 * @throws RejectedExecutionException {@inheritDoc}
 	 * @throws NullPointerException       {@inheritDoc}
@@ -172,18 +301,41 @@ public class ReservedThreadPoolExecutor
 	@Override
 	public <T> Future<T> submit(final Callable<T> task)
 	{
-		submitLock.lock();
-		try
+		final Optional<Future<T>> future = trySubmit(task);
+		if (future.isPresent())
 		{
-			if (getActiveCount() < maximumPoolSize)
-			{
-				return super.submit(task);
-			}
+			return future.get();
 		}
-		finally
+		// Run the task in the calling thread
+		final FutureTask<T> futureTask = new FutureTask<T>(task);
+		futureTask.run();
+		return futureTask;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// PERMIT FUTURE TASK
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The {@link FutureTask} releasing its permit once it is done, i.e. once it
+	 * is completed or cancelled (even if it is cancelled while it is still
+	 * queued, in which case it never runs).
+	 * <p>
+	 * @param <T> the type of the result
+	 */
+	private class PermitFutureTask<T>
+		extends FutureTask<T>
+	{
+		protected PermitFutureTask(final Callable<T> task)
+		{
+			super(task);
+		}
+
+		@Override
+		protected void done()
 		{
-			submitLock.unlock();
+			releasePermit();
 		}
-		return null;
 	}
 }
@@ -24,8 +24,11 @@
 package jeo.common.thread;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import jeo.common.io.IOManager;
@@ -50,6 +53,9 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 	private int nReservedWorkers = 0;
 	// Tasks
 	private final LinkedList<Pair<Long, I>> tasks = new LinkedList<Pair<Long, I>>();
+	private final Map<Long, Thread> executors = new HashMap<Long, Thread>(N_THREADS_MAX);
+	private final Map<Long, Long> deadlines = new HashMap<Long, Long>(Collections.DEFAULT_INITIAL_CAPACITY);
+	private final Set<Long> cancelledTasks = new HashSet<Long>(N_THREADS_MAX);
 	private Long currentId = 0L;
 	// Results
 	private final Map<Long, Report<O>> results = new HashMap<Long, Report<O>>(Collections.DEFAULT_INITIAL_CAPACITY);
@@ -115,7 +121,7 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 	{
 		synchronized (workers)
 		{
-			IOManager.printDebug("Create the thread " + (nWorkers + 1) + " ...");
+			IOManager.printDebug("Create the thread {} ...", nWorkers + 1);
 			if (nWorkers < N_THREADS_MAX)
 			{
 				final W worker = model.copy();
@@ -143,7 +149,7 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 		boolean areReserved;
 		synchronized (workers)
 		{
-			IOManager.printDebug("Reserve " + n + " threads ...");
+			IOManager.printDebug("Reserve {} threads ...", n);
 			if ((N_THREADS_MAX - nReservedWorkers) >= n)
 			{
 				nReservedWorkers += n;
@@ -152,23 +158,49 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 				createWorkers(nWorkersToCreate);
 				if (nWorkersToCreate > 0)
 				{
-					IOManager.printDebug("Reserve: YES, create " + nWorkersToCreate + " more workers (total reserved: " + nReservedWorkers + ")");
+					IOManager.printDebug("Reserve: YES, create {} more workers (total reserved: {})", nWorkersToCreate, nReservedWorkers);
 				}
 				else
 				{
-					IOManager.printDebug("Reserve: YES, workers are already created (total reserved: " + nReservedWorkers + ")");
+					IOManager.printDebug("Reserve: YES, workers are already created (total reserved: {})", nReservedWorkers);
 				}
 				areReserved = true;
 			}
 			else
 			{
-				IOManager.printDebug("Reserve: NO (total reserved: " + nReservedWorkers + ")");
+				IOManager.printDebug("Reserve: NO (total reserved: {})", nReservedWorkers);
 				areReserved = false;
 			}
 		}
 		return areReserved;
 	}
 
+	/**
+	 * Retires the specified working thread and replaces it by a new one.
+	 * <p>
+	 * @param executor the working thread to be replaced
+	 */
+	private void replaceWorker(final Thread executor)
+	{
+		synchronized (workers)
+		{
+			final Iterator<W> iterator = workers.iterator();
+			while (iterator.hasNext())
+			{
+				final W worker = iterator.next();
+				if (worker == executor)
+				{
+					IOManager.printDebug("Replace the worker {} ...", worker);
+					worker.retire();
+					iterator.remove();
+					--nWorkers;
+					createWorkers(1);
+					break;
+				}
+			}
+		}
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// TASK
@@ -188,7 +220,7 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 		synchronized (tasks)
 		{
 			++currentId;
-			IOManager.printDebug("Add the task " + currentId + ": '" + input + "'");
+			IOManager.printDebug("Add the task {}: '{}'", currentId, input);
 			task = new Pair<Long, I>(currentId, input);
 			tasks.addLast(task);
 			tasks.notifyAll();
@@ -196,6 +228,29 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 		return task.getFirst();
 	}
 
+	/**
+	 * Adds a task with the specified input and timeout to the list and returns
+	 * its identifier. The timeout is enforced when the result is requested:
+	 * {@code getResult} waits until the deadline at most and then cancels the
+	 * task if its result is still not available.
+	 * <p>
+	 * @param input   the input of the task to be added
+	 * @param timeout the maximum time to wait for the result of the task (in
+	 *                milliseconds)
+	 * <p>
+	 * @return the identifier of the added task
+	 */
+	public Long addTask(final I input, final long timeout)
+	{
+		final long deadline = System.currentTimeMillis() + timeout;
+		synchronized (tasks)
+		{
+			final Long id = addTask(input);
+			deadlines.put(id, deadline);
+			return id;
+		}
+	}
+
 	/**
 	 * Gets the next task from the list.
 	 * <p>
@@ -215,16 +270,70 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 				}
 				catch (final InterruptedException ignored)
 				{
+					return null;
 				}
 			}
 			if (running)
 			{
 				task = tasks.removeFirst();
+				executors.put(task.getFirst(), Thread.currentThread());
 			}
 		}
 		return task;
 	}
 
+	/**
+	 * Cancels the task with the specified identifier. If the task is being
+	 * processed, its working thread is interrupted and replaced by a new one.
+	 * <p>
+	 * @param id the identifier of the task to be cancelled
+	 * <p>
+	 * @return {@code true} if the task is cancelled, {@code false} if it is
+	 *         already finished or unknown
+	 */
+	public boolean cancelTask(final Long id)
+	{
+		boolean isPending = false;
+		final Thread executor;
+		synchronized (tasks)
+		{
+			IOManager.printDebug("Cancel the task {} ...", id);
+			final Iterator<Pair<Long, I>> iterator = tasks.iterator();
+			while (iterator.hasNext())
+			{
+				if (iterator.next().getFirst().equals(id))
+				{
+					iterator.remove();
+					isPending = true;
+					break;
+				}
+			}
+			deadlines.remove(id);
+			executor = executors.remove(id);
+			if (executor != null)
+			{
+				cancelledTasks.add(id);
+				// Retire the working thread before it can get another task
+				replaceWorker(executor);
+			}
+		}
+		if (!isPending && executor == null)
+		{
+			return false;
+		}
+		synchronized (workers)
+		{
+			--nReservedWorkers;
+		}
+		// Wake up the threads waiting for the result of the task
+		synchronized (results)
+		{
+			results.put(id, new Report<O>(null, IOManager.printWarning("The task " + id + " has been cancelled")));
+			results.notifyAll();
+		}
+		return true;
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// RESULT
@@ -238,9 +347,19 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 	 */
 	public void addResult(final Long id, final Report<O> result)
 	{
+		synchronized (tasks)
+		{
+			executors.remove(id);
+			deadlines.remove(id);
+			if (cancelledTasks.remove(id))
+			{
+				IOManager.printDebug("Discard the result of the cancelled task {}", id);
+				return;
+			}
+		}
 		synchronized (results)
 		{
-			IOManager.printDebug("Add the result of the task " + id);
+			IOManager.printDebug("Add the result of the task {}", id);
 			results.put(id, result);
 			results.notifyAll();
 		}
@@ -259,10 +378,19 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 	 */
 	public Report<O> getResult(final Long id)
 	{
+		final Long deadline;
+		synchronized (tasks)
+		{
+			deadline = deadlines.remove(id);
+		}
+		if (deadline != null)
+		{
+			return getResult(id, deadline - System.currentTimeMillis());
+		}
 		Report<O> result;
 		synchronized (results)
 		{
-			IOManager.printDebug("Get the result of the task " + id + " ...");
+			IOManager.printDebug("Get the result of the task {} ...", id);
 			while (!results.containsKey(id))
 			{
 				try
@@ -278,6 +406,50 @@ public class WorkQueue<W extends Worker<W, I, O>, I, O>
 		return result;
 	}
 
+	/**
+	 * Gets the result of the task with the specified identifier, waiting at
+	 * most the specified time. The task is cancelled if the timeout expires.
+	 * <p>
+	 * @param id      the identifier of the task
+	 * @param timeout the maximum time to wait (in milliseconds)
+	 * <p>
+	 * @return the result of the task with the specified identifier
+	 */
+	public Report<O> getResult(final Long id, final long timeout)
+	{
+		final long deadline = System.currentTimeMillis() + timeout;
+		synchronized (tasks)
+		{
+			deadlines.remove(id);
+		}
+		synchronized (results)
+		{
+			IOManager.printDebug("Get the result of the task {} (timeout: {} [ms]) ...", id, timeout);
+			long remainingTime = timeout;
+			while (!results.containsKey(id) && remainingTime > 0L)
+			{
+				try
+				{
+					results.wait(remainingTime);
+				}
+				catch (final InterruptedException ignored)
+				{
+				}
+				remainingTime = deadline - System.currentTimeMillis();
+			}
+			if (results.containsKey(id))
+			{
+				return results.remove(id);
+			}
+		}
+		IOManager.printWarning("The task " + id + " has timed out after " + timeout + " [ms]");
+		cancelTask(id);
+		synchronized (results)
+		{
+			return results.remove(id);
+		}
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// POOL
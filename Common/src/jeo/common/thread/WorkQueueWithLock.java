@@ -24,9 +24,13 @@
 package jeo.common.thread;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -56,6 +60,9 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 	private final LinkedList<Pair<Long, I>> tasks = new LinkedList<Pair<Long, I>>();
 	private final Lock tasksLock = new ReentrantLock();
 	private final Condition tasksLockCondition = tasksLock.newCondition();
+	private final Map<Long, Thread> executors = new HashMap<Long, Thread>(N_THREADS_MAX);
+	private final Map<Long, Long> deadlines = new HashMap<Long, Long>(Collections.DEFAULT_INITIAL_CAPACITY);
+	private final Set<Long> cancelledTasks = new HashSet<Long>(N_THREADS_MAX);
 	private Long currentId = 0L;
 	// Results
 	private final Map<Long, Report<O>> results = new HashMap<Long, Report<O>>(Collections.DEFAULT_INITIAL_CAPACITY);
@@ -126,7 +133,7 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		workersLock.lock();
 		try
 		{
-			IOManager.printDebug("Create the thread " + (nWorkers + 1) + " ...");
+			IOManager.printDebug("Create the thread {} ...", nWorkers + 1);
 			if (nWorkers < N_THREADS_MAX)
 			{
 				final W worker = model.copy();
@@ -159,24 +166,24 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		workersLock.lock();
 		try
 		{
-			IOManager.printDebug("Reserve " + n + " threads ...");
+			IOManager.printDebug("Reserve {} threads ...", n);
 			if ((N_THREADS_MAX - nReservedWorkers) >= n)
 			{
 				nReservedWorkers += n;
 				// Create more pool workers if required
 				if (!createWorkers(nReservedWorkers - nWorkers))
 				{
-					IOManager.printDebug("Reserve: OK (total reserved: " + nReservedWorkers + ")");
+					IOManager.printDebug("Reserve: OK (total reserved: {})", nReservedWorkers);
 				}
 				else
 				{
-					IOManager.printDebug("Reserve: NO (total reserved: " + nReservedWorkers + ")");
+					IOManager.printDebug("Reserve: NO (total reserved: {})", nReservedWorkers);
 				}
 				areReserved = true;
 			}
 			else
 			{
-				IOManager.printDebug("Reserve: NO (total reserved: " + nReservedWorkers + ")");
+				IOManager.printDebug("Reserve: NO (total reserved: {})", nReservedWorkers);
 				areReserved = false;
 			}
 		}
@@ -187,6 +194,37 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		return areReserved;
 	}
 
+	/**
+	 * Retires the specified working thread and replaces it by a new one.
+	 * <p>
+	 * @param executor the working thread to be replaced
+	 */
+	private void replaceWorker(final Thread executor)
+	{
+		workersLock.lock();
+		try
+		{
+			final Iterator<W> iterator = workers.iterator();
+			while (iterator.hasNext())
+			{
+				final W worker = iterator.next();
+				if (worker == executor)
+				{
+					IOManager.printDebug("Replace the worker {} ...", worker);
+					worker.retire();
+					iterator.remove();
+					--nWorkers;
+					createWorkers(1);
+					break;
+				}
+			}
+		}
+		finally
+		{
+			workersLock.unlock();
+		}
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// TASK
@@ -206,7 +244,7 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		try
 		{
 			++currentId;
-			IOManager.printDebug("Add the task " + currentId + ": '" + input + "'");
+			IOManager.printDebug("Add the task {}: '{}'", currentId, input);
 			tasks.add(new Pair<Long, I>(currentId, input));
 			tasksLockCondition.signal();
 			return currentId;
@@ -217,6 +255,34 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		}
 	}
 
+	/**
+	 * Adds a task with the specified input and timeout to the list and returns
+	 * its identifier. The timeout is enforced when the result is requested:
+	 * {@code getResult} waits until the deadline at most and then cancels the
+	 * task if its result is still not available.
+	 * <p>
+	 * @param input   the input of the task to be added
+	 * @param timeout the maximum time to wait for the result of the task (in
+	 *                milliseconds)
+	 * <p>
+	 * @return the identifier of the added task
+	 */
+	public Long addTask(final I input, final long timeout)
+	{
+		final long deadline = System.currentTimeMillis() + timeout;
+		tasksLock.lock();
+		try
+		{
+			final Long id = addTask(input);
+			deadlines.put(id, deadline);
+			return id;
+		}
+		finally
+		{
+			tasksLock.unlock();
+		}
+	}
+
 	/**
 	 * Gets the next task from the list.
 	 * <p>
@@ -236,6 +302,7 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 			if (running)
 			{
 				task = tasks.removeFirst();
+				executors.put(task.getFirst(), Thread.currentThread());
 			}
 		}
 		catch (final InterruptedException ignored)
@@ -248,6 +315,73 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		return task;
 	}
 
+	/**
+	 * Cancels the task with the specified identifier. If the task is being
+	 * processed, its working thread is interrupted and replaced by a new one.
+	 * <p>
+	 * @param id the identifier of the task to be cancelled
+	 * <p>
+	 * @return {@code true} if the task is cancelled, {@code false} if it is
+	 *         already finished or unknown
+	 */
+	public boolean cancelTask(final Long id)
+	{
+		boolean isPending = false;
+		final Thread executor;
+		tasksLock.lock();
+		try
+		{
+			IOManager.printDebug("Cancel the task {} ...", id);
+			final Iterator<Pair<Long, I>> iterator = tasks.iterator();
+			while (iterator.hasNext())
+			{
+				if (iterator.next().getFirst().equals(id))
+				{
+					iterator.remove();
+					isPending = true;
+					break;
+				}
+			}
+			deadlines.remove(id);
+			executor = executors.remove(id);
+			if (executor != null)
+			{
+				cancelledTasks.add(id);
+				// Retire the working thread before it can get another task
+				replaceWorker(executor);
+			}
+		}
+		finally
+		{
+			tasksLock.unlock();
+		}
+		if (!isPending && executor == null)
+		{
+			return false;
+		}
+		workersLock.lock();
+		try
+		{
+			--nReservedWorkers;
+		}
+		finally
+		{
+			workersLock.unlock();
+		}
+		// Wake up the threads waiting for the result of the task
+		resultsLock.lock();
+		try
+		{
+			results.put(id, new Report<O>(null, IOManager.printWarning("The task " + id + " has been cancelled")));
+			resultsLockCondition.signalAll();
+		}
+		finally
+		{
+			resultsLock.unlock();
+		}
+		return true;
+	}
+
 
 	////////////////////////////////////////////////////////////////////////////
 	// RESULT
@@ -261,10 +395,25 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 	 */
 	public void addResult(final Long id, final Report<O> result)
 	{
+		tasksLock.lock();
+		try
+		{
+			executors.remove(id);
+			deadlines.remove(id);
+			if (cancelledTasks.remove(id))
+			{
+				IOManager.printDebug("Discard the result of the cancelled task {}", id);
+				return;
+			}
+		}
+		finally
+		{
+			tasksLock.unlock();
+		}
 		resultsLock.lock();
 		try
 		{
-			IOManager.printDebug("Add the result of the task " + id);
+			IOManager.printDebug("Add the result of the task {}", id);
 			results.put(id, result);
 			resultsLockCondition.signalAll();
 		}
@@ -292,11 +441,25 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 	 */
 	public Report<O> getResult(final Long id)
 	{
+		final Long deadline;
+		tasksLock.lock();
+		try
+		{
+			deadline = deadlines.remove(id);
+		}
+		finally
+		{
+			tasksLock.unlock();
+		}
+		if (deadline != null)
+		{
+			return getResult(id, deadline - System.currentTimeMillis());
+		}
 		Report<O> result = null;
 		resultsLock.lock();
 		try
 		{
-			IOManager.printDebug("Get the result of the task " + id + " ...");
+			IOManager.printDebug("Get the result of the task {} ...", id);
 			while (!results.containsKey(id))
 			{
 				try
@@ -316,6 +479,65 @@ public class WorkQueueWithLock<W extends Worker<W, I, O>, I, O>
 		return result;
 	}
 
+	/**
+	 * Gets the result of the task with the specified identifier, waiting at
+	 * most the specified time. The task is cancelled if the timeout expires.
+	 * <p>
+	 * @param id      the identifier of the task
+	 * @param timeout the maximum time to wait (in milliseconds)
+	 * <p>
+	 * @return the result of the task with the specified identifier
+	 */
+	public Report<O> getResult(final Long id, final long timeout)
+	{
+		tasksLock.lock();
+		try
+		{
+			deadlines.remove(id);
+		}
+		finally
+		{
+			tasksLock.unlock();
+		}
+		resultsLock.lock();
+		try
+		{
+			IOManager.printDebug("Get the result of the task {} (timeout: {} [ms]) ...", id, timeout);
+			final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			long remainingTime = deadline - System.nanoTime();
+			while (!results.containsKey(id) && remainingTime > 0L)
+			{
+				try
+				{
+					resultsLockCondition.awaitNanos(remainingTime);
+				}
+				catch (final InterruptedException ignored)
+				{
+				}
+				remainingTime = deadline - System.nanoTime();
+			}
+			if (results.containsKey(id))
+			{
+				return results.remove(id);
+			}
+		}
+		finally
+		{
+			resultsLock.unlock();
+		}
+		IOManager.printWarning("The task " + id + " has timed out after " + timeout + " [ms]");
+		cancelTask(id);
+		resultsLock.lock();
+		try
+		{
+			return results.remove(id);
+		}
+		finally
+		{
+			resultsLock.unlock();
+		}
+	}
+
 	/**
 	 * Ends the pool of working threads.
 	 */
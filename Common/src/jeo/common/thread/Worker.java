@@ -38,6 +38,7 @@ public abstract class Worker<W extends Worker<W, I, O>, I, O>
 	private static long currentId = 0L;
 	protected final IWorkQueue<W, I, O> workQueue;
 	protected final long id;
+	protected volatile boolean retired = false;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -67,7 +68,7 @@ public abstract class Worker<W extends Worker<W, I, O>, I, O>
 
 	private Report<O> processTask(final Pair<Long, I> task)
 	{
-		IOManager.printDebug("Process task " + task.getFirst() + ": '" + task.getSecond() + "' ...");
+		IOManager.printDebug("Process task {}: '{}' ...", task.getFirst(), task.getSecond());
 		return processInput(task.getSecond());
 	}
 
@@ -79,13 +80,18 @@ public abstract class Worker<W extends Worker<W, I, O>, I, O>
 	@Override
 	public void run()
 	{
-		IOManager.printDebug("Pool worker " + id + " has started ...");
+		IOManager.printDebug("Pool worker {} has started ...", id);
 		Pair<Long, I> task;
-		while (true)
+		while (!retired)
 		{
 			task = workQueue.getNextTask();
 			if (workQueue.isRunning())
 			{
+				if (task == null)
+				{
+					// The worker has been interrupted while waiting
+					continue;
+				}
 				Report<O> report;
 				try
 				{
@@ -95,6 +101,8 @@ public abstract class Worker<W extends Worker<W, I, O>, I, O>
 				{
 					report = new Report<O>(null, IOManager.printError(ex));
 				}
+				// Clear the interrupted status set by a late cancellation
+				Thread.interrupted();
 				workQueue.addResult(task.getFirst(), report);
 			}
 			else
@@ -102,7 +110,27 @@ public abstract class Worker<W extends Worker<W, I, O>, I, O>
 				break;
 			}
 		}
-		IOManager.printDebug("Pool worker " + id + " is finished.");
+		IOManager.printDebug("Pool worker {} is finished.", id);
+	}
+
+	/**
+	 * Retires the worker: it is interrupted and stops once the current task is
+	 * processed, discarding its result.
+	 */
+	public void retire()
+	{
+		retired = true;
+		interrupt();
+	}
+
+	/**
+	 * Returns {@code true} if the worker is retired, {@code false} otherwise.
+	 * <p>
+	 * @return {@code true} if the worker is retired, {@code false} otherwise
+	 */
+	public boolean isRetired()
+	{
+		return retired;
 	}
 
 
@@ -182,6 +182,24 @@ public class Arguments
 	// CHECK NUMBER
 	////////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Checks that the specified index is in the range [0, {@code size}[
+	 * without boxing it.
+	 * <p>
+	 * @param index the index to be checked
+	 * @param size  the size of the indexed structure
+	 * <p>
+	 * @return {@code index}
+	 */
+	public static int requireIndex(final int index, final int size)
+	{
+		if ((index < 0) || (index >= size))
+		{
+			throw new IllegalArgumentException("Specified index " + index + " is out of the range [0, " + size + "[");
+		}
+		return index;
+	}
+
 	public static <T extends Number> T requireGreaterThan(final T number, final Number lowerBound)
 	{
 		if (requireNonNull(number).doubleValue() <= lowerBound.doubleValue())
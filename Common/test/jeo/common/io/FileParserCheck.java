@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.common.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import jeo.common.io.Messages.SeverityLevel;
+import jeo.common.structure.ExtendedList;
+import jeo.common.util.Formats;
+import jeo.common.util.Strings;
+
+/**
+ * The runnable check comparing the rows returned by
+ * {@link FileParser#parseCSVInParallel} with the ones returned by
+ * {@link FileParser#parseCSV(String, char, java.util.function.Consumer)} on
+ * small files split into tiny chunks, so that the chunk edges fall on every
+ * byte: inside quoted line breaks, in chunks without any line break and
+ * between the carriage returns and the line feeds.
+ */
+public class FileParserCheck
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The separator of the fields.
+	 */
+	private static final char SEPARATOR = ',';
+	/**
+	 * The maximum size of the chunks to check (in bytes).
+	 */
+	private static final int MAX_CHUNK_SIZE = 16;
+	/**
+	 * The number of random files to check.
+	 */
+	private static final int RANDOM_FILES_NUMBER = 100;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	private FileParserCheck()
+	{
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// MAIN
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs the check and exits with {@link IOManager#EXIT_FAILURE} if it
+	 * fails.
+	 * <p>
+	 * @param args the command line arguments (ignored)
+	 */
+	public static void main(final String[] args)
+	{
+		final boolean success = check();
+		IOManager.printResult(success ? "The parallel parsing of the CSV files is correct" : "The parallel parsing of the CSV files is incorrect");
+		System.exit(success ? IOManager.EXIT_SUCCESS : IOManager.EXIT_FAILURE);
+	}
+
+	/**
+	 * Checks the parallel parsing of the CSV files.
+	 * <p>
+	 * @return {@code true} if the parallel parsing returns the same rows as the
+	 *         sequential parsing on all the checked files, {@code false}
+	 *         otherwise
+	 */
+	public static boolean check()
+	{
+		final SeverityLevel threshold = IOManager.getThreshold();
+		// Hide the warnings about the empty lines
+		IOManager.setThreshold(SeverityLevel.ERROR);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		boolean success = true;
+		try
+		{
+			// Quoted line breaks straddling the chunk edges
+			success &= check(pool, "a,b,c\n1,\"x\ny\",2\n3,\"\n\n\",4\n5,\"p\"\"\nq\",6\n");
+			// Chunks without any line break (a quoted field spanning several chunks)
+			success &= check(pool, "a,b\n\"" + Strings.repeat("z", 4 * MAX_CHUNK_SIZE) + "\",1\n2,3\n");
+			success &= check(pool, "\"" + Strings.repeat("z", 4 * MAX_CHUNK_SIZE) + "\n" + Strings.repeat("z", 4 * MAX_CHUNK_SIZE) + "\"");
+			// Carriage returns and line feeds
+			success &= check(pool, "a,b\r\n1,2\r\n\"3\r\n4\",5\r\n6,\"7\"\r\n");
+			// No final line break and empty lines
+			success &= check(pool, "a,b\n\n1,2\n\n\n3,4");
+			success &= check(pool, Strings.EMPTY);
+			// Random files
+			final Random random = new Random(0L);
+			for (int i = 0; i < RANDOM_FILES_NUMBER; ++i)
+			{
+				success &= check(pool, createRandomContent(random));
+			}
+		}
+		catch (final IOException ex)
+		{
+			IOManager.printError(ex);
+			success = false;
+		}
+		finally
+		{
+			IOManager.setThreshold(threshold);
+			pool.shutdown();
+		}
+		return success;
+	}
+
+	/**
+	 * Checks the parallel parsing of the specified content with all the chunk
+	 * sizes from {@code 1} to {@link #MAX_CHUNK_SIZE}.
+	 * <p>
+	 * @param pool    the {@link ForkJoinPool} parsing the chunks
+	 * @param content the content of the CSV file to be checked
+	 * <p>
+	 * @return {@code true} if the parallel parsing returns the same rows as the
+	 *         sequential parsing, {@code false} otherwise
+	 * <p>
+	 * @throws IOException if an I/O error occurs
+	 */
+	private static boolean check(final ForkJoinPool pool, final String content)
+		throws IOException
+	{
+		final File file = File.createTempFile("check", ".csv");
+		try
+		{
+			Files.write(file.toPath(), content.getBytes(Formats.DEFAULT_CHARSET));
+			final String filePath = file.getPath();
+			final List<String[]> expectedRows = new ExtendedList<String[]>();
+			FileParser.parseCSV(filePath, SEPARATOR, expectedRows::add);
+			for (int chunkSize = 1; chunkSize <= MAX_CHUNK_SIZE; ++chunkSize)
+			{
+				final List<String[]> rows = FileParser.parseCSVInParallel(filePath, SEPARATOR, Formats.DEFAULT_CHARSET, pool, chunkSize);
+				if ((rows == null) || !Arrays.deepEquals(expectedRows.toArray(), rows.toArray()))
+				{
+					IOManager.printError("The rows of '" + content.replace("\r", "\\r").replace("\n", "\\n") + "' differ with chunks of " + chunkSize + " bytes");
+					return false;
+				}
+			}
+			return true;
+		}
+		finally
+		{
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	/**
+	 * Returns a random CSV content with quoted fields containing separators,
+	 * escaped quotes, carriage returns and line feeds.
+	 * <p>
+	 * @param random the {@link Random} generating the content
+	 * <p>
+	 * @return a random CSV content
+	 */
+	private static String createRandomContent(final Random random)
+	{
+		final String lineBreak = random.nextBoolean() ? "\n" : "\r\n";
+		final StringBuilder builder = Strings.createBuffer();
+		final int rowsNumber = 1 + random.nextInt(10);
+		for (int i = 0; i < rowsNumber; ++i)
+		{
+			for (int j = 0; j < 3; ++j)
+			{
+				if (j > 0)
+				{
+					builder.append(SEPARATOR);
+				}
+				if (random.nextBoolean())
+				{
+					builder.append(CSVReader.QUOTE);
+					final int length = random.nextInt(8);
+					for (int k = 0; k < length; ++k)
+					{
+						switch (random.nextInt(6))
+						{
+							case 0:
+								builder.append(lineBreak);
+								break;
+							case 1:
+								builder.append(SEPARATOR);
+								break;
+							case 2:
+								builder.append(CSVReader.QUOTE).append(CSVReader.QUOTE);
+								break;
+							default:
+								builder.append((char) ('a' + random.nextInt(26)));
+						}
+					}
+					builder.append(CSVReader.QUOTE);
+				}
+				else
+				{
+					builder.append(random.nextInt(1000));
+				}
+			}
+			if ((i < rowsNumber - 1) || random.nextBoolean())
+			{
+				builder.append(lineBreak);
+			}
+		}
+		return builder.toString();
+	}
+}
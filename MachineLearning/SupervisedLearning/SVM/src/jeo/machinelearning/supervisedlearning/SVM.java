@@ -23,7 +23,9 @@
  */
 package jeo.machinelearning.supervisedlearning;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -35,7 +37,7 @@ import libsvm.svm_problem;
 
 import jeo.common.io.FileParser;
 import jeo.common.io.IOManager;
-import jeo.common.structure.Table;
+import jeo.common.structure.DataTable;
 import jeo.common.util.Arguments;
 import jeo.common.util.Collections;
 import jeo.common.util.Doubles;
@@ -152,7 +154,7 @@ public class SVM
 	 */
 	public void loadTrainingExamplesWithCSV(final String filePath, final int classesColumnIndex)
 	{
-		final Table<String> trainingExamples = FileParser.parseCSV(filePath);
+		final DataTable trainingExamples = FileParser.parseCSVAsDataTable(filePath, false);
 		if (trainingExamples != null)
 		{
 			final int m = trainingExamples.getRowSize();
@@ -163,14 +165,43 @@ public class SVM
 				{
 					if (classesColumnIndex >= (n - 1))
 					{
-						trainingExamplesNumber = m;
+						for (int j = 0; j < featuresNumber; ++j)
+						{
+							if (!isNumeric(trainingExamples, j))
+							{
+								return;
+							}
+						}
+						if (!isNumeric(trainingExamples, classesColumnIndex))
+						{
+							return;
+						}
+						// Skip the training examples with missing values
+						final List<Integer> rowIndexes = new ArrayList<Integer>(m);
+						for (int i = 0; i < m; ++i)
+						{
+							if (isPresent(trainingExamples, i, classesColumnIndex))
+							{
+								boolean isComplete = true;
+								for (int j = 0; (j < featuresNumber) && isComplete; ++j)
+								{
+									isComplete = isPresent(trainingExamples, i, j);
+								}
+								if (isComplete)
+								{
+									rowIndexes.add(i);
+								}
+							}
+						}
+						trainingExamplesNumber = rowIndexes.size();
 						updateProblem();
 						for (int i = 0; i < trainingExamplesNumber; ++i)
 						{
-							updateClassification(i, Integer.valueOf(trainingExamples.get(i, classesColumnIndex)));
+							final int rowIndex = rowIndexes.get(i);
+							updateClassification(i, (int) trainingExamples.getDouble(rowIndex, classesColumnIndex));
 							for (int j = 0; j < featuresNumber; ++j)
 							{
-								updateValue(i, j, Double.valueOf(trainingExamples.get(i, j)));
+								updateValue(i, j, trainingExamples.getDouble(rowIndex, j));
 							}
 						}
 					}
@@ -203,23 +234,83 @@ public class SVM
 	 */
 	public void loadTrainingExamplesWithCSV(final String filePath, final int valuesColumnIndex, final int classesColumnIndex)
 	{
-		final Table<String> trainingExamples = FileParser.parseCSV(filePath);
+		final DataTable trainingExamples = FileParser.parseCSVAsDataTable(filePath, false);
+		if ((trainingExamples == null) || !isNumeric(trainingExamples, valuesColumnIndex) || !isNumeric(trainingExamples, classesColumnIndex))
+		{
+			return;
+		}
 		if ((trainingExamples.getRowSize() % featuresNumber) != 0)
 		{
 			IOManager.printWarning("Values are missing");
 		}
-		trainingExamplesNumber = trainingExamples.getRowSize() / featuresNumber;
+		// Skip the training examples with missing values
+		final int m = trainingExamples.getRowSize() / featuresNumber;
+		final List<Integer> rowIndexes = new ArrayList<Integer>(m);
+		for (int i = 0; i < m; ++i)
+		{
+			final int rowIndex = i * featuresNumber;
+			boolean isComplete = isPresent(trainingExamples, rowIndex, classesColumnIndex);
+			for (int j = 0; (j < featuresNumber) && isComplete; ++j)
+			{
+				isComplete = isPresent(trainingExamples, rowIndex + j, valuesColumnIndex);
+			}
+			if (isComplete)
+			{
+				rowIndexes.add(rowIndex);
+			}
+		}
+		trainingExamplesNumber = rowIndexes.size();
 		updateProblem();
 		for (int i = 0; i < trainingExamplesNumber; ++i)
 		{
-			updateClassification(i, Integer.valueOf(trainingExamples.get(i * featuresNumber, classesColumnIndex)));
+			final int rowIndex = rowIndexes.get(i);
+			updateClassification(i, (int) trainingExamples.getDouble(rowIndex, classesColumnIndex));
 			for (int j = 0; j < featuresNumber; ++j)
 			{
-				updateValue(i, j, Double.valueOf(trainingExamples.get((i * featuresNumber) + j, valuesColumnIndex)));
+				updateValue(i, j, trainingExamples.getDouble(rowIndex + j, valuesColumnIndex));
 			}
 		}
 	}
 
+	/**
+	 * Tests whether the specified column of the specified training examples
+	 * is numeric, and prints an error if it is not.
+	 * <p>
+	 * @param trainingExamples the training examples
+	 * @param columnIndex      the index of the column to be tested
+	 * <p>
+	 * @return {@code true} if the column is numeric, {@code false} otherwise
+	 */
+	private static boolean isNumeric(final DataTable trainingExamples, final int columnIndex)
+	{
+		if (!trainingExamples.getColumn(columnIndex).getType().isNumeric())
+		{
+			IOManager.printError("The column " + columnIndex + " is not numeric");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tests whether the element of the specified training examples at the
+	 * specified indexes is present, and prints a warning if it is missing.
+	 * <p>
+	 * @param trainingExamples the training examples
+	 * @param rowIndex         the row index of the element
+	 * @param columnIndex      the column index of the element
+	 * <p>
+	 * @return {@code true} if the element is present, {@code false} otherwise
+	 */
+	private static boolean isPresent(final DataTable trainingExamples, final int rowIndex, final int columnIndex)
+	{
+		if (Double.isNaN(trainingExamples.getDouble(rowIndex, columnIndex)))
+		{
+			IOManager.printWarning("At line " + rowIndex + ", the element " + columnIndex + " is missing: the training example is skipped");
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * Updates the problem.
 	 */
@@ -24,19 +24,31 @@
 package jeo.math.calculator.process;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.ToDoubleFunction;
 
+import jeo.common.exception.InvalidOperationException;
+import jeo.common.exception.NoElementException;
 import jeo.common.exception.UnknownClassException;
 import jeo.common.exception.UnknownTypeException;
 import jeo.common.io.IOManager;
 import jeo.common.io.Message;
 import jeo.common.math.Maths;
-import jeo.common.structure.tree.RedBlackTreeMap;
+import jeo.common.structure.tree.ConcurrentTreeMap;
 import jeo.common.thread.Report;
-import jeo.common.thread.ReservedThreadPoolExecutor;
+import jeo.common.util.Arguments;
+import jeo.common.util.Collections;
 import jeo.common.util.Strings;
 import jeo.math.calculator.model.BinaryOperation;
 import jeo.math.calculator.model.Element;
@@ -45,6 +57,8 @@ import jeo.math.calculator.model.MatrixElement;
 import jeo.math.calculator.model.Result;
 import jeo.math.calculator.model.ScalarElement;
 import jeo.math.calculator.model.UnaryOperation;
+import jeo.math.calculator.model.VariableElement;
+import jeo.math.calculator.process.ExpressionCompiler.ColumnFunction;
 import jeo.math.linearalgebra.Entity;
 import jeo.math.linearalgebra.Matrix;
 import jeo.math.linearalgebra.Scalar;
@@ -62,11 +76,47 @@ public class Calculator
 	/**
 	 * The pool of threads.
 	 */
-	private static ExecutorService THREAD_POOL = null;
+	private static ForkJoinPool THREAD_POOL = null;
 	/**
-	 * The context containing the values of the variables.
+	 * The minimum estimated cost of a subtree to be evaluated in a separate
+	 * task (i.e. the number of components of a 32 x 32 matrix).
+	 */
+	public static volatile long FORK_THRESHOLD = 1024L;
+	/**
+	 * The number of rows evaluated at once by a batch evaluation.
+	 */
+	public static volatile int BATCH_CHUNK_SIZE = 4096;
+	/**
+	 * The maximum number of compiled expressions in the cache.
+	 */
+	public static volatile int CACHE_SIZE = Collections.DEFAULT_INITIAL_CAPACITY;
+	/**
+	 * The cache of the compiled expressions (in access order) with their
+	 * normalized expressions as keys.
+	 */
+	private static final Map<String, CompiledExpression> CACHE = new LinkedHashMap<String, CompiledExpression>(Collections.DEFAULT_INITIAL_CAPACITY, 0.75f, true)
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = -4637813094215330281L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, CompiledExpression> eldest)
+		{
+			return size() > CACHE_SIZE;
+		}
+	};
+	/**
+	 * The context containing the values of the variables (shared by the
+	 * evaluation threads).
 	 */
 	private volatile Map<String, Element> context;
+	/**
+	 * The graph of the dependencies between the variables of the context (all
+	 * its accesses are synchronized on it).
+	 */
+	private final DependencyGraph dependencies;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -75,7 +125,8 @@ public class Calculator
 
 	public Calculator()
 	{
-		context = new RedBlackTreeMap<String, Element>();
+		context = new ConcurrentTreeMap<String, Element>();
+		dependencies = new DependencyGraph();
 	}
 
 
@@ -103,10 +154,9 @@ public class Calculator
 		if (USE_THREADS)
 		{
 			IOManager.printDebug("Create a pool of thread ...");
-			THREAD_POOL = new ReservedThreadPoolExecutor(Runtime.getRuntime().availableProcessors());
+			THREAD_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 			IOManager.printDebug("Done!");
 		}
-		ExpressionHandler.init(useThreads);
 	}
 
 	/**
@@ -114,7 +164,6 @@ public class Calculator
 	 */
 	public static void end()
 	{
-		ExpressionHandler.end();
 		if (USE_THREADS)
 		{
 			if (THREAD_POOL != null)
@@ -135,20 +184,145 @@ public class Calculator
 	 * @return the evaluation of {@code tree}
 	 */
 	public static Report<Entity> evaluateTree(final Element tree, final Map<String, Element> context)
+	{
+		return evaluateTree(tree, context, null);
+	}
+
+	/**
+	 * Evaluates the specified tree of operations and numbers, evaluating each
+	 * of the specified shared nodes only once.
+	 * <p>
+	 * @param tree        the input {@link Element} to be evaluated
+	 * @param context     the context containing the values of the variables
+	 * @param sharedNodes the operations occurring more than once in
+	 *                    {@code tree} (or {@code null} if there is none)
+	 * <p>
+	 * @return the evaluation of {@code tree}
+	 */
+	private static Report<Entity> evaluateTree(final Element tree, final Map<String, Element> context, final Set<Element> sharedNodes)
+	{
+		// Estimate the costs of the subtrees and fork only if it is worth it
+		Map<Element, Long> costs = null;
+		if (USE_THREADS && (THREAD_POOL != null))
+		{
+			costs = new IdentityHashMap<Element, Long>();
+			if (estimateCost(tree, context, costs) < FORK_THRESHOLD)
+			{
+				costs = null;
+			}
+		}
+		// Create the memoized evaluations of the shared nodes
+		final Map<Element, ForkJoinTask<Report<Entity>>> memo = createMemo(sharedNodes, context, costs);
+		if (costs != null)
+		{
+			return THREAD_POOL.invoke(new EvaluationTask(tree, context, costs, memo));
+		}
+		return evaluateTree(tree, context, null, memo);
+	}
+
+	/**
+	 * Returns the memoized evaluations of the specified shared nodes, or
+	 * {@code null} if there is none.
+	 * <p>
+	 * @param sharedNodes the operations occurring more than once in a tree (or
+	 *                    {@code null} if there is none)
+	 * @param context     the context containing the values of the variables
+	 * @param costs       the estimated costs of the subtrees (or {@code null}
+	 *                    for a sequential evaluation)
+	 * <p>
+	 * @return the memoized evaluations of {@code sharedNodes}, or {@code null}
+	 *         if there is none
+	 */
+	private static Map<Element, ForkJoinTask<Report<Entity>>> createMemo(final Set<Element> sharedNodes, final Map<String, Element> context, final Map<Element, Long> costs)
+	{
+		if ((sharedNodes == null) || sharedNodes.isEmpty())
+		{
+			return null;
+		}
+		// The memo is filled before the evaluation and then only read
+		final Map<Element, ForkJoinTask<Report<Entity>>> memo = new IdentityHashMap<Element, ForkJoinTask<Report<Entity>>>(sharedNodes.size());
+		for (final Element sharedNode : sharedNodes)
+		{
+			memo.put(sharedNode, ForkJoinTask.adapt(() -> evaluateNode(sharedNode, context, costs, memo)));
+		}
+		return memo;
+	}
+
+	/**
+	 * Evaluates the specified tree of operations and numbers, or returns the
+	 * memoized evaluation of {@code tree} if it is a shared node.
+	 * <p>
+	 * @param tree    the input {@link Element} to be evaluated
+	 * @param context the context containing the values of the variables
+	 * @param costs   the estimated costs of the subtrees of {@code tree} (or
+	 *                {@code null} for a sequential evaluation)
+	 * @param memo    the memoized evaluations of the shared nodes (or
+	 *                {@code null} if there is none)
+	 * <p>
+	 * @return the evaluation of {@code tree}
+	 */
+	private static Report<Entity> evaluateTree(final Element tree, final Map<String, Element> context, final Map<Element, Long> costs, final Map<Element, ForkJoinTask<Report<Entity>>> memo)
+	{
+		if (memo != null)
+		{
+			final ForkJoinTask<Report<Entity>> evaluation = memo.get(tree);
+			if (evaluation != null)
+			{
+				try
+				{
+					// Evaluate the shared node if it is not claimed yet, join its evaluation otherwise
+					// Note: joining lets the pool compensate for (or help) the blocked worker
+					if (evaluation.compareAndSetForkJoinTaskTag((short) 0, (short) 1))
+					{
+						return evaluation.invoke();
+					}
+					return evaluation.join();
+				}
+				catch (final RuntimeException ex)
+				{
+					return new Report<Entity>(null, new Message(ex));
+				}
+			}
+		}
+		return evaluateNode(tree, context, costs, memo);
+	}
+
+	/**
+	 * Evaluates the specified tree of operations and numbers.
+	 * <p>
+	 * @param tree    the input {@link Element} to be evaluated
+	 * @param context the context containing the values of the variables
+	 * @param costs   the estimated costs of the subtrees of {@code tree} (or
+	 *                {@code null} for a sequential evaluation)
+	 * @param memo    the memoized evaluations of the shared nodes (or
+	 *                {@code null} if there is none)
+	 * <p>
+	 * @return the evaluation of {@code tree}
+	 */
+	private static Report<Entity> evaluateNode(final Element tree, final Map<String, Element> context, final Map<Element, Long> costs, final Map<Element, ForkJoinTask<Report<Entity>>> memo)
 	{
 		if ((tree instanceof ScalarElement) || (tree instanceof MatrixElement))
 		{
 			final Entity entity = tree.getEntity();
-			IOManager.printDebug("COMPUTE Get entity <" + entity + ">");
+			IOManager.printDebug("COMPUTE Get entity <{}>", entity);
 			return new Report<Entity>(entity, null);
 		}
+		else if (tree instanceof VariableElement)
+		{
+			final Element value = context.get(((VariableElement) tree).getName());
+			if (value == null)
+			{
+				return new Report<Entity>(null, new Message(new NoElementException("Unknown variable '" + tree.getExpression() + "'")));
+			}
+			return evaluateTree(value, context, costs, memo);
+		}
 		else if (tree instanceof BinaryOperation)
 		{
-			return evaluateBinaryOperation((BinaryOperation) tree, context);
+			return evaluateBinaryOperation((BinaryOperation) tree, context, costs, memo);
 		}
 		else if (tree instanceof UnaryOperation)
 		{
-			return evaluateUnaryOperation((UnaryOperation) tree, context);
+			return evaluateUnaryOperation((UnaryOperation) tree, context, costs, memo);
 		}
 		else
 		{
@@ -157,61 +331,127 @@ public class Calculator
 	}
 
 	/**
-	 * Evaluates the specified binary operation.
+	 * Estimates the cost of evaluating the specified tree and stores the costs
+	 * of all its subtrees in {@code costs}. The cost of a leaf is its number of
+	 * components and the cost of an operation is the sum of the costs of its
+	 * operands, weighted for the cubic operations (multiplication, power,
+	 * solution and inversion).
 	 * <p>
-	 * @param binaryOperation the input {@link BinaryOperation} to be evaluated
-	 * @param context         the context containing the values of the variables
+	 * @param tree    the input {@link Element}
+	 * @param context the context containing the values of the variables
+	 * @param costs   the estimated costs of the subtrees of {@code tree}
 	 * <p>
-	 * @return the evaluation of {@code binaryOperation}
+	 * @return the estimated cost of evaluating {@code tree}
 	 */
-	private static Report<Entity> evaluateBinaryOperation(final BinaryOperation binaryOperation, final Map<String, Element> context)
+	private static long estimateCost(final Element tree, final Map<String, Element> context, final Map<Element, Long> costs)
 	{
-		Report<Entity> leftEntityResult, rightEntityResult;
-		if (USE_THREADS)
+		// Estimate the cost of a shared node only once
+		final Long knownCost = costs.get(tree);
+		if (knownCost != null)
 		{
-			// Add the tasks
-			final Future<Report<Entity>> futureLeftEntityResult = THREAD_POOL.submit(() -> Calculator.evaluateTree(binaryOperation.getLeft(), context));
-			final Future<Report<Entity>> futureRightEntityResult = THREAD_POOL.submit(() -> Calculator.evaluateTree(binaryOperation.getRight(), context));
-
-			// Get the results
-			// - Left entity
-			if (futureLeftEntityResult != null)
+			return knownCost;
+		}
+		final long cost;
+		if (tree instanceof BinaryOperation)
+		{
+			final BinaryOperation binaryOperation = (BinaryOperation) tree;
+			final long leftCost = estimateCost(binaryOperation.getLeft(), context, costs);
+			final long rightCost = estimateCost(binaryOperation.getRight(), context, costs);
+			switch (binaryOperation.getType())
 			{
-				try
-				{
-					leftEntityResult = futureLeftEntityResult.get();
-				}
-				catch (final Exception ex)
-				{
-					leftEntityResult = new Report<Entity>(null, new Message(ex));
-				}
+				case MULTIPLICATION:
+				case POWER:
+				case SOLUTION:
+					cost = leftCost + rightCost + getCubicCost(Math.max(leftCost, rightCost));
+					break;
+				default:
+					cost = leftCost + rightCost;
+			}
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			final UnaryOperation unaryOperation = (UnaryOperation) tree;
+			final long childCost = estimateCost(unaryOperation.getElement(), context, costs);
+			if (unaryOperation.getType() == Type.INVERSE)
+			{
+				cost = childCost + getCubicCost(childCost);
 			}
 			else
 			{
-				leftEntityResult = evaluateTree(binaryOperation.getLeft(), context);
+				cost = 2L * childCost;
 			}
-			// - Right entity
-			if (futureRightEntityResult != null)
+		}
+		else if (tree instanceof VariableElement)
+		{
+			final Element value = context.get(((VariableElement) tree).getName());
+			cost = (value != null) ? estimateCost(value, context, costs) : 1L;
+		}
+		else if (tree.getEntity() instanceof Matrix)
+		{
+			final Matrix matrix = (Matrix) tree.getEntity();
+			cost = (long) matrix.getRowDimension() * matrix.getColumnDimension();
+		}
+		else
+		{
+			cost = 1L;
+		}
+		costs.put(tree, cost);
+		return cost;
+	}
+
+	/**
+	 * Returns the cost of a cubic operation on operands of the specified cost
+	 * (i.e. {@code n^3} for {@code n x n} matrices).
+	 * <p>
+	 * @param cost the cost of the operands
+	 * <p>
+	 * @return the cost of a cubic operation on operands of cost {@code cost}
+	 */
+	private static long getCubicCost(final long cost)
+	{
+		return (long) (cost * Math.sqrt(cost));
+	}
+
+	/**
+	 * Evaluates the specified binary operation.
+	 * <p>
+	 * @param binaryOperation the input {@link BinaryOperation} to be evaluated
+	 * @param context         the context containing the values of the variables
+	 * @param costs           the estimated costs of the subtrees (or
+	 *                        {@code null} for a sequential evaluation)
+	 * @param memo            the memoized evaluations of the shared nodes (or
+	 *                        {@code null} if there is none)
+	 * <p>
+	 * @return the evaluation of {@code binaryOperation}
+	 */
+	private static Report<Entity> evaluateBinaryOperation(final BinaryOperation binaryOperation, final Map<String, Element> context, final Map<Element, Long> costs, final Map<Element, ForkJoinTask<Report<Entity>>> memo)
+	{
+		final Element left = binaryOperation.getLeft();
+		final Element right = binaryOperation.getRight();
+		final Report<Entity> leftEntityResult, rightEntityResult;
+		if ((costs != null) && (Math.min(costs.get(left), costs.get(right)) >= FORK_THRESHOLD))
+		{
+			// Fork the cheaper side and evaluate the more expensive side in the current thread
+			if (costs.get(left) <= costs.get(right))
 			{
-				try
-				{
-					rightEntityResult = futureRightEntityResult.get();
-				}
-				catch (final Exception ex)
-				{
-					rightEntityResult = new Report<Entity>(null, new Message(ex));
-				}
+				final EvaluationTask leftTask = new EvaluationTask(left, context, costs, memo);
+				leftTask.fork();
+				rightEntityResult = evaluateTree(right, context, costs, memo);
+				leftEntityResult = leftTask.join();
 			}
 			else
 			{
-				rightEntityResult = evaluateTree(binaryOperation.getRight(), context);
+				final EvaluationTask rightTask = new EvaluationTask(right, context, costs, memo);
+				rightTask.fork();
+				leftEntityResult = evaluateTree(left, context, costs, memo);
+				rightEntityResult = rightTask.join();
 			}
 		}
 		else
 		{
 			// Get the results
-			leftEntityResult = evaluateTree(binaryOperation.getLeft(), context);
-			rightEntityResult = evaluateTree(binaryOperation.getRight(), context);
+			leftEntityResult = evaluateTree(left, context, costs, memo);
+			rightEntityResult = evaluateTree(right, context, costs, memo);
 		}
 
 		// Get the entities from the results
@@ -230,7 +470,7 @@ public class Calculator
 
 		// Get the type of binary operation
 		final Type type = binaryOperation.getType();
-		IOManager.printDebug("COMPUTE " + leftEntity + " " + type + " " + rightEntity);
+		IOManager.printDebug("COMPUTE {} {} {}", leftEntity, type, rightEntity);
 
 		// Evaluate the operation
 		final Entity subresult;
@@ -266,13 +506,17 @@ public class Calculator
 	 * <p>
 	 * @param unaryOperation the input {@link UnaryOperation} to be evaluated
 	 * @param context        the context containing the values of the variables
+	 * @param costs          the estimated costs of the subtrees (or
+	 *                       {@code null} for a sequential evaluation)
+	 * @param memo           the memoized evaluations of the shared nodes (or
+	 *                       {@code null} if there is none)
 	 * <p>
 	 * @return the evaluation of {@code unaryOperation}
 	 */
-	private static Report<Entity> evaluateUnaryOperation(final UnaryOperation unaryOperation, final Map<String, Element> context)
+	private static Report<Entity> evaluateUnaryOperation(final UnaryOperation unaryOperation, final Map<String, Element> context, final Map<Element, Long> costs, final Map<Element, ForkJoinTask<Report<Entity>>> memo)
 	{
 		// Get the result
-		final Report<Entity> result = evaluateTree(unaryOperation.getElement(), context);
+		final Report<Entity> result = evaluateTree(unaryOperation.getElement(), context, costs, memo);
 		final Entity entity = result.getOutput();
 		if (entity == null)
 		{
@@ -281,7 +525,7 @@ public class Calculator
 
 		// Get the type of unary operation
 		final Type type = unaryOperation.getType();
-		IOManager.printDebug("COMPUTE " + type + " " + entity);
+		IOManager.printDebug("COMPUTE {} {}", type, entity);
 
 		// Evaluate the operation
 		final Entity subresult;
@@ -306,24 +550,240 @@ public class Calculator
 	}
 
 	/**
-	 * Parses the specified expression to a tree of operations and numbers and
-	 * evaluates it.
+	 * Returns the compiled form of the specified expression, parsing it only
+	 * if it is not in the cache of compiled expressions.
 	 * <p>
-	 * @param expression the input {@link String} to be parsed
+	 * @param expression the input {@link String} to be compiled
 	 * @param context    the context containing the values of the variables
 	 * <p>
-	 * @return the evaluation of {@code expression}
+	 * @return the compiled form of {@code expression}
 	 */
-	private Report<Entity> evaluate(final String expression, final Map<String, Element> context)
-		throws Exception
+	private static Report<CompiledExpression> compile(final String expression, final Map<String, Element> context)
 	{
-		final Report<Element> result = ExpressionHandler.parseExpression(expression, context);
-		final Element element = result.getOutput();
-		if (element == null)
+		// Get the compiled expression from the cache (if any)
+		final String key = normalize(expression);
+		synchronized (CACHE)
 		{
-			return new Report<Entity>(null, result.getMessage());
+			final CompiledExpression compiledExpression = CACHE.get(key);
+			if (compiledExpression != null)
+			{
+				return new Report<CompiledExpression>(compiledExpression, null);
+			}
+		}
+
+		// Check if the epression is an assignment
+		final List<String> expressions = Strings.split(key, '=');
+		final int size = expressions.size();
+		final List<String> variables = new ArrayList<String>(size - 1);
+		for (int i = 0; i < (size - 1); ++i)
+		{
+			variables.add(expressions.get(i).trim());
+		}
+		// Extract the right-hand side of the expression
+		final String rightHandSide = expressions.get(size - 1).trim();
+
+		// Parse the (right-hand side) expression
+		final Report<Element> result = ExpressionHandler.parseExpression(rightHandSide, context);
+		final Element tree = result.getOutput();
+		if (tree == null)
+		{
+			return new Report<CompiledExpression>(null, result.getMessage());
+		}
+
+		// Fold the constants, share the common subexpressions and compile the scalar trees
+		final Element foldedTree = ExpressionCompiler.intern(ExpressionCompiler.fold(tree));
+		final CompiledExpression compiledExpression = new CompiledExpression(variables, rightHandSide, foldedTree, ExpressionCompiler.getReferences(foldedTree), ExpressionCompiler.getSharedNodes(foldedTree), ExpressionCompiler.compileScalar(foldedTree, context));
+		synchronized (CACHE)
+		{
+			CACHE.put(key, compiledExpression);
+		}
+		return new Report<CompiledExpression>(compiledExpression, null);
+	}
+
+	/**
+	 * Evaluates the specified compiled expression, using its scalar program
+	 * if any and interpreting its tree otherwise.
+	 * <p>
+	 * @param compiledExpression the {@link CompiledExpression} to be evaluated
+	 * @param context            the context containing the values of the
+	 *                           variables
+	 * <p>
+	 * @return the evaluation of {@code compiledExpression}
+	 */
+	private static Report<Entity> evaluate(final CompiledExpression compiledExpression, final Map<String, Element> context)
+	{
+		ToDoubleFunction<Map<String, Element>> program = compiledExpression.getProgram();
+		if ((program == null) && compiledExpression.isCompilable() && areScalars(compiledExpression.getReferences(), context))
+		{
+			// All the variables are scalars (again): recompile the program
+			program = ExpressionCompiler.compileScalar(compiledExpression.getTree(), context);
+			compiledExpression.setCompilable(program != null);
+			compiledExpression.setProgram(program);
+		}
+		if (program != null)
+		{
+			try
+			{
+				return new Report<Entity>(new Scalar(program.applyAsDouble(context)), null);
+			}
+			catch (final RuntimeException ex)
+			{
+				// A variable is undefined or is no longer a scalar: interpret the tree
+				// Note: the program is recompiled once all the variables are scalars again
+				IOManager.printDebug("Discard the program of '{}': {}", compiledExpression.getExpression(), ex);
+				compiledExpression.setProgram(null);
+			}
+		}
+		return evaluateTree(compiledExpression.getTree(), context, compiledExpression.getSharedNodes());
+	}
+
+	/**
+	 * Tests whether all the specified variables are defined as scalars in the
+	 * specified context.
+	 * <p>
+	 * @param variables the names of the variables
+	 * @param context   the context containing the values of the variables
+	 * <p>
+	 * @return {@code true} if all the specified variables are scalars,
+	 *         {@code false} otherwise
+	 */
+	private static boolean areScalars(final Set<String> variables, final Map<String, Element> context)
+	{
+		for (final String variable : variables)
+		{
+			final Element value = context.get(variable);
+			if ((value == null) || !(value.getEntity() instanceof Scalar))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the normalized form of the specified expression: trimmed and with
+	 * each sequence of whitespaces replaced by a single space.
+	 * <p>
+	 * @param expression the input {@link String}
+	 * <p>
+	 * @return the normalized form of {@code expression}
+	 */
+	private static String normalize(final String expression)
+	{
+		final String trimmedExpression = expression.trim();
+		final int length = trimmedExpression.length();
+		final StringBuilder builder = new StringBuilder(length);
+		boolean isWhitespace = false;
+		for (int i = 0; i < length; ++i)
+		{
+			final char c = trimmedExpression.charAt(i);
+			if (Character.isWhitespace(c))
+			{
+				isWhitespace = true;
+			}
+			else
+			{
+				if (isWhitespace)
+				{
+					builder.append(' ');
+					isWhitespace = false;
+				}
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Clears the cache of compiled expressions.
+	 */
+	public static void clearCache()
+	{
+		synchronized (CACHE)
+		{
+			CACHE.clear();
+		}
+	}
+
+	/**
+	 * Returns the leaf containing the specified entity.
+	 * <p>
+	 * @param expression the expression of the leaf
+	 * @param entity     the {@link Entity} of the leaf
+	 * <p>
+	 * @return the leaf containing {@code entity}, or {@code null} if the class
+	 *         of {@code entity} is unknown
+	 */
+	private static Element createElement(final String expression, final Entity entity)
+	{
+		if (entity instanceof Scalar)
+		{
+			return new ScalarElement(null, expression, (Scalar) entity);
+		}
+		else if (entity instanceof Matrix)
+		{
+			return new MatrixElement(null, expression, (Matrix) entity);
+		}
+		return null;
+	}
+
+	/**
+	 * Recomputes the out-of-date variables among the specified variables and
+	 * their (transitive) dependencies. The independent variables are
+	 * recomputed in parallel, while the graph of the dependencies is locked.
+	 * <p>
+	 * @param variables the names of the variables to be read
+	 * <p>
+	 * @return {@code null} if the variables are up to date, the error message
+	 *         otherwise
+	 */
+	private Message refresh(final Collection<String> variables)
+	{
+		synchronized (dependencies)
+		{
+			for (final List<String> level : dependencies.getDirtyLevels(variables))
+			{
+				// Evaluate the formulas of the variables of the level
+				final int size = level.size();
+				final List<Report<Entity>> results = new ArrayList<Report<Entity>>(size);
+				if (USE_THREADS && (THREAD_POOL != null) && (size > 1))
+				{
+					final List<ForkJoinTask<Report<Entity>>> tasks = new ArrayList<ForkJoinTask<Report<Entity>>>(size);
+					for (final String variable : level)
+					{
+						final CompiledExpression formula = dependencies.getFormula(variable);
+						tasks.add(THREAD_POOL.submit(() -> evaluate(formula, context)));
+					}
+					for (final ForkJoinTask<Report<Entity>> task : tasks)
+					{
+						results.add(task.join());
+					}
+				}
+				else
+				{
+					for (final String variable : level)
+					{
+						results.add(evaluate(dependencies.getFormula(variable), context));
+					}
+				}
+
+				// Update the variables of the level
+				for (int i = 0; i < size; ++i)
+				{
+					final String variable = level.get(i);
+					final Report<Entity> result = results.get(i);
+					final Entity entity = result.getOutput();
+					if (entity == null)
+					{
+						return result.getMessage();
+					}
+					IOManager.printDebug("Recompute {} = {}", variable, entity);
+					context.put(variable, createElement(dependencies.getFormula(variable).getExpression(), entity));
+					dependencies.clean(variable);
+				}
+			}
+			return null;
 		}
-		return evaluateTree(element, context);
 	}
 
 	/**
@@ -337,22 +797,23 @@ public class Calculator
 	{
 		try
 		{
-			// Trim the expression
-			String trimmedExpression = expression.trim();
-
-			// Check if the epression is an assignment
-			final List<String> expressions = Strings.split(trimmedExpression, '=');
-			final int size = expressions.size();
+			// Compile the expression (or get it from the cache)
+			final Report<CompiledExpression> compilation = compile(expression, context);
+			final CompiledExpression compiledExpression = compilation.getOutput();
+			if (compiledExpression == null)
+			{
+				return new Result(null, compilation.getMessage());
+			}
 
-			// If the expression is an assignment (or several assignments)
-			if (size > 1)
+			// Recompute the out-of-date variables read by the expression
+			final Message message = refresh(compiledExpression.getReferences());
+			if (message != null)
 			{
-				// Extract the right-hand side of the expression
-				trimmedExpression = expressions.get(size - 1).trim();
+				return new Result(null, message);
 			}
 
 			// Evaluate the (right-hand side) expression
-			final Report<Entity> result = evaluate(trimmedExpression, context);
+			final Report<Entity> result = evaluate(compiledExpression, context);
 			final Entity entity = result.getOutput();
 			if (entity == null)
 			{
@@ -360,27 +821,19 @@ public class Calculator
 			}
 
 			// Get the corresponding element
-			final Element element;
-			if (entity instanceof Scalar)
-			{
-				element = new ScalarElement(null, trimmedExpression, (Scalar) entity);
-			}
-			else if (entity instanceof Matrix)
-			{
-				element = new MatrixElement(null, trimmedExpression, (Matrix) entity);
-			}
-			else
+			final Element element = createElement(compiledExpression.getExpression(), entity);
+			if (element == null)
 			{
 				return new Result(null, new Message(new UnknownClassException(entity.getClass())));
 			}
 
-			// If the expression is an assignment (or several assignments)
-			if (size > 1)
+			// Set the corresponding variable(s) if the expression is an assignment (or several assignments)
+			synchronized (dependencies)
 			{
-				// Set the corresponding variable(s)
-				for (int i = 0; i < (size - 1); ++i)
+				for (final String variable : compiledExpression.getVariables())
 				{
-					context.put(expressions.get(i).trim(), element);
+					context.put(variable, element);
+					dependencies.define(variable, compiledExpression);
 				}
 			}
 
@@ -392,4 +845,149 @@ public class Calculator
 			return new Result(null, IOManager.printError(ex));
 		}
 	}
+
+
+	/**
+	 * Evaluates the specified (scalar) expression for each row of the
+	 * specified columns. The variables that are not columns are read from the
+	 * context. The rows are evaluated by chunks, in parallel if the threads are
+	 * used.
+	 * <p>
+	 * @param expression the input {@link String} to be parsed
+	 * @param columns    the values of the variables for each row
+	 * <p>
+	 * @return the evaluation of {@code expression} for each row
+	 */
+	public Report<double[]> evaluateBatch(final String expression, final Map<String, double[]> columns)
+	{
+		try
+		{
+			// Get the number of rows
+			int n = -1;
+			for (final Map.Entry<String, double[]> column : columns.entrySet())
+			{
+				if (n < 0)
+				{
+					n = column.getValue().length;
+				}
+				else if (column.getValue().length != n)
+				{
+					return new Report<double[]>(null, new Message(new IllegalArgumentException("Wrong number of rows in the column '" + column.getKey() + "' " + Arguments.expectedButFound(n, column.getValue().length))));
+				}
+			}
+			// Evaluate a single row if no column is bound
+			final int nRows = (n < 0) ? 1 : n;
+
+			// Compile the expression (the columns are declared as scalars)
+			final Map<String, Element> batchContext = new HashMap<String, Element>(context);
+			for (final String name : columns.keySet())
+			{
+				batchContext.put(name, new ScalarElement(null, name, new Scalar(Double.NaN)));
+			}
+			final Report<CompiledExpression> compilation = compile(expression, batchContext);
+			final CompiledExpression compiledExpression = compilation.getOutput();
+			if (compiledExpression == null)
+			{
+				return new Report<double[]>(null, compilation.getMessage());
+			}
+
+			// Recompute the out-of-date variables read by the expression
+			final Set<String> references = new HashSet<String>(compiledExpression.getReferences());
+			references.removeAll(columns.keySet());
+			final Message message = refresh(references);
+			if (message != null)
+			{
+				return new Report<double[]>(null, message);
+			}
+
+			// Compile the tree over the columns
+			final ColumnFunction function = ExpressionCompiler.compileColumns(compiledExpression.getTree(), columns, context);
+			if (function == null)
+			{
+				return new Report<double[]>(null, new Message(new InvalidOperationException("The expression '" + compiledExpression.getExpression() + "' is not scalar")));
+			}
+
+			// Evaluate the rows by chunks
+			final double[] result = new double[nRows];
+			final int nChunks = (nRows + BATCH_CHUNK_SIZE - 1) / BATCH_CHUNK_SIZE;
+			if (USE_THREADS && (THREAD_POOL != null) && (nChunks > 1))
+			{
+				final List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(nChunks);
+				for (int i = 0; i < nChunks; ++i)
+				{
+					final int from = i * BATCH_CHUNK_SIZE;
+					tasks.add(THREAD_POOL.submit(() -> evaluateChunk(function, from, Math.min(from + BATCH_CHUNK_SIZE, nRows), result)));
+				}
+				for (final ForkJoinTask<?> task : tasks)
+				{
+					task.join();
+				}
+			}
+			else
+			{
+				for (int i = 0; i < nChunks; ++i)
+				{
+					final int from = i * BATCH_CHUNK_SIZE;
+					evaluateChunk(function, from, Math.min(from + BATCH_CHUNK_SIZE, nRows), result);
+				}
+			}
+			return new Report<double[]>(result, null);
+		}
+		catch (final Exception ex)
+		{
+			return new Report<double[]>(null, IOManager.printError(ex));
+		}
+	}
+
+	/**
+	 * Evaluates the specified function for the rows from {@code from}
+	 * (inclusive) to {@code to} (exclusive) and stores the results in
+	 * {@code result}.
+	 * <p>
+	 * @param function the {@link ColumnFunction} to be evaluated
+	 * @param from     the index of the first row (inclusive)
+	 * @param to       the index of the last row (exclusive)
+	 * @param result   the array in which the results are stored
+	 */
+	private static void evaluateChunk(final ColumnFunction function, final int from, final int to, final double[] result)
+	{
+		final double[] chunk = new double[to - from];
+		function.evaluate(from, to, chunk);
+		System.arraycopy(chunk, 0, result, from, to - from);
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// TASK
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The task evaluating a subtree in the fork/join pool.
+	 */
+	private static class EvaluationTask
+		extends RecursiveTask<Report<Entity>>
+	{
+		/**
+		 * Generated serial version ID.
+		 */
+		private static final long serialVersionUID = 2870215867466735416L;
+		private final Element tree;
+		private final Map<String, Element> context;
+		private final Map<Element, Long> costs;
+		private final Map<Element, ForkJoinTask<Report<Entity>>> memo;
+
+		private EvaluationTask(final Element tree, final Map<String, Element> context, final Map<Element, Long> costs, final Map<Element, ForkJoinTask<Report<Entity>>> memo)
+		{
+			this.tree = tree;
+			this.context = context;
+			this.costs = costs;
+			this.memo = memo;
+		}
+
+		@Override
+		protected Report<Entity> compute()
+		{
+			return evaluateTree(tree, context, costs, memo);
+		}
+	}
 }
@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.math.calculator.process;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import jeo.math.calculator.model.Element;
+
+public class CompiledExpression
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The names of the variables to be assigned (empty if the expression is
+	 * not an assignment).
+	 */
+	private final List<String> variables;
+	/**
+	 * The (right-hand side) expression.
+	 */
+	private final String expression;
+	/**
+	 * The tree of operations and numbers corresponding to the expression.
+	 */
+	private final Element tree;
+	/**
+	 * The names of the variables read by the expression.
+	 */
+	private final Set<String> references;
+	/**
+	 * The operations occurring more than once in the tree, whose evaluations
+	 * are memoized.
+	 */
+	private final Set<Element> sharedNodes;
+	/**
+	 * The function evaluating the tree with primitive {@code double}
+	 * arithmetic (or {@code null} if the tree is not scalar).
+	 */
+	private volatile ToDoubleFunction<Map<String, Element>> program;
+	/**
+	 * The flag specifying whether the tree can be compiled into a program once
+	 * all its variables are scalars (i.e. it contains no matrix and no
+	 * operation without a primitive counterpart).
+	 */
+	private volatile boolean isCompilable = true;
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public CompiledExpression(final List<String> variables, final String expression, final Element tree, final Set<String> references, final Set<Element> sharedNodes)
+	{
+		this(variables, expression, tree, references, sharedNodes, null);
+	}
+
+	public CompiledExpression(final List<String> variables, final String expression, final Element tree, final Set<String> references, final Set<Element> sharedNodes, final ToDoubleFunction<Map<String, Element>> program)
+	{
+		this.variables = variables;
+		this.expression = expression;
+		this.tree = tree;
+		this.references = references;
+		this.sharedNodes = sharedNodes;
+		this.program = program;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// GETTER(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the names of the variables to be assigned
+	 */
+	public List<String> getVariables()
+	{
+		return variables;
+	}
+
+	/**
+	 * @return the (right-hand side) expression
+	 */
+	public String getExpression()
+	{
+		return expression;
+	}
+
+	/**
+	 * @return the tree of operations and numbers
+	 */
+	public Element getTree()
+	{
+		return tree;
+	}
+
+	/**
+	 * @return the names of the variables read by the expression
+	 */
+	public Set<String> getReferences()
+	{
+		return references;
+	}
+
+	/**
+	 * @return the operations occurring more than once in the tree
+	 */
+	public Set<Element> getSharedNodes()
+	{
+		return sharedNodes;
+	}
+
+	/**
+	 * @return the function evaluating the tree with primitive {@code double}
+	 *         arithmetic (or {@code null} if the tree is not scalar)
+	 */
+	public ToDoubleFunction<Map<String, Element>> getProgram()
+	{
+		return program;
+	}
+
+	/**
+	 * @param program the function evaluating the tree to set
+	 */
+	public void setProgram(final ToDoubleFunction<Map<String, Element>> program)
+	{
+		this.program = program;
+	}
+
+	/**
+	 * @return {@code true} if the tree can be compiled into a program once all
+	 *         its variables are scalars, {@code false} otherwise
+	 */
+	public boolean isCompilable()
+	{
+		return isCompilable;
+	}
+
+	/**
+	 * @param isCompilable the flag specifying whether the tree can be compiled
+	 *                     into a program to set
+	 */
+	public void setCompilable(final boolean isCompilable)
+	{
+		this.isCompilable = isCompilable;
+	}
+}
@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.math.calculator.process;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The graph of the dependencies between the variables defined by formulas. The
+ * graph is not thread-safe: its accesses must be synchronized on it.
+ */
+public class DependencyGraph
+{
+	////////////////////////////////////////////////////////////////////////////
+	// ATTRIBUTE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The formulas defining the variables.
+	 */
+	private final Map<String, CompiledExpression> formulas = new HashMap<String, CompiledExpression>();
+	/**
+	 * The variables read by the formula of each variable.
+	 */
+	private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+	/**
+	 * The variables whose formulas read each variable.
+	 */
+	private final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+	/**
+	 * The variables whose values are out of date.
+	 */
+	private final Set<String> dirtyVariables = new HashSet<String>();
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	public DependencyGraph()
+	{
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// DEPENDENCY GRAPH
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Defines the specified variable with the specified formula and marks all
+	 * its (transitive) dependents as dirty. If the formula reads the variable
+	 * itself (directly or through its dependents), the variable is defined as a
+	 * constant (i.e. its value will not be recomputed).
+	 * <p>
+	 * @param variable the name of the variable to be defined
+	 * @param formula  the formula defining {@code variable}
+	 * <p>
+	 * @return {@code true} if {@code variable} depends on {@code formula},
+	 *         {@code false} if it is defined as a constant
+	 */
+	public boolean define(final String variable, final CompiledExpression formula)
+	{
+		// Remove the previous dependencies of the variable
+		final Set<String> previousDependencies = dependencies.remove(variable);
+		if (previousDependencies != null)
+		{
+			for (final String dependency : previousDependencies)
+			{
+				dependents.get(dependency).remove(variable);
+			}
+		}
+		formulas.remove(variable);
+		dirtyVariables.remove(variable);
+
+		// Add the new dependencies of the variable (if they do not create a cycle)
+		final Set<String> references = formula.getReferences();
+		final boolean isFormula = !references.isEmpty() && !isReachable(references, variable);
+		if (isFormula)
+		{
+			formulas.put(variable, formula);
+			dependencies.put(variable, new HashSet<String>(references));
+			for (final String reference : references)
+			{
+				Set<String> referenceDependents = dependents.get(reference);
+				if (referenceDependents == null)
+				{
+					referenceDependents = new HashSet<String>();
+					dependents.put(reference, referenceDependents);
+				}
+				referenceDependents.add(variable);
+			}
+		}
+
+		// Mark the dependents of the variable as dirty
+		markDependentsDirty(variable);
+		return isFormula;
+	}
+
+	/**
+	 * Returns {@code true} if {@code target} is one of the specified variables
+	 * or one of their (transitive) dependencies, {@code false} otherwise.
+	 * <p>
+	 * @param variables the variables to start the search from
+	 * @param target    the variable to be searched
+	 * <p>
+	 * @return {@code true} if {@code target} is reachable from
+	 *         {@code variables}, {@code false} otherwise
+	 */
+	private boolean isReachable(final Collection<String> variables, final String target)
+	{
+		final Set<String> visitedVariables = new HashSet<String>();
+		final List<String> stack = new ArrayList<String>(variables);
+		while (!stack.isEmpty())
+		{
+			final String variable = stack.remove(stack.size() - 1);
+			if (variable.equals(target))
+			{
+				return true;
+			}
+			if (visitedVariables.add(variable))
+			{
+				final Set<String> variableDependencies = dependencies.get(variable);
+				if (variableDependencies != null)
+				{
+					stack.addAll(variableDependencies);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks all the (transitive) dependents of the specified variable as
+	 * dirty.
+	 * <p>
+	 * @param variable the name of the modified variable
+	 */
+	private void markDependentsDirty(final String variable)
+	{
+		final List<String> stack = new ArrayList<String>();
+		stack.add(variable);
+		while (!stack.isEmpty())
+		{
+			final Set<String> variableDependents = dependents.get(stack.remove(stack.size() - 1));
+			if (variableDependents != null)
+			{
+				for (final String dependent : variableDependents)
+				{
+					if (dirtyVariables.add(dependent))
+					{
+						stack.add(dependent);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the dirty variables among the specified variables and their
+	 * (transitive) dependencies, grouped by level: the variables of a level
+	 * only depend on clean variables or on variables of the previous levels,
+	 * so that they can be recomputed independently.
+	 * <p>
+	 * @param variables the variables to be read
+	 * <p>
+	 * @return the levels of dirty variables to be recomputed (in order)
+	 */
+	public List<List<String>> getDirtyLevels(final Collection<String> variables)
+	{
+		final List<List<String>> levels = new ArrayList<List<String>>();
+		if (!dirtyVariables.isEmpty())
+		{
+			final Map<String, Integer> variableLevels = new HashMap<String, Integer>();
+			for (final String variable : variables)
+			{
+				computeLevel(variable, variableLevels, levels);
+			}
+		}
+		return levels;
+	}
+
+	/**
+	 * Computes the level of the specified variable (and of its dirty
+	 * dependencies) and adds it to the corresponding level if it is dirty.
+	 * <p>
+	 * @param variable       the variable whose level is computed
+	 * @param variableLevels the levels of the visited variables
+	 * @param levels         the levels of dirty variables
+	 * <p>
+	 * @return the level of {@code variable} ({@code -1} if it is clean and
+	 *         only depends on clean variables)
+	 */
+	private int computeLevel(final String variable, final Map<String, Integer> variableLevels, final List<List<String>> levels)
+	{
+		final Integer knownLevel = variableLevels.get(variable);
+		if (knownLevel != null)
+		{
+			return knownLevel;
+		}
+		int level = -1;
+		if (dirtyVariables.contains(variable))
+		{
+			// A dirty variable comes after all its dirty dependencies
+			for (final String dependency : dependencies.get(variable))
+			{
+				level = Math.max(level, computeLevel(dependency, variableLevels, levels));
+			}
+			++level;
+			while (levels.size() <= level)
+			{
+				levels.add(new ArrayList<String>());
+			}
+			levels.get(level).add(variable);
+		}
+		variableLevels.put(variable, level);
+		return level;
+	}
+
+	/**
+	 * Returns the formula defining the specified variable.
+	 * <p>
+	 * @param variable the name of a variable
+	 * <p>
+	 * @return the formula defining {@code variable}, or {@code null} if it is
+	 *         a constant
+	 */
+	public CompiledExpression getFormula(final String variable)
+	{
+		return formulas.get(variable);
+	}
+
+	/**
+	 * Marks the specified variable as up to date.
+	 * <p>
+	 * @param variable the name of the recomputed variable
+	 */
+	public void clean(final String variable)
+	{
+		dirtyVariables.remove(variable);
+	}
+
+	/**
+	 * Returns {@code true} if the specified variable is out of date,
+	 * {@code false} otherwise.
+	 * <p>
+	 * @param variable the name of a variable
+	 * <p>
+	 * @return {@code true} if {@code variable} is out of date, {@code false}
+	 *         otherwise
+	 */
+	public boolean isDirty(final String variable)
+	{
+		return dirtyVariables.contains(variable);
+	}
+}
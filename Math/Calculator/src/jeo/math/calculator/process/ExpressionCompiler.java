@@ -0,0 +1,574 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2013-2015 Florian Barras.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package jeo.math.calculator.process;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToDoubleFunction;
+
+import jeo.common.exception.UnknownTypeException;
+import jeo.common.math.Maths;
+import jeo.common.thread.Report;
+import jeo.math.calculator.model.BinaryOperation;
+import jeo.math.calculator.model.Element;
+import jeo.math.calculator.model.Element.Type;
+import jeo.math.calculator.model.MatrixElement;
+import jeo.math.calculator.model.ScalarElement;
+import jeo.math.calculator.model.UnaryOperation;
+import jeo.math.calculator.model.VariableElement;
+import jeo.math.linearalgebra.Entity;
+import jeo.math.linearalgebra.Matrix;
+import jeo.math.linearalgebra.Scalar;
+
+public class ExpressionCompiler
+{
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTRUCTOR(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	private ExpressionCompiler()
+	{
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// ANALYSIS
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the names of the variables read by the specified tree.
+	 * <p>
+	 * @param tree the input {@link Element}
+	 * <p>
+	 * @return the names of the variables read by {@code tree}
+	 */
+	public static Set<String> getReferences(final Element tree)
+	{
+		final Set<String> references = new HashSet<String>();
+		addReferences(tree, references);
+		return references;
+	}
+
+	private static void addReferences(final Element tree, final Set<String> references)
+	{
+		if (tree instanceof VariableElement)
+		{
+			references.add(((VariableElement) tree).getName());
+		}
+		else if (tree instanceof BinaryOperation)
+		{
+			addReferences(((BinaryOperation) tree).getLeft(), references);
+			addReferences(((BinaryOperation) tree).getRight(), references);
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			addReferences(((UnaryOperation) tree).getElement(), references);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// CONSTANT FOLDING
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the specified tree in which the subtrees without variables are
+	 * replaced by their evaluations. The subtrees whose evaluation fails are
+	 * kept so that the error is reported at evaluation.
+	 * <p>
+	 * @param tree the input {@link Element}
+	 * <p>
+	 * @return the folded tree
+	 */
+	public static Element fold(final Element tree)
+	{
+		if (tree instanceof BinaryOperation)
+		{
+			final BinaryOperation binaryOperation = (BinaryOperation) tree;
+			final Element left = fold(binaryOperation.getLeft());
+			final Element right = fold(binaryOperation.getRight());
+			final Element foldedTree = (left == binaryOperation.getLeft()) && (right == binaryOperation.getRight()) ? tree : new BinaryOperation(tree.getParent(), tree.getExpression(), binaryOperation.getType(), left, right);
+			return isConstant(left) && isConstant(right) ? evaluateConstant(foldedTree) : foldedTree;
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			final UnaryOperation unaryOperation = (UnaryOperation) tree;
+			final Element element = fold(unaryOperation.getElement());
+			final Element foldedTree = element == unaryOperation.getElement() ? tree : new UnaryOperation(tree.getParent(), tree.getExpression(), unaryOperation.getType(), element);
+			return isConstant(element) ? evaluateConstant(foldedTree) : foldedTree;
+		}
+		return tree;
+	}
+
+	/**
+	 * Returns {@code true} if the specified tree is a scalar or a matrix,
+	 * {@code false} otherwise.
+	 * <p>
+	 * @param tree the input {@link Element}
+	 * <p>
+	 * @return {@code true} if {@code tree} is a scalar or a matrix,
+	 *         {@code false} otherwise
+	 */
+	private static boolean isConstant(final Element tree)
+	{
+		return (tree instanceof ScalarElement) || (tree instanceof MatrixElement);
+	}
+
+	/**
+	 * Returns the leaf containing the evaluation of the specified operation on
+	 * constants, or the operation itself if its evaluation fails.
+	 * <p>
+	 * @param tree the operation to be evaluated
+	 * <p>
+	 * @return the leaf containing the evaluation of {@code tree}, or
+	 *         {@code tree} if its evaluation fails
+	 */
+	private static Element evaluateConstant(final Element tree)
+	{
+		final Entity entity;
+		try
+		{
+			final Report<Entity> result = Calculator.evaluateTree(tree, new HashMap<String, Element>(0));
+			entity = result.getOutput();
+		}
+		catch (final RuntimeException ignored)
+		{
+			return tree;
+		}
+		if (entity instanceof Scalar)
+		{
+			return new ScalarElement(tree.getParent(), tree.getExpression(), (Scalar) entity);
+		}
+		else if (entity instanceof Matrix)
+		{
+			return new MatrixElement(tree.getParent(), tree.getExpression(), (Matrix) entity);
+		}
+		return tree;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// COMMON SUBEXPRESSION ELIMINATION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the specified tree in which the structurally equal subtrees
+	 * (i.e. the leaves with equal values or names and the operations of the
+	 * same type on the same operands) are replaced by a single shared node.
+	 * The parent of a shared node is the parent of its first occurrence.
+	 * <p>
+	 * @param tree the input {@link Element}
+	 * <p>
+	 * @return the hash-consed tree
+	 */
+	public static Element intern(final Element tree)
+	{
+		return intern(tree, new HashMap<List<Object>, Element>());
+	}
+
+	/**
+	 * Returns the shared node structurally equal to the specified tree and
+	 * registers it in {@code nodes} if it is new.
+	 * <p>
+	 * @param tree  the input {@link Element}
+	 * @param nodes the shared nodes indexed by their keys
+	 * <p>
+	 * @return the shared node structurally equal to {@code tree}
+	 */
+	private static Element intern(final Element tree, final Map<List<Object>, Element> nodes)
+	{
+		final Element node;
+		final List<Object> key;
+		if (tree instanceof BinaryOperation)
+		{
+			final BinaryOperation binaryOperation = (BinaryOperation) tree;
+			final Element left = intern(binaryOperation.getLeft(), nodes);
+			final Element right = intern(binaryOperation.getRight(), nodes);
+			node = (left == binaryOperation.getLeft()) && (right == binaryOperation.getRight()) ? tree : new BinaryOperation(tree.getParent(), tree.getExpression(), binaryOperation.getType(), left, right);
+			// The operands are already shared: compare them by identity
+			key = Arrays.<Object>asList(BinaryOperation.class, binaryOperation.getType(), left, right);
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			final UnaryOperation unaryOperation = (UnaryOperation) tree;
+			final Element element = intern(unaryOperation.getElement(), nodes);
+			node = element == unaryOperation.getElement() ? tree : new UnaryOperation(tree.getParent(), tree.getExpression(), unaryOperation.getType(), element);
+			key = Arrays.<Object>asList(UnaryOperation.class, unaryOperation.getType(), element);
+		}
+		else if (tree instanceof VariableElement)
+		{
+			node = tree;
+			key = Arrays.<Object>asList(VariableElement.class, ((VariableElement) tree).getName());
+		}
+		else
+		{
+			node = tree;
+			key = Arrays.<Object>asList(tree.getClass(), tree.getEntity());
+		}
+		final Element sharedNode = nodes.putIfAbsent(key, node);
+		return sharedNode != null ? sharedNode : node;
+	}
+
+	/**
+	 * Returns the operations occurring more than once in the specified
+	 * hash-consed tree, i.e. the subtrees whose evaluations are worth
+	 * memoizing.
+	 * <p>
+	 * @param tree the input hash-consed {@link Element}
+	 * <p>
+	 * @return the operations occurring more than once in {@code tree}
+	 */
+	public static Set<Element> getSharedNodes(final Element tree)
+	{
+		final Set<Element> visitedNodes = Collections.newSetFromMap(new IdentityHashMap<Element, Boolean>());
+		final Set<Element> sharedNodes = Collections.newSetFromMap(new IdentityHashMap<Element, Boolean>());
+		addSharedNodes(tree, visitedNodes, sharedNodes);
+		return sharedNodes;
+	}
+
+	private static void addSharedNodes(final Element tree, final Set<Element> visitedNodes, final Set<Element> sharedNodes)
+	{
+		if ((tree instanceof BinaryOperation) || (tree instanceof UnaryOperation))
+		{
+			if (!visitedNodes.add(tree))
+			{
+				// The subtree has already been visited
+				sharedNodes.add(tree);
+				return;
+			}
+			if (tree instanceof BinaryOperation)
+			{
+				addSharedNodes(((BinaryOperation) tree).getLeft(), visitedNodes, sharedNodes);
+				addSharedNodes(((BinaryOperation) tree).getRight(), visitedNodes, sharedNodes);
+			}
+			else
+			{
+				addSharedNodes(((UnaryOperation) tree).getElement(), visitedNodes, sharedNodes);
+			}
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// SCALAR COMPILATION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles the specified tree into a function evaluating it with primitive
+	 * {@code double} arithmetic, or returns {@code null} if the tree contains a
+	 * matrix or a variable whose current value is not a scalar. The returned
+	 * function throws a {@link RuntimeException} if a variable is undefined or
+	 * is no longer a scalar.
+	 * <p>
+	 * @param tree    the input {@link Element}
+	 * @param context the context containing the values of the variables
+	 * <p>
+	 * @return a function evaluating {@code tree} in a context, or {@code null}
+	 *         if {@code tree} is not scalar
+	 */
+	public static ToDoubleFunction<Map<String, Element>> compileScalar(final Element tree, final Map<String, Element> context)
+	{
+		if (tree instanceof ScalarElement)
+		{
+			final double value = ((Scalar) tree.getEntity()).doubleValue();
+			return c -> value;
+		}
+		else if (tree instanceof VariableElement)
+		{
+			final String name = ((VariableElement) tree).getName();
+			final Element value = context.get(name);
+			if ((value == null) || !(value.getEntity() instanceof Scalar))
+			{
+				return null;
+			}
+			return c -> ((Scalar) c.get(name).getEntity()).doubleValue();
+		}
+		else if (tree instanceof BinaryOperation)
+		{
+			final BinaryOperation binaryOperation = (BinaryOperation) tree;
+			final ToDoubleFunction<Map<String, Element>> left = compileScalar(binaryOperation.getLeft(), context);
+			final ToDoubleFunction<Map<String, Element>> right = compileScalar(binaryOperation.getRight(), context);
+			if ((left == null) || (right == null))
+			{
+				return null;
+			}
+			switch (binaryOperation.getType())
+			{
+				case ADDITION:
+					return c -> left.applyAsDouble(c) + right.applyAsDouble(c);
+				case SUBTRACTION:
+					return c -> left.applyAsDouble(c) - right.applyAsDouble(c);
+				case MULTIPLICATION:
+					return c -> left.applyAsDouble(c) * right.applyAsDouble(c);
+				case DIVISION:
+					return c -> left.applyAsDouble(c) / right.applyAsDouble(c);
+				case POWER:
+					return c -> Math.pow(left.applyAsDouble(c), right.applyAsDouble(c));
+				case SOLUTION:
+					return c -> solve(left.applyAsDouble(c), right.applyAsDouble(c));
+				default:
+					return null;
+			}
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			final UnaryOperation unaryOperation = (UnaryOperation) tree;
+			final ToDoubleFunction<Map<String, Element>> element = compileScalar(unaryOperation.getElement(), context);
+			if (element == null)
+			{
+				return null;
+			}
+			switch (unaryOperation.getType())
+			{
+				case FACTORIAL:
+					return c -> Maths.factorial((long) (int) element.applyAsDouble(c)).doubleValue();
+				case TRANSPOSE:
+					return element;
+				case INVERSE:
+					return c -> 1. / element.applyAsDouble(c);
+				default:
+					return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the solution of A*X=B, failing as {@link Scalar#solution} does if
+	 * A is equal to zero.
+	 * <p>
+	 * @param a the coefficient A
+	 * @param b the constant B
+	 * <p>
+	 * @return the solution of A*X=B
+	 * <p>
+	 * @throws ArithmeticException if A is equal to zero
+	 */
+	private static double solve(final double a, final double b)
+	{
+		if (a == 0.)
+		{
+			if (b == 0.)
+			{
+				throw new ArithmeticException("Cannot find a unique solution if A and B are equal to zero");
+			}
+			throw new ArithmeticException("Cannot find a solution if A is equal to zero and B is not equal to zero");
+		}
+		return b / a;
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// COLUMNAR COMPILATION
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles the specified tree into a function evaluating it over ranges of
+	 * rows of the specified columns, one operator at a time over the whole
+	 * range, or returns {@code null} if the tree contains a matrix or a
+	 * variable that is neither a column nor a scalar of the context.
+	 * <p>
+	 * @param tree    the input {@link Element}
+	 * @param columns the values of the variables for each row
+	 * @param context the context containing the values of the other variables
+	 * <p>
+	 * @return a function evaluating {@code tree} over ranges of rows, or
+	 *         {@code null} if {@code tree} is not scalar
+	 */
+	public static ColumnFunction compileColumns(final Element tree, final Map<String, double[]> columns, final Map<String, Element> context)
+	{
+		if (tree instanceof ScalarElement)
+		{
+			final double value = ((Scalar) tree.getEntity()).doubleValue();
+			return (from, to, result) -> Arrays.fill(result, 0, to - from, value);
+		}
+		else if (tree instanceof VariableElement)
+		{
+			final String name = ((VariableElement) tree).getName();
+			final double[] column = columns.get(name);
+			if (column != null)
+			{
+				return (from, to, result) -> System.arraycopy(column, from, result, 0, to - from);
+			}
+			final Element value = context.get(name);
+			if ((value == null) || !(value.getEntity() instanceof Scalar))
+			{
+				return null;
+			}
+			final double scalar = ((Scalar) value.getEntity()).doubleValue();
+			return (from, to, result) -> Arrays.fill(result, 0, to - from, scalar);
+		}
+		else if (tree instanceof BinaryOperation)
+		{
+			final BinaryOperation binaryOperation = (BinaryOperation) tree;
+			final ColumnFunction left = compileColumns(binaryOperation.getLeft(), columns, context);
+			final ColumnFunction right = compileColumns(binaryOperation.getRight(), columns, context);
+			if ((left == null) || (right == null))
+			{
+				return null;
+			}
+			final Type type = binaryOperation.getType();
+			switch (type)
+			{
+				case ADDITION:
+				case SUBTRACTION:
+				case MULTIPLICATION:
+				case DIVISION:
+				case POWER:
+				case SOLUTION:
+					return (from, to, result) ->
+					{
+						final int length = to - from;
+						final double[] operand = new double[length];
+						left.evaluate(from, to, result);
+						right.evaluate(from, to, operand);
+						apply(type, result, operand, length);
+					};
+				default:
+					return null;
+			}
+		}
+		else if (tree instanceof UnaryOperation)
+		{
+			final UnaryOperation unaryOperation = (UnaryOperation) tree;
+			final ColumnFunction element = compileColumns(unaryOperation.getElement(), columns, context);
+			if (element == null)
+			{
+				return null;
+			}
+			switch (unaryOperation.getType())
+			{
+				case FACTORIAL:
+					return (from, to, result) ->
+					{
+						element.evaluate(from, to, result);
+						for (int i = 0; i < (to - from); ++i)
+						{
+							result[i] = Maths.factorial((long) (int) result[i]).doubleValue();
+						}
+					};
+				case TRANSPOSE:
+					return element;
+				case INVERSE:
+					return (from, to, result) ->
+					{
+						element.evaluate(from, to, result);
+						for (int i = 0; i < (to - from); ++i)
+						{
+							result[i] = 1. / result[i];
+						}
+					};
+				default:
+					return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Applies the specified binary operation element-wise: {@code result[i] =
+	 * result[i] (type) operand[i]}.
+	 * <p>
+	 * @param type    the type of the binary operation
+	 * @param result  the left operands (replaced by the results)
+	 * @param operand the right operands
+	 * @param length  the number of elements
+	 * <p>
+	 * @throws ArithmeticException if a coefficient A of a solution is equal to
+	 *                             zero
+	 */
+	private static void apply(final Type type, final double[] result, final double[] operand, final int length)
+	{
+		switch (type)
+		{
+			case ADDITION:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] += operand[i];
+				}
+				break;
+			case SUBTRACTION:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] -= operand[i];
+				}
+				break;
+			case MULTIPLICATION:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] *= operand[i];
+				}
+				break;
+			case DIVISION:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] /= operand[i];
+				}
+				break;
+			case POWER:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] = Math.pow(result[i], operand[i]);
+				}
+				break;
+			case SOLUTION:
+				for (int i = 0; i < length; ++i)
+				{
+					result[i] = solve(result[i], operand[i]);
+				}
+				break;
+			default:
+				throw new UnknownTypeException(type);
+		}
+	}
+
+
+	////////////////////////////////////////////////////////////////////////////
+	// INTERFACE(S)
+	////////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * The function evaluating a tree over a range of rows.
+	 */
+	@FunctionalInterface
+	public interface ColumnFunction
+	{
+		/**
+		 * Evaluates the tree for the rows from {@code from} (inclusive) to
+		 * {@code to} (exclusive) and stores the results in {@code result}
+		 * (starting at index {@code 0}).
+		 * <p>
+		 * @param from   the index of the first row (inclusive)
+		 * @param to     the index of the last row (exclusive)
+		 * @param result the array in which the results are stored
+		 */
+		public void evaluate(final int from, final int to, final double[] result);
+	}
+}
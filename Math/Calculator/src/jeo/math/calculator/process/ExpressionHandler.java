@@ -23,30 +23,20 @@
  */
 package jeo.math.calculator.process;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 
 import jeo.common.exception.NoElementException;
+import jeo.common.exception.SyntaxException;
 import jeo.common.io.IOManager;
 import jeo.common.io.Message;
-import jeo.common.math.IGroup;
-import jeo.common.math.Interval;
-import jeo.common.math.IntervalCollection;
-import jeo.common.structure.ExtendedList;
 import jeo.common.thread.Report;
-import jeo.common.thread.ReservedThreadPoolExecutor;
-import jeo.common.util.Strings;
 import jeo.math.calculator.model.BinaryOperation;
 import jeo.math.calculator.model.Element;
 import jeo.math.calculator.model.Element.Type;
 import jeo.math.calculator.model.MatrixElement;
 import jeo.math.calculator.model.ScalarElement;
 import jeo.math.calculator.model.UnaryOperation;
+import jeo.math.calculator.model.VariableElement;
 import jeo.math.linearalgebra.Matrix;
 
 public class ExpressionHandler
@@ -56,21 +46,21 @@ public class ExpressionHandler
 	////////////////////////////////////////////////////////////////////////////
 
 	/**
-	 * The flag for using threads.
+	 * The precedence of the binary operators {@code +} and {@code -}.
 	 */
-	private static boolean USE_THREADS = true;
+	private static final int ADDITIVE_PRECEDENCE = 1;
 	/**
-	 * The pool of threads.
+	 * The precedence of the binary operators {@code *} and {@code /}.
 	 */
-	private static ExecutorService THREAD_POOL = null;
+	private static final int MULTIPLICATIVE_PRECEDENCE = 2;
 	/**
-	 * The list of unary operators.
+	 * The precedence of the binary operator {@code ^}.
 	 */
-	private static final List<List<Character>> UNARY_OPERATORS = new ArrayList<List<Character>>(Arrays.asList(Arrays.asList('!', '\''), Arrays.asList('@')));
+	private static final int POWER_PRECEDENCE = 3;
 	/**
-	 * The list of binary operators.
+	 * The precedence of the binary operator {@code ~}.
 	 */
-	private static final List<List<Character>> BINARY_OPERATORS = new ArrayList<List<Character>>(Arrays.asList(Arrays.asList('+', '-'), Arrays.asList('*', '/'), Arrays.asList('^'), Arrays.asList('~')));
+	private static final int SOLUTION_PRECEDENCE = 4;
 
 
 	////////////////////////////////////////////////////////////////////////////
@@ -86,47 +76,6 @@ public class ExpressionHandler
 	// EXPRESSION HANDLER
 	////////////////////////////////////////////////////////////////////////////
 
-	/**
-	 * Initializes the pool of working threads.
-	 */
-	public static void init()
-	{
-		init(USE_THREADS);
-	}
-
-	/**
-	 * Initializes the pool of working threads.
-	 * <p>
-	 * @param useThreads the flag for using threads
-	 */
-	public static void init(final boolean useThreads)
-	{
-		USE_THREADS = useThreads;
-		end();
-		if (USE_THREADS)
-		{
-			IOManager.printDebug("Create a pool of thread ...");
-			THREAD_POOL = new ReservedThreadPoolExecutor(Runtime.getRuntime().availableProcessors());
-			IOManager.printDebug("Done!");
-		}
-	}
-
-	/**
-	 * Ends the pool of working threads.
-	 */
-	public static void end()
-	{
-		if (USE_THREADS)
-		{
-			if (THREAD_POOL != null)
-			{
-				IOManager.printDebug("Shutdown the pool of threads ...");
-				THREAD_POOL.shutdown();
-				IOManager.printDebug("Done!");
-			}
-		}
-	}
-
 	/**
 	 * Returns a tree whose nodes and leaves correspond respectively to the
 	 * operations and numbers of the specified expression.
@@ -146,6 +95,10 @@ public class ExpressionHandler
 	 * Returns a tree whose nodes and leaves correspond respectively to the
 	 * operations and numbers of the specified expression.
 	 * <p>
+	 * The expression is parsed in a single pass by precedence climbing: the
+	 * binary operators are left-associative and the unary operators are
+	 * postfix operators binding tighter than any binary operator.
+	 * <p>
 	 * @param parent     the parent node of the specified expression
 	 * @param expression the expression to be parsed
 	 * @param context    the context containing the values of the variables
@@ -155,495 +108,338 @@ public class ExpressionHandler
 	 */
 	public static Report<Element> parseExpression(final Element parent, final String expression, final Map<String, Element> context)
 	{
-		// Trim the expression
-		final String trimmedExpression = expression.trim();
-		IOManager.printDebug("EXPRESSION: '" + trimmedExpression + "'");
-
-		/*
-		 * \ /\ getFirstParenthesesInterval (right is computed first)
-		 *
-		 * / /\ getLastParenthesesInterval (left is computed first)
-		 */
-		final Interval<Integer> parenthesesIndexes = getLastParenthesesInterval(trimmedExpression);
-
-		// Get the index of the binary operator (if any)
-		final int binaryOperatorIndex = getBinaryOperatorIndex(trimmedExpression, parenthesesIndexes);
-
-		// Parse the binary operation
-		if (binaryOperatorIndex >= 0)
+		IOManager.printDebug("EXPRESSION: '{}'", expression);
+		try
 		{
-			return parseBinaryOperation(parent, trimmedExpression, binaryOperatorIndex, context);
+			return new Report<Element>(new Parser(parent, expression, context).parse(), null);
 		}
-
-		// Parse the unary operation
-		else
+		catch (final NoElementException ex)
 		{
-			return parseUnaryOperation(parent, trimmedExpression, parenthesesIndexes, context);
+			return new Report<Element>(null, new Message(ex));
+		}
+		catch (final SyntaxException ex)
+		{
+			return new Report<Element>(null, new Message(ex));
 		}
 	}
 
 	/**
-	 * Returns the index of the binary operator in {@code trimmedExpression}, or
-	 * {@code -1} if there is no such occurrence.
+	 * Returns the precedence of the binary operator {@code token}, or
+	 * {@code -1} if {@code token} is not a binary operator.
 	 * <p>
-	 * @param trimmedExpression the expression to be parsed
-	 * @param parentheses       the indexes of the parenthesis in
-	 *                          {@code trimmedExpression}
+	 * @param token the input {@code char}
 	 * <p>
-	 * @return
+	 * @return the precedence of the binary operator {@code token}, or
+	 *         {@code -1} if {@code token} is not a binary operator
 	 */
-	private static int getBinaryOperatorIndex(final String trimmedExpression, final Interval<Integer> parenthesesIndexes)
+	private static int getPrecedence(final char token)
 	{
-		final int binaryOperatorIndex;
-
-		if (USE_THREADS)
+		switch (token)
 		{
-			final IGroup<Integer> parentheses = getParenthesesIntervals(trimmedExpression);
-			final ExtendedList<Integer> indexes = getBinaryOperatorIndexes(trimmedExpression, parentheses);
-
-			IOManager.printDebug("Indexes: " + indexes.toString());
-			if (indexes.size() > 0)
-			{
-				binaryOperatorIndex = indexes.getMiddleElement();
-			}
-			else
-			{
-				binaryOperatorIndex = -1;
-			}
+			case '+':
+			case '-':
+				return ADDITIVE_PRECEDENCE;
+			case '*':
+			case '/':
+				return MULTIPLICATIVE_PRECEDENCE;
+			case '^':
+				return POWER_PRECEDENCE;
+			case '~':
+				return SOLUTION_PRECEDENCE;
+			default:
+				return -1;
 		}
-		else
+	}
+
+	/**
+	 * Returns the {@link Type} of {@code token}.
+	 * <p>
+	 * @param token the input {@code char}
+	 * <p>
+	 * @return the {@link Type} of {@code token}
+	 */
+	private static Type getType(final char token)
+	{
+		switch (token)
 		{
-			binaryOperatorIndex = getLastBinaryOperatorIndex(trimmedExpression, parenthesesIndexes);
+			case '+':
+				return Type.ADDITION;
+			case '-':
+				return Type.SUBTRACTION;
+			case '*':
+				return Type.MULTIPLICATION;
+			case '/':
+				return Type.DIVISION;
+			case '^':
+				return Type.POWER;
+			case '~':
+				return Type.SOLUTION;
+			case '(':
+				return Type.LPARENTHESIS;
+			case ')':
+				return Type.RPARENTHESIS;
+			case '!':
+				return Type.FACTORIAL;
+			case '\'':
+				return Type.TRANSPOSE;
+			case '@':
+				return Type.INVERSE;
+			default:
+				return Type.NUMBER;
 		}
-
-		return binaryOperatorIndex;
 	}
 
-	private static Report<Element> parseBinaryOperation(final Element parent, final String trimmedExpression, final int binaryOperatorIndex, final Map<String, Element> context)
-	{
-		// Get the binary operator
-		final Type type = getType(trimmedExpression.charAt(binaryOperatorIndex));
-		IOManager.printDebug("Type: " + type);
 
-		// Extract the left and right expressions
-		final String leftExpression = trimmedExpression.substring(0, binaryOperatorIndex);
-		final String rightExpression = trimmedExpression.substring(binaryOperatorIndex + 1);
+	////////////////////////////////////////////////////////////////////////////
+	// PARSER
+	////////////////////////////////////////////////////////////////////////////
 
-		// Parse the expressions
-		Element leftTree, rightTree;
-		Report<Element> leftTreeResult, rightTreeResult;
-		if (USE_THREADS)
-		{
-			Future<Report<Element>> futureLeftTreeResult, futureRightTreeResult;
+	/**
+	 * The single-pass parser of an expression, scanning it from left to right
+	 * without creating any intermediate substring.
+	 */
+	private static class Parser
+	{
+		private final Element parent;
+		private final String expression;
+		private final Map<String, Element> context;
+		private final int length;
+		private int index = 0;
 
-			// Submit the tasks
-			IOManager.printDebug("Submit '" + leftExpression + "' ...");
-			futureLeftTreeResult = THREAD_POOL.submit(() -> parseExpression(parent, leftExpression, context));
+		private Parser(final Element parent, final String expression, final Map<String, Element> context)
+		{
+			this.parent = parent;
+			this.expression = expression;
+			this.context = context;
+			this.length = expression.length();
+		}
 
-			IOManager.printDebug("Submit '" + rightExpression + "' ...");
-			futureRightTreeResult = THREAD_POOL.submit(() -> parseExpression(parent, rightExpression, context));
+		/**
+		 * Parses the whole expression.
+		 * <p>
+		 * @return the tree of operations and numbers corresponding to the
+		 *         expression
+		 * <p>
+		 * @throws SyntaxException   if the expression is malformed
+		 * @throws NoElementException if the expression contains an unknown
+		 *                            variable
+		 */
+		private Element parse()
+		{
+			final Element tree = parseBinaryOperation(ADDITIVE_PRECEDENCE);
+			skipWhitespaces();
+			if (index < length)
+			{
+				throw createSyntaxException("Unexpected character '" + expression.charAt(index) + "'", index);
+			}
+			return tree;
+		}
 
-			// Get the results
-			// - Left expression
-			if (futureLeftTreeResult != null)
+		/**
+		 * Parses the binary operations whose operators have a precedence
+		 * greater or equal to {@code minPrecedence}.
+		 * <p>
+		 * @param minPrecedence the minimum precedence of the operators to be
+		 *                      parsed
+		 * <p>
+		 * @return the parsed node (or leaf)
+		 */
+		private Element parseBinaryOperation(final int minPrecedence)
+		{
+			skipWhitespaces();
+			final int from = index;
+			Element tree = parseUnaryOperation();
+			while (true)
 			{
-				try
+				skipWhitespaces();
+				if (index >= length)
 				{
-					IOManager.printDebug("-> Get '" + leftExpression + "' ...");
-					leftTreeResult = futureLeftTreeResult.get();
+					break;
 				}
-				catch (final Exception ex)
+				final char token = expression.charAt(index);
+				final int precedence = getPrecedence(token);
+				if (precedence < minPrecedence)
 				{
-					leftTreeResult = new Report<Element>(null, new Message(ex));
-					IOManager.printError(ex);
+					break;
 				}
+				final Type type = getType(token);
+				++index;
+				// The right operand only contains operators of higher precedence (left associativity)
+				final Element right = parseBinaryOperation(precedence + 1);
+				IOManager.printDebug("Create new Node <{} {} {}>", tree.getExpression(), type, right.getExpression());
+				tree = new BinaryOperation(parent, expression.substring(from, index), type, tree, right);
 			}
-			else
-			{
-				leftTreeResult = parseExpression(parent, leftExpression, context);
-			}
-			// - Right expression
-			if (futureRightTreeResult != null)
+			return tree;
+		}
+
+		/**
+		 * Parses a primary expression followed by its postfix unary operators.
+		 * <p>
+		 * @return the parsed node (or leaf)
+		 */
+		private Element parseUnaryOperation()
+		{
+			final int from = index;
+			Element tree = parsePrimary();
+			while (true)
 			{
-				try
+				skipWhitespaces();
+				if (index >= length)
 				{
-					IOManager.printDebug("-> Get '" + rightExpression + "' ...");
-					rightTreeResult = futureRightTreeResult.get();
+					break;
 				}
-				catch (final Exception ex)
+				final Type type = getType(expression.charAt(index));
+				if ((type != Type.FACTORIAL) && (type != Type.TRANSPOSE) && (type != Type.INVERSE))
 				{
-					rightTreeResult = new Report<Element>(null, new Message(ex));
-					IOManager.printError(ex);
+					break;
 				}
+				++index;
+				IOManager.printDebug("Create new Node <{} {}>", type, tree.getExpression());
+				tree = new UnaryOperation(parent, expression.substring(from, index), type, tree);
 			}
-			else
-			{
-				rightTreeResult = parseExpression(parent, rightExpression, context);
-			}
-		}
-		else
-		{
-			// Get the results
-			leftTreeResult = parseExpression(parent, leftExpression, context);
-			rightTreeResult = parseExpression(parent, rightExpression, context);
-		}
-
-		// Get the trees from the results
-		// - Left
-		leftTree = leftTreeResult.getOutput();
-		if (leftTree == null)
-		{
-			return leftTreeResult;
+			return tree;
 		}
-		// - Right
-		rightTree = rightTreeResult.getOutput();
-		if (rightTree == null)
-		{
-			return rightTreeResult;
-		}
-
-		IOManager.printDebug("Create new Node <" + leftTree.getExpression() + " " + type + " " + rightTree.getExpression() + ">");
-		return new Report<Element>(new BinaryOperation(parent, trimmedExpression, type, leftTree, rightTree), null);
-	}
-
-	private static Report<Element> parseUnaryOperation(final Element parent, final String trimmedExpression, final Interval<Integer> parenthesesIndexes, final Map<String, Element> context)
-	{
-		final Element tree;
 
-		// Unary operation
-		final int unaryOperatorIndex = getLastUnaryOperatorIndex(trimmedExpression, parenthesesIndexes);
-		if (unaryOperatorIndex >= 0)
-		{
-			// Get the unary operator
-			final Character unaryOperator = trimmedExpression.charAt(unaryOperatorIndex);
-			final Type type = getType(unaryOperator);
-			IOManager.printDebug("Type: " + type);
-
-			// Extract the embedded expression
-			final String childExpression = Strings.split(trimmedExpression, unaryOperator).get(0);
-			final Element child = parseExpression(parent, childExpression, context).getOutput();
-
-			// Parse the expression
-			IOManager.printDebug("Create new Node <" + type + " " + child.getExpression() + ">");
-			tree = new UnaryOperation(parent, trimmedExpression, type, child);
-		}
-		// Parentheses
-		else if (parenthesesIndexes.isCorrect())
-		{
-			final String nestedExpression = trimmedExpression.substring(parenthesesIndexes.getLowerBound() + 1, parenthesesIndexes.getUpperBound());
-			IOManager.printDebug("NESTED EXPRESSION: '" + nestedExpression + "'");
-			tree = parseExpression(parent, nestedExpression, context).getOutput();
-		}
-		// Variable, matrix or scalar
-		else
+		/**
+		 * Parses a nested expression, a matrix, a scalar or a variable.
+		 * <p>
+		 * @return the parsed node (or leaf)
+		 */
+		private Element parsePrimary()
 		{
-			IOManager.printDebug("Create new Leaf <" + trimmedExpression + ">");
-
-			// Check if the expression is a variable
-			if (context.containsKey(trimmedExpression))
+			skipWhitespaces();
+			if (index >= length)
 			{
-				tree = context.get(trimmedExpression);
-				tree.setParent(parent);
-				tree.setExpression(trimmedExpression);
+				throw createSyntaxException("Missing operand", index);
 			}
-			// Check if the expression is a matrix
-			else if (Matrix.isMatrix(trimmedExpression))
+			final char token = expression.charAt(index);
+			// Parentheses
+			if (token == '(')
 			{
-				tree = new MatrixElement(parent, trimmedExpression);
+				final int from = index;
+				++index;
+				final Element tree = parseBinaryOperation(ADDITIVE_PRECEDENCE);
+				skipWhitespaces();
+				if ((index >= length) || (expression.charAt(index) != ')'))
+				{
+					throw createSyntaxException("Missing closing parenthesis for the opening one", from);
+				}
+				++index;
+				return tree;
 			}
-			// Else the expression is a scalar
-			else if (Strings.isNumeric(trimmedExpression))
+			// Matrix
+			if (token == '[')
 			{
-				tree = new ScalarElement(parent, trimmedExpression);
+				return parseMatrix();
 			}
-			else
+			// Scalar
+			if (isNumberStart(index) || (((token == '-') || (token == '+')) && ((index + 1) < length) && isNumberStart(index + 1)))
 			{
-				return new Report<Element>(null, new Message(new NoElementException("Unkown variable '" + trimmedExpression + "'")));
+				return parseScalar();
 			}
-		}
-
-		return new Report<Element>(tree, null);
-	}
-
-	/**
-	 * Returns the indexes of all the binary operators in {@code expression}
-	 * that are not in {@code parentheses}.
-	 * <p>
-	 * @param expression  the input {@link String}
-	 * @param parentheses the intervals of parentheses in {@code expression}
-	 * <p>
-	 * @return the indexes of all the binary operators in {@code expression}
-	 *         that are not in {@code parentheses}
-	 */
-	private static ExtendedList<Integer> getBinaryOperatorIndexes(final String expression, final IGroup<Integer> parentheses)
-	{
-		return getOperatorIndexes(expression, parentheses, expression.length(), BINARY_OPERATORS);
-	}
-
-	/**
-	 * Returns the index of the last binary operator in {@code expression} that
-	 * is not in {@code lastParentheses}.
-	 * <p>
-	 * @param expression      the input {@link String}
-	 * @param lastParentheses the last interval of parentheses in
-	 *                        {@code expression}
-	 * <p>
-	 * @return the index of the last binary operator in {@code expression} that
-	 *         is not in {@code lastParentheses}
-	 */
-	private static Integer getLastBinaryOperatorIndex(final String expression, final Interval<Integer> lastParentheses)
-	{
-		return getLastOperatorIndexFromList(expression, lastParentheses, expression.length(), BINARY_OPERATORS);
-	}
-
-	/**
-	 * Returns the index of the last unary operator in {@code expression} that
-	 * is not in {@code lastParentheses}.
-	 * <p>
-	 * @param expression      the input {@link String}
-	 * @param lastParentheses the intervals of parentheses in {@code expression}
-	 * <p>
-	 * @return the index of the last unary operator in {@code expression} that
-	 *         is not in {@code lastParentheses}
-	 */
-	private static Integer getLastUnaryOperatorIndex(final String expression, final Interval<Integer> lastParentheses)
-	{
-		return getLastOperatorIndexFromList(expression, lastParentheses, expression.length(), UNARY_OPERATORS);
-	}
-
-	/**
-	 * Returns the indexes of all the operators in {@code expression} that are
-	 * not in {@code parentheses}.
-	 * <p>
-	 * @param expression      the input {@link String}
-	 * @param parentheses     the intervals of parentheses in {@code expression}
-	 * @param to              the index to finish the search at (exclusive)
-	 * @param listOfOperators the list of operators to be searched
-	 * <p>
-	 * @return the indexes of all the operators in {@code expression} that are
-	 *         not in {@code parentheses}
-	 */
-	private static ExtendedList<Integer> getOperatorIndexes(final String expression, final IGroup<Integer> parentheses, final int to, final List<List<Character>> listOfOperators)
-	{
-		final ExtendedList<Integer> indexes = new ExtendedList<Integer>();
-		final int SIZE = listOfOperators.size();
-		int currentBinaryOperatorsIndex = 0;
-
-		do
-		{
-			final List<Character> operators = listOfOperators.get(currentBinaryOperatorsIndex);
-			int index = getLastOperatorIndex(expression, parentheses, to, operators);
-			while (index >= 0)
+			// Variable
+			if (Character.isLetter(token) || (token == '_'))
 			{
-				indexes.add(index);
-				index = getLastOperatorIndex(expression, parentheses, index, operators);
+				return parseVariable();
 			}
-			++currentBinaryOperatorsIndex;
-		}
-		while ((currentBinaryOperatorsIndex < SIZE) && indexes.isEmpty());
-
-		return indexes;
-	}
-
-	/**
-	 * Returns the index of the last operator in {@code expression} that is not
-	 * in {@code parentheses}.
-	 * <p>
-	 * @param expression  the input {@link String}
-	 * @param parentheses the intervals of parentheses in {@code expression}
-	 * @param operators   the operators to be searched
-	 * <p>
-	 * @return the index of the last operator in {@code expression} that is not
-	 *         in {@code parentheses}
-	 */
-	private static int getLastOperatorIndex(final String expression, final IGroup<Integer> parentheses, final int to, final List<Character> operators)
-	{
-		int index = to;
-		do
-		{
-			index = Strings.searchLastCharacter(expression, operators, index);
+			throw createSyntaxException("Unexpected character '" + token + "'", index);
 		}
-		while (parentheses.isCorrect() && (index >= 0) && parentheses.isInside(index));
-		return index;
-	}
 
-	/**
-	 * Returns the index of the last operator in {@code expression} that is not
-	 * in {@code parentheses}.
-	 * <p>
-	 * @param expression  the input {@link String}
-	 * @param parentheses the intervals of parentheses in {@code expression}
-	 * @param to          the index to finish the search at (exclusive)
-	 * <p>
-	 * @return the index of the last operator in {@code expression} that is not
-	 *         in {@code parentheses}
-	 */
-	private static int getLastOperatorIndexFromList(final String expression, final IGroup<Integer> parentheses, final int to, final List<List<Character>> listOfOperators)
-	{
-		final int SIZE = listOfOperators.size();
-		int index;
-		int currentBinaryOperatorsIndex = 0;
-
-		do
+		private Element parseMatrix()
 		{
-			final List<Character> operators = listOfOperators.get(currentBinaryOperatorsIndex);
-			index = getLastOperatorIndex(expression, parentheses, to, operators);
-			++currentBinaryOperatorsIndex;
+			final int from = index;
+			final int to = expression.indexOf(']', from);
+			if (to < 0)
+			{
+				throw createSyntaxException("Missing closing square bracket for the opening one", from);
+			}
+			index = to + 1;
+			final String matrixExpression = expression.substring(from, index);
+			IOManager.printDebug("Create new Leaf <{}>", matrixExpression);
+			final Matrix matrix = Matrix.parse(matrixExpression);
+			if (matrix == null)
+			{
+				throw createSyntaxException("Invalid matrix '" + matrixExpression + "'", from);
+			}
+			return new MatrixElement(parent, matrixExpression, matrix);
 		}
-		while ((index < 0) && (currentBinaryOperatorsIndex < SIZE));
-
-		return index;
-	}
-
-	/**
-	 * Returns the intervals of parentheses in {@code expression}.
-	 * <p>
-	 * @param expression the input {@link String}
-	 * <p>
-	 * @return the intervals of parentheses in {@code expression}
-	 */
-	private static IntervalCollection<Integer> getParenthesesIntervals(final String expression)
-	{
-		final Collection<Interval<Integer>> intervals = new ExtendedList<Interval<Integer>>();
-		final int length = expression.length();
-		int counter = 0;
-		int lowerBound, upperBound = -1;
 
-		for (int index = length - 1; index >= 0; --index)
+		private Element parseScalar()
 		{
-			final Type type = getType(expression.charAt(index));
-			if (type == Type.RPARENTHESIS)
+			final int from = index;
+			if ((expression.charAt(index) == '-') || (expression.charAt(index) == '+'))
 			{
-				if (counter == 0)
-				{
-					upperBound = index;
-				}
-				++counter;
+				++index;
 			}
-			else if (type == Type.LPARENTHESIS)
+			skipDigits();
+			if ((index < length) && ((expression.charAt(index) == 'e') || (expression.charAt(index) == 'E')))
 			{
-				--counter;
-				if (counter == 0)
+				final int exponentIndex = index;
+				++index;
+				if ((index < length) && ((expression.charAt(index) == '-') || (expression.charAt(index) == '+')))
+				{
+					++index;
+				}
+				if ((index >= length) || !Character.isDigit(expression.charAt(index)))
 				{
-					lowerBound = index;
-					intervals.add(new Interval<Integer>(lowerBound, upperBound));
+					throw createSyntaxException("Missing exponent", exponentIndex);
 				}
+				skipDigits();
+			}
+			final String scalarExpression = expression.substring(from, index);
+			IOManager.printDebug("Create new Leaf <{}>", scalarExpression);
+			try
+			{
+				return new ScalarElement(parent, scalarExpression);
+			}
+			catch (final NumberFormatException ex)
+			{
+				throw createSyntaxException("Invalid number '" + scalarExpression + "'", from);
 			}
 		}
 
-		return new IntervalCollection<Integer>(intervals);
-	}
-
-	/**
-	 * Returns the last interval of parentheses in {@code expression}.
-	 * <p>
-	 * @param expression the input {@link String}
-	 * <p>
-	 * @return the last interval of parentheses in {@code expression}
-	 */
-	private static Interval<Integer> getLastParenthesesInterval(final String expression)
-	{
-		final Interval<Integer> interval = new Interval<Integer>();
-		final int length = expression.length();
-		int counter = 0;
-
-		for (int index = length - 1; index >= 0; --index)
+		private Element parseVariable()
 		{
-			final Type type = getType(expression.charAt(index));
-			if (type == Type.RPARENTHESIS)
+			final int from = index;
+			while ((index < length) && (Character.isLetterOrDigit(expression.charAt(index)) || (expression.charAt(index) == '_')))
 			{
-				if (counter == 0)
-				{
-					interval.setUpperBound(index);
-				}
-				++counter;
+				++index;
 			}
-			else if (type == Type.LPARENTHESIS)
+			final String name = expression.substring(from, index);
+			IOManager.printDebug("Create new Leaf <{}>", name);
+			if (!context.containsKey(name))
 			{
-				--counter;
-				if (counter == 0)
-				{
-					interval.setLowerBound(index);
-					break;
-				}
+				throw new NoElementException("Unknown variable '" + name + "' at position " + from);
 			}
+			// The value of the variable is bound from the context at evaluation
+			return new VariableElement(parent, name);
 		}
 
-		return interval;
-	}
-
-	/**
-	 * Returns the {@link Type} of {@code token}.
-	 * <p>
-	 * @param token the input {@code char}
-	 * <p>
-	 * @return the {@link Type} of {@code token}
-	 */
-	private static Type getType(final char token)
-	{
-		return getType(String.valueOf(token));
-	}
-
-	/**
-	 * Returns the {@link Type} of {@code token}.
-	 * <p>
-	 * @param token the input {@link String}
-	 * <p>
-	 * @return the {@link Type} of {@code token}
-	 */
-	private static Type getType(final String token)
-	{
-		Type type;
-
-		if (token.equals("+"))
-		{
-			type = Type.ADDITION;
-		}
-		else if (token.equals("-"))
-		{
-			type = Type.SUBTRACTION;
-		}
-		else if (token.equals("*"))
-		{
-			type = Type.MULTIPLICATION;
-		}
-		else if (token.equals("/"))
-		{
-			type = Type.DIVISION;
-		}
-		else if (token.equals("^"))
-		{
-			type = Type.POWER;
-		}
-		else if (token.equals("~"))
+		private boolean isNumberStart(final int i)
 		{
-			type = Type.SOLUTION;
+			final char c = expression.charAt(i);
+			return Character.isDigit(c) || ((c == '.') && ((i + 1) < length) && Character.isDigit(expression.charAt(i + 1)));
 		}
-		else if (token.equals("("))
-		{
-			type = Type.LPARENTHESIS;
-		}
-		else if (token.equals(")"))
-		{
-			type = Type.RPARENTHESIS;
-		}
-		else if (token.equals("!"))
-		{
-			type = Type.FACTORIAL;
-		}
-		else if (token.equals("'"))
+
+		private void skipDigits()
 		{
-			type = Type.TRANSPOSE;
+			while ((index < length) && (Character.isDigit(expression.charAt(index)) || (expression.charAt(index) == '.')))
+			{
+				++index;
+			}
 		}
-		else if (token.equals("@"))
+
+		private void skipWhitespaces()
 		{
-			type = Type.INVERSE;
+			while ((index < length) && Character.isWhitespace(expression.charAt(index)))
+			{
+				++index;
+			}
 		}
-		else
+
+		private SyntaxException createSyntaxException(final String errorMessage, final int position)
 		{
-			type = Type.NUMBER;
+			return new SyntaxException(errorMessage + " at position " + position + " in '" + expression + "'");
 		}
-
-		return type;
 	}
 }
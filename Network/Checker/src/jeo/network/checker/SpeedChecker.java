@@ -29,6 +29,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.text.DecimalFormat;
@@ -54,6 +55,7 @@ public class SpeedChecker
 	private static final int N_RUNS = 1000;
 	private static final int TIME_INTERVAL = 30000; // [ms]
 	private static final int TIME_OUT = 10000;
+	private static final int TASK_TIME_OUT = 120000; // [ms]
 	private static final String TEMP_DIR = "C:/Temp";
 	// The file handlers of the data files storing the downloading times of the files pointed by the URLs
 	private static final Map<String, FileHandler> DATA_FILES = new HashMap<String, FileHandler>(URLS.size());
@@ -119,11 +121,16 @@ public class SpeedChecker
 		// Process the downloads of the files pointed by the URLs (one by one)
 		for (final String urlName : URLS)
 		{
-			final Long taskId = THREAD_POOL.addTask(urlName);
+			final Long taskId = THREAD_POOL.addTask(urlName, TASK_TIME_OUT);
 			final Report<Double> report = THREAD_POOL.getResult(taskId);
 			final Double result = report.getOutput();
-			IOManager.printInfo(DECIMAL_FORMAT.format(result));
-			DATA_FILES.get(urlName).writeLine(Dates.getCurrentTime() + ";" + Double.toString(result));
+			if (result != null)
+			{
+				IOManager.printInfo(DECIMAL_FORMAT.format(result));
+				final FileHandler dataFile = DATA_FILES.get(urlName);
+				dataFile.writeLine(Dates.getCurrentTime() + ";" + Double.toString(result));
+				dataFile.flush();
+			}
 		}
 	}
 
@@ -189,7 +196,11 @@ public class SpeedChecker
 					FileOutputStream tempFile = null;
 					try
 					{
-						rbc = Channels.newChannel(url.openStream());
+						// Interrupting the worker closes the channel and stops the transfer
+						final URLConnection connection = url.openConnection();
+						connection.setConnectTimeout(TIME_OUT);
+						connection.setReadTimeout(TIME_OUT);
+						rbc = Channels.newChannel(connection.getInputStream());
 						tempFile = new FileOutputStream(destinationFile);
 						chrono.start();
 						tempFile.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);